@@ -0,0 +1,134 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.poupa.vinylmusicplayer.provider.HistoryStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(AndroidJUnit4.class)
+public class HistoryStoreTest {
+    private HistoryStore store;
+
+    @Before
+    public void setUp() {
+        // In memory, not to touch the history of the installed app
+        store = new HistoryStore(InstrumentationRegistry.getInstrumentation().getTargetContext(), null);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void replayedSongKeepsItsLastPlayOnly() {
+        store.addSongIds(List.of(1L, 2L, 1L), List.of(100L, 200L, 300L));
+
+        assertEquals(List.of(2L, 1L), new ArrayList<>(store.getPlayTimes().keySet()));
+        assertEquals(Long.valueOf(300L), store.getPlayTimes().get(1L));
+        assertEquals(List.of(1L, 2L), store.getRecentIds(0));
+        assertTrue(store.contains(1L));
+        assertFalse(store.contains(3L));
+    }
+
+    @Test
+    public void pruneDropsTheLeastRecentlyPlayed() {
+        final ArrayList<Long> songIds = new ArrayList<>();
+        final ArrayList<Long> timesPlayed = new ArrayList<>();
+        for (long id = 1; id <= 10; ++id) {
+            songIds.add(id);
+            timesPlayed.add(1000 - id);
+        }
+        store.addSongIds(songIds, timesPlayed);
+
+        final ArrayList<Long> pruned = store.prune(4);
+        Collections.sort(pruned);
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L, 10L), pruned);
+        assertEquals(List.of(4L, 3L, 2L, 1L), new ArrayList<>(store.getPlayTimes().keySet()));
+
+        assertTrue(store.prune(4).isEmpty());
+        assertTrue(store.prune(0).isEmpty());
+        assertEquals(4, store.getPlayTimes().size());
+    }
+
+    @Test
+    public void historySizeDoesNotGrowWithReplays() {
+        final int size = 20_000;
+        final ArrayList<Long> songIds = new ArrayList<>(size);
+        for (long id = 0; id < size; ++id) {songIds.add(id);}
+
+        store.addSongIds(songIds, Collections.nCopies(size, 1L));
+        store.addSongIds(songIds, Collections.nCopies(size, 2L));
+
+        assertEquals(size, store.getPlayTimes().size());
+        assertEquals(size, store.getRecentIds(1L).size());
+
+        store.removeSongIds(songIds.subList(0, size / 2));
+        assertEquals(size / 2, store.getPlayTimes().size());
+        assertFalse(store.contains(0L));
+    }
+
+    private static long median(@NonNull final long[] nanos) {
+        final long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    @Test
+    public void playAndLookupLatencyIsFlat() {
+        // The history sizes measured, the plays and lookups timed at each of them
+        final int[] sizes = {1_000, 10_000, 100_000};
+        final int samples = 200;
+        final long[] playNanos = new long[sizes.length];
+        final long[] lookupNanos = new long[sizes.length];
+
+        final Random random = new Random(37);
+        long nextId = 0;
+        for (int s = 0; s < sizes.length; ++s) {
+            // Fill up to the size, by batches as the buffered plays are written
+            while (nextId < sizes[s]) {
+                final int count = (int) Math.min(10_000, sizes[s] - nextId);
+                final ArrayList<Long> songIds = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {songIds.add(nextId++);}
+                store.addSongIds(songIds, Collections.nCopies(count, nextId));
+            }
+
+            final long[] plays = new long[samples];
+            final long[] lookups = new long[samples];
+            for (int i = 0; i < samples; ++i) {
+                // Half new songs, half replays
+                final long songId = (i % 2 == 0) ? nextId++ : random.nextInt(sizes[s]);
+                long start = System.nanoTime();
+                store.addSongIds(List.of(songId), List.of(nextId));
+                plays[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                assertTrue(store.contains(random.nextInt(sizes[s])));
+                lookups[i] = System.nanoTime() - start;
+            }
+            playNanos[s] = median(plays);
+            lookupNanos[s] = median(lookups);
+        }
+
+        // Indexed, a hundred times more rows cost at most a few more B-tree levels
+        final String latencies = "play " + Arrays.toString(playNanos) + " ns, lookup " + Arrays.toString(lookupNanos) + " ns";
+        assertTrue(latencies, playNanos[sizes.length - 1] < 3 * playNanos[0]);
+        assertTrue(latencies, lookupNanos[sizes.length - 1] < 3 * lookupNanos[0]);
+    }
+}
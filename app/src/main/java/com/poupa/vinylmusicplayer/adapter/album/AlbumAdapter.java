@@ -13,18 +13,24 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.util.Pair;
 
+import com.bumptech.glide.RequestBuilder;
 import com.kabouzeid.appthemehelper.util.ColorUtil;
 import com.kabouzeid.appthemehelper.util.MaterialValueHelper;
 import com.poupa.vinylmusicplayer.R;
 import com.poupa.vinylmusicplayer.adapter.base.AbsMultiSelectAdapter;
+import com.poupa.vinylmusicplayer.adapter.base.CoverPreloader;
 import com.poupa.vinylmusicplayer.adapter.base.MediaEntryViewHolder;
 import com.poupa.vinylmusicplayer.databinding.ItemGridBinding;
 import com.poupa.vinylmusicplayer.databinding.ItemGridCardHorizontalBinding;
 import com.poupa.vinylmusicplayer.databinding.ItemListBinding;
 import com.poupa.vinylmusicplayer.discog.tagging.MultiValuesTagUtil;
 import com.poupa.vinylmusicplayer.glide.GlideApp;
+import com.poupa.vinylmusicplayer.glide.GlideRequest;
+import com.poupa.vinylmusicplayer.glide.GlideRequests;
 import com.poupa.vinylmusicplayer.glide.VinylColoredTarget;
 import com.poupa.vinylmusicplayer.glide.VinylGlideExtension;
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverKey;
+import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteWrapper;
 import com.poupa.vinylmusicplayer.helper.menu.SongsMenuHelper;
 import com.poupa.vinylmusicplayer.interfaces.PaletteColorHolder;
 import com.poupa.vinylmusicplayer.model.Album;
@@ -45,7 +51,7 @@ import java.util.Map;
 /**
  * @author Karim Abou Zeid (kabouzeid)
  */
-public class AlbumAdapter extends AbsMultiSelectAdapter<AlbumAdapter.ViewHolder, Album> implements FastScrollRecyclerView.SectionedAdapter {
+public class AlbumAdapter extends AbsMultiSelectAdapter<AlbumAdapter.ViewHolder, Album> implements FastScrollRecyclerView.SectionedAdapter, CoverPreloader.Provider {
 
     protected final AppCompatActivity activity;
     protected ArrayList<Album> dataSet;
@@ -169,15 +175,26 @@ public class AlbumAdapter extends AbsMultiSelectAdapter<AlbumAdapter.ViewHolder,
         }
     }
 
+    @NonNull
+    protected static GlideRequest<BitmapPaletteWrapper> createCoverRequest(@NonNull final GlideRequests requests, @NonNull final Album album) {
+        return requests
+                .asBitmapPalette()
+                .load(VinylGlideExtension.getSongModel(album.safeGetFirstSong()))
+                .songOptions(album.safeGetFirstSong());
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequest(@NonNull final GlideRequests requests, final int position) {
+        return createCoverRequest(requests, dataSet.get(position));
+    }
+
     protected void loadAlbumCover(Album album, final ViewHolder holder) {
         if (holder.image == null) return;
 
-        GlideApp.with(activity)
-                .asBitmapPalette()
-                .load(VinylGlideExtension.getSongModel(album.safeGetFirstSong()))
+        createCoverRequest(GlideApp.with(activity), album)
                 .transition(VinylGlideExtension.getDefaultTransition())
-                .songOptions(album.safeGetFirstSong())
-                .into(new VinylColoredTarget(holder.image) {
+                .into(new VinylColoredTarget(holder.image, CoverKey.of(album.safeGetFirstSong())) {
                     @Override
                     public void onLoadCleared(Drawable placeholder) {
                         super.onLoadCleared(placeholder);
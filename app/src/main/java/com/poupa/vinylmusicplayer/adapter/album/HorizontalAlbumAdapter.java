@@ -14,6 +14,7 @@ import com.poupa.vinylmusicplayer.databinding.ItemGridCardHorizontalBinding;
 import com.poupa.vinylmusicplayer.glide.GlideApp;
 import com.poupa.vinylmusicplayer.glide.VinylColoredTarget;
 import com.poupa.vinylmusicplayer.glide.VinylGlideExtension;
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverKey;
 import com.poupa.vinylmusicplayer.helper.HorizontalAdapterHelper;
 import com.poupa.vinylmusicplayer.interfaces.PaletteColorHolder;
 import com.poupa.vinylmusicplayer.model.Album;
@@ -63,12 +64,9 @@ public class HorizontalAlbumAdapter extends AlbumAdapter {
             holder.imageBorderTheme.setRadius(ThemeStyleUtil.getInstance().getAlbumRadiusImage(activity));
         }
 
-        GlideApp.with(activity)
-                .asBitmapPalette()
-                .load(VinylGlideExtension.getSongModel(album.safeGetFirstSong()))
+        createCoverRequest(GlideApp.with(activity), album)
                 .transition(VinylGlideExtension.getDefaultTransition())
-                .songOptions(album.safeGetFirstSong())
-                .into(new VinylColoredTarget(holder.image) {
+                .into(new VinylColoredTarget(holder.image, CoverKey.of(album.safeGetFirstSong())) {
                     @Override
                     public void onLoadCleared(Drawable placeholder) {
                         super.onLoadCleared(placeholder);
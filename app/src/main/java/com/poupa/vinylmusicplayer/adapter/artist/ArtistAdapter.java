@@ -12,16 +12,21 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.util.Pair;
 
+import com.bumptech.glide.RequestBuilder;
 import com.kabouzeid.appthemehelper.util.ColorUtil;
 import com.kabouzeid.appthemehelper.util.MaterialValueHelper;
 import com.poupa.vinylmusicplayer.R;
 import com.poupa.vinylmusicplayer.adapter.base.AbsMultiSelectAdapter;
+import com.poupa.vinylmusicplayer.adapter.base.CoverPreloader;
 import com.poupa.vinylmusicplayer.adapter.base.MediaEntryViewHolder;
 import com.poupa.vinylmusicplayer.databinding.ItemGridBinding;
 import com.poupa.vinylmusicplayer.databinding.ItemListBinding;
 import com.poupa.vinylmusicplayer.glide.GlideApp;
+import com.poupa.vinylmusicplayer.glide.GlideRequest;
+import com.poupa.vinylmusicplayer.glide.GlideRequests;
 import com.poupa.vinylmusicplayer.glide.VinylColoredTarget;
 import com.poupa.vinylmusicplayer.glide.VinylGlideExtension;
+import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteWrapper;
 import com.poupa.vinylmusicplayer.helper.menu.SongsMenuHelper;
 import com.poupa.vinylmusicplayer.interfaces.PaletteColorHolder;
 import com.poupa.vinylmusicplayer.model.Artist;
@@ -42,7 +47,7 @@ import java.util.Map;
 /**
  * @author Karim Abou Zeid (kabouzeid)
  */
-public class ArtistAdapter extends AbsMultiSelectAdapter<ArtistAdapter.ViewHolder, Artist> implements FastScrollRecyclerView.SectionedAdapter {
+public class ArtistAdapter extends AbsMultiSelectAdapter<ArtistAdapter.ViewHolder, Artist> implements FastScrollRecyclerView.SectionedAdapter, CoverPreloader.Provider {
 
     protected final AppCompatActivity activity;
     protected ArrayList<Artist> dataSet;
@@ -139,13 +144,24 @@ public class ArtistAdapter extends AbsMultiSelectAdapter<ArtistAdapter.ViewHolde
         }
     }
 
-    protected void loadArtistImage(Artist artist, final ViewHolder holder) {
-        if (holder.image == null) return;
-        GlideApp.with(activity)
+    @NonNull
+    private static GlideRequest<BitmapPaletteWrapper> createImageRequest(@NonNull final GlideRequests requests, @NonNull final Artist artist) {
+        return requests
                 .asBitmapPalette()
                 .load(VinylGlideExtension.getArtistModel(artist))
+                .artistOptions(artist);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequest(@NonNull final GlideRequests requests, final int position) {
+        return createImageRequest(requests, dataSet.get(position));
+    }
+
+    protected void loadArtistImage(Artist artist, final ViewHolder holder) {
+        if (holder.image == null) return;
+        createImageRequest(GlideApp.with(activity), artist)
                 .transition(VinylGlideExtension.getDefaultTransition())
-                .artistOptions(artist)
                 .into(new VinylColoredTarget(holder.image) {
                     @Override
                     public void onLoadCleared(Drawable placeholder) {
@@ -0,0 +1,145 @@
+package com.poupa.vinylmusicplayer.adapter.base;
+
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.request.target.Target;
+import com.poupa.vinylmusicplayer.glide.GlideRequests;
+
+import java.util.ArrayDeque;
+
+/**
+ * Load the covers of the items about to be scrolled into view, before they get bound.
+ *
+ * The lookahead follows the scroll direction, and grows with the scroll speed.
+ * On a jump (i.e. fast scroller drag), a direction change or a data set change,
+ * the pending preloads are cancelled, being stale.
+ *
+ * The adapter provides the requests (see {@link Provider}), the cover size is taken
+ * from the image of a visible item.
+ */
+public class CoverPreloader extends RecyclerView.OnScrollListener {
+    public interface Provider {
+        /**
+         * @return The cover request of the item, the same as when binding it; null if it has no cover
+         */
+        @Nullable
+        RequestBuilder<?> getPreloadRequest(@NonNull GlideRequests requests, int position);
+    }
+
+    // Scrolling frames to anticipate, at the current speed
+    private static final int FRAMES_AHEAD = 30;
+
+    private final GlideRequests requests;
+    private final int minLookahead;
+    private final int maxLookahead;
+
+    // The preloads, oldest first
+    private final ArrayDeque<Target<?>> targets = new ArrayDeque<>();
+    private boolean forward = true;
+    // Next position to preload in the scroll direction, RecyclerView.NO_POSITION if none yet
+    private int nextPosition = RecyclerView.NO_POSITION;
+
+    /**
+     * @param minLookahead Number of items preloaded at a slow scroll
+     * @param maxLookahead Max number of items preloaded, whatever the scroll speed
+     */
+    public CoverPreloader(@NonNull final GlideRequests requests, final int minLookahead, final int maxLookahead) {
+        this.requests = requests;
+        this.minLookahead = minLookahead;
+        this.maxLookahead = Math.max(minLookahead, maxLookahead);
+    }
+
+    @Override
+    public void onScrolled(@NonNull final RecyclerView recyclerView, final int dx, final int dy) {
+        if (!(recyclerView.getAdapter() instanceof Provider)) {return;}
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {return;}
+        final Provider provider = (Provider) recyclerView.getAdapter();
+        final LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+
+        final boolean horizontal = layoutManager.getOrientation() == RecyclerView.HORIZONTAL;
+        final int delta = horizontal ? dx : dy;
+        final int extent = horizontal ? recyclerView.getWidth() : recyclerView.getHeight();
+        if (delta == 0 || extent <= 0) {return;}
+
+        final int first = layoutManager.findFirstVisibleItemPosition();
+        final int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {return;}
+        final int visibleCount = last - first + 1;
+
+        final float itemsPerFrame = (float) Math.abs(delta) * visibleCount / extent;
+        if (itemsPerFrame >= visibleCount) {
+            // Jumping, whatever is preloaded will not be shown
+            cancel();
+            return;
+        }
+
+        if ((delta > 0) != forward) {
+            cancel();
+            forward = (delta > 0);
+        }
+
+        final int[] size = getCoverSize(recyclerView, last);
+        if (size == null) {return;}
+
+        final int lookahead = Math.min(maxLookahead, minLookahead + Math.round(itemsPerFrame * FRAMES_AHEAD));
+        final int itemCount = layoutManager.getItemCount();
+        if (forward) {
+            final int from = (nextPosition == RecyclerView.NO_POSITION) ? last + 1 : Math.max(last + 1, nextPosition);
+            final int to = Math.min(last + lookahead, itemCount - 1);
+            for (int position = from; position <= to; ++position) {
+                preload(provider, position, size);
+            }
+            nextPosition = Math.max(from, to + 1);
+        } else {
+            final int from = (nextPosition == RecyclerView.NO_POSITION) ? first - 1 : Math.min(first - 1, nextPosition);
+            final int to = Math.max(first - lookahead, 0);
+            for (int position = from; position >= to; --position) {
+                preload(provider, position, size);
+            }
+            nextPosition = Math.min(from, to - 1);
+        }
+    }
+
+    private void preload(@NonNull final Provider provider, final int position, @NonNull final int[] size) {
+        final RequestBuilder<?> request = provider.getPreloadRequest(requests, position);
+        if (request == null) {return;}
+
+        targets.addLast(request.preload(size[0], size[1]));
+        // The oldest ones are done, or too far behind to be useful
+        while (targets.size() > maxLookahead) {
+            requests.clear(targets.removeFirst());
+        }
+    }
+
+    /**
+     * Cancel the pending preloads, i.e. when the data set or its order changes
+     */
+    public void cancel() {
+        while (!targets.isEmpty()) {
+            requests.clear(targets.removeFirst());
+        }
+        nextPosition = RecyclerView.NO_POSITION;
+    }
+
+    // Same as the size of the target view, as computed by Glide
+    @Nullable
+    private static int[] getCoverSize(@NonNull final RecyclerView recyclerView, final int position) {
+        final RecyclerView.ViewHolder holder = recyclerView.findViewHolderForAdapterPosition(position);
+        if (!(holder instanceof MediaEntryViewHolder)) {return null;}
+
+        final ImageView image = ((MediaEntryViewHolder) holder).image;
+        if (image == null || image.getVisibility() != ImageView.VISIBLE) {return null;}
+
+        final int width = image.getWidth() - image.getPaddingLeft() - image.getPaddingRight();
+        final int height = image.getHeight() - image.getPaddingTop() - image.getPaddingBottom();
+        if (width <= 0 || height <= 0) {return null;}
+
+        return new int[] {width, height};
+    }
+}
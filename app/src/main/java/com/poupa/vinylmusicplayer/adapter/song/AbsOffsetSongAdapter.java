@@ -9,10 +9,12 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.RequestBuilder;
 import com.poupa.vinylmusicplayer.R;
 import com.poupa.vinylmusicplayer.databinding.ItemGridBinding;
 import com.poupa.vinylmusicplayer.databinding.ItemListBinding;
 import com.poupa.vinylmusicplayer.databinding.ItemListSingleRowBinding;
+import com.poupa.vinylmusicplayer.glide.GlideRequests;
 import com.poupa.vinylmusicplayer.helper.MusicPlayerRemote;
 import com.poupa.vinylmusicplayer.interfaces.PaletteColorHolder;
 import com.poupa.vinylmusicplayer.model.Song;
@@ -90,6 +92,16 @@ public abstract class AbsOffsetSongAdapter extends SongAdapter {
         return super.getIdentifier(adjustedPosition);
     }
 
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequest(@NonNull final GlideRequests requests, final int position) {
+        // Shifting by -1, since the very first item is the OFFSET_ITEM
+        final int adjustedPosition = position - 1;
+        if (adjustedPosition < 0) {return null;}
+
+        return super.getPreloadRequest(requests, adjustedPosition);
+    }
+
     @Override
     public int getItemCount() {
         int superItemCount = super.getItemCount();
@@ -117,16 +117,22 @@ public class OrderablePlaylistSongAdapter
 
     @Override
     public void onItemDragStarted(int position) {
+        if (onMoveItemListener != null) {onMoveItemListener.onMoveStarted();}
         notifyDataSetChanged();
     }
 
     @Override
     public void onItemDragFinished(int fromPosition, int toPosition, boolean result) {
+        if (onMoveItemListener != null) {onMoveItemListener.onMoveFinished();}
         notifyDataSetChanged();
     }
 
     public interface OnMoveItemListener {
         void onMoveItem(int fromPosition, int toPosition);
+
+        // Bracket the moves of a drag gesture
+        default void onMoveStarted() {}
+        default void onMoveFinished() {}
     }
 
     public class ViewHolder extends PlaylistSongAdapter.ViewHolder {
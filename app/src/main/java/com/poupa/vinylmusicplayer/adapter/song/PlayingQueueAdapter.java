@@ -4,6 +4,8 @@ import android.graphics.Color;
 import android.graphics.Rect;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.TypedValue;
 import android.view.MenuItem;
@@ -12,7 +14,10 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 
 import com.google.android.material.snackbar.Snackbar;
 import com.h6ah4i.android.widget.advrecyclerview.draggable.DraggableItemAdapter;
@@ -36,7 +41,10 @@ import com.poupa.vinylmusicplayer.ui.activities.base.AbsThemeActivity;
 import com.poupa.vinylmusicplayer.util.PlayingSongDecorationUtil;
 import com.poupa.vinylmusicplayer.util.ViewUtil;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * @author Karim Abou Zeid (kabouzeid)
@@ -48,14 +56,25 @@ public class PlayingQueueAdapter extends SongAdapter
     private static final int CURRENT = 1;
     private static final int UP_NEXT = 2;
 
+    // Partial bind, for the items whose song is unchanged but whose distance to the current song may have changed
+    private static final Object PAYLOAD_POSITION = new Object();
+    // Beyond that many differing items, a full refresh is cheaper than the diff
+    private static final int MAX_DIFF_ITEMS = 1000;
+    private static final Executor diffExecutor = Executors.newSingleThreadExecutor();
+
     public IndexedSong songToRemove;
 
     static Snackbar currentlyShownSnackbar;
 
     private int current;
 
+    private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
+    // Discard the diffs made obsolete by a more recent data set
+    private int diffGeneration;
+
     public PlayingQueueAdapter(@NonNull final AbsThemeActivity activity, List<? extends Song> dataSet, int current, boolean usePalette, @Nullable PaletteColorHolder palette) {
-        super(activity, dataSet, R.layout.item_list, usePalette, palette);
+        // Own a copy of the queue, to diff it against the next queue
+        super(activity, new ArrayList<>(dataSet), R.layout.item_list, usePalette, palette);
         this.showAlbumImage = false; // We don't want to load it in this adapter
         this.current = current;
     }
@@ -72,26 +91,51 @@ public class PlayingQueueAdapter extends SongAdapter
         return new ViewHolder(binding);
     }
 
+    private static long getUniqueId(@NonNull final Song song) {
+        // use unique id instead of song.id+song.index to ensure every song have a unique id
+        return (song instanceof IndexedSong) ? ((IndexedSong) song).getUniqueId() : song.id;
+    }
+
     @Override
     public long getItemId(int position) {
-        return MusicPlayerRemote.getIndexedSongAt(position).getUniqueId(); // use hashCode instead of song.id+song.index to ensure every song have a unique id
+        return getUniqueId(dataSet.get(position));
     }
 
     @Override
     public void onBindViewHolder(@NonNull SongAdapter.ViewHolder holder, int position) {
         super.onBindViewHolder(holder, position);
 
-        PlayingSongDecorationUtil.decorate(this, holder, MusicPlayerRemote.getIndexedSongAt(position), activity);
-
-        if (holder.imageText != null) {
-            holder.imageText.setText(String.valueOf(position - current));
-        }
+        bindPosition(holder, position);
 
         if (holder.getItemViewType() == HISTORY) {
             setAlpha(holder);
         }
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull SongAdapter.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        boolean isPositionOnly = !payloads.isEmpty();
+        for (Object payload : payloads) {
+            isPositionOnly &= (payload == PAYLOAD_POSITION);
+        }
+
+        if (isPositionOnly) {
+            // Same song, no need to read its metadata again
+            bindShortSeparator(holder);
+            bindPosition(holder, position);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private void bindPosition(@NonNull SongAdapter.ViewHolder holder, int position) {
+        PlayingSongDecorationUtil.decorate(this, holder, dataSet.get(position), activity);
+
+        if (holder.imageText != null) {
+            holder.imageText.setText(String.valueOf(position - current));
+        }
+    }
+
     @Override
     public int getItemViewType(int position) {
         if (position < current) {
@@ -103,14 +147,38 @@ public class PlayingQueueAdapter extends SongAdapter
     }
 
     public void swapDataSet(List<? extends Song> dataSet, int position) {
-        this.dataSet = dataSet;
-        current = position;
-        notifyDataSetChanged();
+        final List<? extends Song> newDataSet = new ArrayList<>(dataSet);
+        final QueueDiff diff = QueueDiff.between(this.dataSet, newDataSet);
+        final int generation = ++diffGeneration;
+
+        if (diff == null) {
+            this.dataSet = newDataSet;
+            current = position;
+            notifyDataSetChanged();
+        } else if (diff.isEmpty()) {
+            this.dataSet = newDataSet;
+            setCurrent(position);
+        } else {
+            diffExecutor.execute(() -> {
+                diff.calculate();
+                uiThreadHandler.post(() -> {
+                    if (generation != diffGeneration) {return;}
+
+                    this.dataSet = newDataSet;
+                    current = position;
+                    diff.dispatchUpdatesTo(this);
+                    // The items after an insertion or removal are at a new distance from the current song
+                    notifyItemRangeChanged(0, newDataSet.size(), PAYLOAD_POSITION);
+                });
+            });
+        }
     }
 
     public void setCurrent(int current) {
+        if (this.current == current) {return;}
+
         this.current = current;
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_POSITION);
     }
 
     protected void setAlpha(SongAdapter.ViewHolder holder) {
@@ -153,6 +221,12 @@ public class PlayingQueueAdapter extends SongAdapter
 
     @Override
     public void onMoveItem(int fromPosition, int toPosition) {
+        // Follow the move right away, the queue change notification comes later
+        final ArrayList<Song> movedDataSet = new ArrayList<>(dataSet);
+        movedDataSet.add(toPosition, movedDataSet.remove(fromPosition));
+        dataSet = movedDataSet;
+        ++diffGeneration;
+
         MusicPlayerRemote.moveSong(fromPosition, toPosition);
     }
 
@@ -216,6 +290,96 @@ public class PlayingQueueAdapter extends SongAdapter
         }
     }
 
+    /**
+     * The changes from one queue to the next, matching the items by their unique id.
+     * Only the range between the common head and tail is diffed, since most queue modifications are local.
+     */
+    static class QueueDiff {
+        private final int offset;
+        @NonNull private final List<? extends Song> oldRange;
+        @NonNull private final List<? extends Song> newRange;
+        private DiffUtil.DiffResult result;
+
+        private QueueDiff(int offset, @NonNull final List<? extends Song> oldRange, @NonNull final List<? extends Song> newRange) {
+            this.offset = offset;
+            this.oldRange = oldRange;
+            this.newRange = newRange;
+        }
+
+        /**
+         * @return The range to diff, or null if it is too large to be worth dispatching the changes one by one
+         */
+        @Nullable
+        static QueueDiff between(@NonNull final List<? extends Song> oldList, @NonNull final List<? extends Song> newList) {
+            int head = 0;
+            final int minSize = Math.min(oldList.size(), newList.size());
+            while (head < minSize && oldList.get(head) == newList.get(head)) {++head;}
+            int tail = 0;
+            while (tail < minSize - head
+                    && oldList.get(oldList.size() - 1 - tail) == newList.get(newList.size() - 1 - tail)) {++tail;}
+
+            final List<? extends Song> oldRange = oldList.subList(head, oldList.size() - tail);
+            final List<? extends Song> newRange = newList.subList(head, newList.size() - tail);
+            if (oldRange.size() + newRange.size() > MAX_DIFF_ITEMS) {return null;}
+
+            return new QueueDiff(head, oldRange, newRange);
+        }
+
+        boolean isEmpty() {
+            return oldRange.isEmpty() && newRange.isEmpty();
+        }
+
+        @WorkerThread
+        void calculate() {
+            result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldRange.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return newRange.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                    return getUniqueId(oldRange.get(oldItemPosition)) == getUniqueId(newRange.get(newItemPosition));
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                    // A queue entry is never modified in place, a different song makes a different entry
+                    return oldRange.get(oldItemPosition) == newRange.get(newItemPosition);
+                }
+            });
+        }
+
+        void dispatchUpdatesTo(@NonNull final PlayingQueueAdapter adapter) {
+            result.dispatchUpdatesTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    adapter.notifyItemRangeInserted(offset + position, count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    adapter.notifyItemRangeRemoved(offset + position, count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    adapter.notifyItemMoved(offset + fromPosition, offset + toPosition);
+                }
+
+                @Override
+                public void onChanged(int position, int count, @Nullable Object payload) {
+                    adapter.notifyItemRangeChanged(offset + position, count, payload);
+                }
+            });
+        }
+    }
+
     public class ViewHolder extends SongAdapter.ViewHolder {
         @DraggableItemStateFlags
         private int mDragStateFlags;
@@ -12,14 +12,20 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.util.Pair;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.RequestBuilder;
 import com.kabouzeid.appthemehelper.util.ColorUtil;
 import com.kabouzeid.appthemehelper.util.MaterialValueHelper;
 import com.poupa.vinylmusicplayer.R;
 import com.poupa.vinylmusicplayer.adapter.base.AbsMultiSelectAdapter;
+import com.poupa.vinylmusicplayer.adapter.base.CoverPreloader;
 import com.poupa.vinylmusicplayer.adapter.base.MediaEntryViewHolder;
 import com.poupa.vinylmusicplayer.databinding.ItemGridBinding;
 import com.poupa.vinylmusicplayer.databinding.ItemListBinding;
 import com.poupa.vinylmusicplayer.databinding.ItemListSingleRowBinding;
+import com.poupa.vinylmusicplayer.glide.GlideRequest;
+import com.poupa.vinylmusicplayer.glide.GlideRequests;
+import com.poupa.vinylmusicplayer.glide.VinylGlideExtension;
+import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteWrapper;
 import com.poupa.vinylmusicplayer.helper.MusicPlayerRemote;
 import com.poupa.vinylmusicplayer.helper.menu.SongMenuHelper;
 import com.poupa.vinylmusicplayer.helper.menu.SongsMenuHelper;
@@ -45,7 +51,7 @@ import java.util.Map;
  */
 public class SongAdapter
         extends AbsMultiSelectAdapter<SongAdapter.ViewHolder, Song>
-        implements FastScrollRecyclerView.SectionedAdapter
+        implements FastScrollRecyclerView.SectionedAdapter, CoverPreloader.Provider
 {
 
     protected final AppCompatActivity activity;
@@ -146,13 +152,7 @@ public class SongAdapter
 
         holder.itemView.setActivated(isChecked(position));
 
-        if (holder.shortSeparator != null) {
-            if (holder.getBindingAdapterPosition() == getItemCount() - 1) {
-                holder.shortSeparator.setVisibility(View.GONE);
-            } else {
-                holder.shortSeparator.setVisibility(ThemeStyleUtil.getInstance().getShortSeparatorVisibilityState());
-            }
-        }
+        bindShortSeparator(holder);
 
         if (holder.title != null) {
             holder.title.setText(song.getTitle());
@@ -164,6 +164,36 @@ public class SongAdapter
         PlayingSongDecorationUtil.decorate(this, holder, song, activity);
     }
 
+    @NonNull
+    public static GlideRequest<BitmapPaletteWrapper> createCoverRequest(@NonNull final GlideRequests requests, @NonNull final Song song) {
+        return requests
+                .asBitmapPalette()
+                .load(VinylGlideExtension.getSongModel(song))
+                .songOptions(song);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequest(@NonNull final GlideRequests requests, final int position) {
+        if (!showAlbumImage) {return null;}
+
+        final Song song = dataSet.get(position);
+        // The playing song shows an icon instead
+        if (MusicPlayerRemote.isPlaying(song)) {return null;}
+
+        return createCoverRequest(requests, song);
+    }
+
+    protected void bindShortSeparator(@NonNull final ViewHolder holder) {
+        if (holder.shortSeparator != null) {
+            if (holder.getBindingAdapterPosition() == getItemCount() - 1) {
+                holder.shortSeparator.setVisibility(View.GONE);
+            } else {
+                holder.shortSeparator.setVisibility(ThemeStyleUtil.getInstance().getShortSeparatorVisibilityState());
+            }
+        }
+    }
+
     public void setColors(int color, ViewHolder holder) {
         if (holder.paletteColorContainer != null) {
             holder.paletteColorContainer.setBackgroundColor(color);
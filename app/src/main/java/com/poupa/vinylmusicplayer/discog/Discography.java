@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -51,6 +52,17 @@ public class Discography implements MusicServiceEventListener {
     private final Map<AbsMusicServiceActivity, Handler> attachedActivitiesAndQueue = new HashMap<>();
     private static final String TASK_QUEUE_COALESCENCE_TOKEN = "Discography.triggerSyncWithMediaStore";
     private final Collection<Runnable> changedListeners = new LinkedList<>();
+    private final Collection<SongsChangedListener> songsChangedListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Per-song library changes, notified synchronously from the thread modifying the discography.
+     * The listener must not call back into the discography, it is locked at that time.
+     */
+    public interface SongsChangedListener {
+        void onSongAdded(@NonNull Song song);
+        void onSongsRemoved(@NonNull Collection<Long> songIds);
+        void onSongsCleared();
+    }
 
     // TODO This is not a singleton and should not be declared as such
     @NonNull
@@ -134,28 +146,41 @@ public class Discography implements MusicServiceEventListener {
         }
     }
 
+    /**
+     * Resolve a batch of song ids in one go, without copying the whole library.
+     *
+     * @param orphanIds If not null, receives the ids not matching any song.
+     *                  Left empty while the discog is being reset, since the songs are not all back yet.
+     * @return The matching songs, in the order of the ids
+     */
     @NonNull
-    public ArrayList<Song> getSongsFromIdsAndCleanupOrphans(@NonNull ArrayList<Long> songIds, @Nullable Consumer<ArrayList<Long>> orphanIdsCleaner) {
-        ArrayList<Long> orphanSongIds = new ArrayList<>();
-        ArrayList<Song> songs = new ArrayList<>();
+    public ArrayList<Song> getSongsFromIds(@NonNull Collection<Long> songIds, @Nullable Collection<Long> orphanIds) {
+        ArrayList<Song> songs = new ArrayList<>(songIds.size());
 
         synchronized (cache) {
+            // In the case where the Discog is being reset situation, the operation takes time,
+            // and while the cache is being filled up,
+            // correct and existing songs may be considered as orphan
+            // --> incorrectly cleaned from the auxiliary DBs (history, queue, playlists, etc)
+            final boolean reportOrphans = (orphanIds != null) && (cache.consistencyState != MemCache.ConsistencyState.RESETTING);
             for (Long id : songIds) {
                 Song song = cache.songsById.get(id);
                 if (song != null) {
                     songs.add(song);
-                } else if (orphanIdsCleaner != null) {
-                    orphanSongIds.add(id);
+                } else if (reportOrphans) {
+                    orphanIds.add(id);
                 }
             }
         }
+        return songs;
+    }
+
+    @NonNull
+    public ArrayList<Song> getSongsFromIdsAndCleanupOrphans(@NonNull Collection<Long> songIds, @Nullable Consumer<ArrayList<Long>> orphanIdsCleaner) {
+        ArrayList<Long> orphanSongIds = new ArrayList<>();
+        ArrayList<Song> songs = getSongsFromIds(songIds, (orphanIdsCleaner != null) ? orphanSongIds : null);
 
-        MemCache.ConsistencyState cacheState = getCacheState();
-        // In the case where the Discog is being reset situation, the operation takes time,
-        // and while the cache is being filled up,
-        // correct and existing songs may be considered as orphan
-        // --> incorrectly cleaned from the auxiliary DBs (history, queue, etc)
-        if ((orphanIdsCleaner != null) && (cacheState != MemCache.ConsistencyState.RESETTING)) {
+        if ((orphanIdsCleaner != null) && !orphanSongIds.isEmpty()) {
             orphanIdsCleaner.accept(orphanSongIds);
         }
         return songs;
@@ -164,16 +189,32 @@ public class Discography implements MusicServiceEventListener {
     @NonNull
     public Song getSongByPath(@NonNull final String path) {
         synchronized (cache) {
-            Song matchingSong = Song.EMPTY_SONG;
+            Song song = cache.songsByPath.get(path);
+            return song == null ? Song.EMPTY_SONG : song;
+        }
+    }
+
+    /**
+     * Resolve a batch of file paths in one go
+     *
+     * @param unmatchedPaths If not null, receives the paths not matching any song
+     * @return The matching songs, in the order of the paths
+     */
+    @NonNull
+    public ArrayList<Song> getSongsFromPaths(@NonNull Collection<String> paths, @Nullable Collection<String> unmatchedPaths) {
+        ArrayList<Song> songs = new ArrayList<>(paths.size());
 
-            for (Song song : cache.songsById.values()) {
-                if (song.data.equals(path)) {
-                    matchingSong = song;
-                    break;
+        synchronized (cache) {
+            for (String path : paths) {
+                Song song = cache.songsByPath.get(path);
+                if (song != null) {
+                    songs.add(song);
+                } else if (unmatchedPaths != null) {
+                    unmatchedPaths.add(path);
                 }
             }
-            return matchingSong;
         }
+        return songs;
     }
 
     @NonNull
@@ -234,6 +275,26 @@ public class Discography implements MusicServiceEventListener {
         }
     }
 
+    /**
+     * Cheap album version, without building the full album
+     *
+     * @return The latest modification date among the songs of the album, -1 if the album is unknown
+     */
+    public long getAlbumDateModified(long albumId) {
+        synchronized (cache) {
+            Map<Long, MemCache.AlbumSlice> albumsByArtist = cache.albumsByAlbumIdAndArtistId.get(albumId);
+            if (albumsByArtist == null) return -1;
+
+            long dateModified = -1;
+            for (Album fragment : albumsByArtist.values()) {
+                for (Song song : fragment.songs) {
+                    dateModified = Math.max(dateModified, song.dateModified);
+                }
+            }
+            return dateModified;
+        }
+    }
+
     @NonNull
     public ArrayList<Album> getAllAlbums(@NonNull Comparator<? super Album> sortOrder) {
         synchronized (cache) {
@@ -343,6 +404,7 @@ public class Discography implements MusicServiceEventListener {
                 database.addSong(song);
             }
 
+            for (SongsChangedListener listener : songsChangedListeners) {listener.onSongAdded(song);}
             notifyDiscographyChanged();
         }
     }
@@ -454,6 +516,14 @@ public class Discography implements MusicServiceEventListener {
         changedListeners.remove(listener);
     }
 
+    public void addSongsChangedListener(@NonNull SongsChangedListener listener) {
+        songsChangedListeners.add(listener);
+    }
+
+    public void removeSongsChangedListener(@NonNull SongsChangedListener listener) {
+        songsChangedListeners.remove(listener);
+    }
+
     private void notifyDiscographyChanged() {
         // Notify the attached activiies to reload the UI content
         // Since this can be called from a background thread, make it safe by wrapping as an event to main thread
@@ -471,12 +541,8 @@ public class Discography implements MusicServiceEventListener {
         synchronized (cache) {
             ArrayList<Long> matchingSongIds = new ArrayList<>();
             for (String path : paths) {
-                for (Song song : cache.songsById.values()) {
-                    if (song.data.equals(path)) {
-                        matchingSongIds.add(song.id);
-                        break;
-                    }
-                }
+                Song song = cache.songsByPath.get(path);
+                if (song != null) {matchingSongIds.add(song.id);}
             }
             removeSongsById(matchingSongIds);
         }
@@ -493,12 +559,14 @@ public class Discography implements MusicServiceEventListener {
             cache.removeSongById(songId);
             database.removeSongById(songId);
         }
+        for (SongsChangedListener listener : songsChangedListeners) {listener.onSongsRemoved(songIds);}
         notifyDiscographyChanged();
     }
 
     void clear() {
         database.clear();
         cache.clear();
+        for (SongsChangedListener listener : songsChangedListeners) {listener.onSongsCleared();}
     }
 
     private void fetchAllSongs() {
@@ -38,6 +38,7 @@ class MemCache {
     ConsistencyState consistencyState = ConsistencyState.UNINITIALIZED;
 
     final Map<Long, Song> songsById = new HashMap<>();
+    final Map<String, Song> songsByPath = new HashMap<>();
 
     final Map<String, Artist> artistsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
     final Map<Long, Artist> artistsById = new HashMap<>();
@@ -70,7 +71,9 @@ class MemCache {
             }
         }
 
-        songsById.put(song.id, song);
+        final Song previous = songsById.put(song.id, song);
+        if (previous != null && songsByPath.get(previous.data) == previous) {songsByPath.remove(previous.data);}
+        songsByPath.put(song.data, song);
 
         // Only sort albums after the song has been added
         for (Long artistId : albums.keySet()) {
@@ -140,11 +143,13 @@ class MemCache {
 
             // ---- Remove the song from the memory cache
             songsById.remove(songId);
+            if (songsByPath.get(song.data) == song) {songsByPath.remove(song.data);}
         }
     }
 
     synchronized void clear() {
         songsById.clear();
+        songsByPath.clear();
 
         artistsByName.clear();
         artistsById.clear();
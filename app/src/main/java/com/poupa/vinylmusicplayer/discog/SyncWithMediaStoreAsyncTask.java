@@ -9,6 +9,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.poupa.vinylmusicplayer.R;
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverThumbnailStore;
 import com.poupa.vinylmusicplayer.ui.activities.base.AbsMusicServiceActivity;
 import com.poupa.vinylmusicplayer.util.MusicUtil;
 
@@ -89,6 +90,7 @@ class SyncWithMediaStoreAsyncTask extends AsyncTask<Void, SyncWithMediaStoreAsyn
 
     private void onTermination(@Nullable final Progress value) {
         discography.setCacheState(MemCache.ConsistencyState.OK);
+        CoverThumbnailStore.getInstance().scheduleGeneration();
         if (isUIFeedbackNeeded()) {
             if (value == null || value.isEmpty()) {
                 snackbar.dismiss();
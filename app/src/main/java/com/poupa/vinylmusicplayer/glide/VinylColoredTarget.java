@@ -5,17 +5,41 @@ import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.palette.graphics.Palette;
 
 import com.bumptech.glide.request.transition.Transition;
 import com.kabouzeid.appthemehelper.util.ATHUtil;
 import com.poupa.vinylmusicplayer.R;
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverKey;
 import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteTarget;
 import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteWrapper;
+import com.poupa.vinylmusicplayer.provider.CoverPaletteStore;
 import com.poupa.vinylmusicplayer.util.VinylMusicPlayerColorUtil;
 
 public abstract class VinylColoredTarget extends BitmapPaletteTarget {
+    @Nullable private final CoverKey coverKey;
+
     public VinylColoredTarget(ImageView view) {
+        this(view, null);
+    }
+
+    /**
+     * @param coverKey If set, the known palette of the cover is applied right away, before the cover is loaded
+     */
+    public VinylColoredTarget(ImageView view, @Nullable CoverKey coverKey) {
         super(view);
+        this.coverKey = coverKey;
+    }
+
+    @Override
+    public void onLoadStarted(@Nullable Drawable placeholder) {
+        super.onLoadStarted(placeholder);
+        if (coverKey != null) {
+            final Palette palette = CoverPaletteStore.getInstance(getView().getContext()).peek(coverKey);
+            if (palette != null) {
+                onColorReady(VinylMusicPlayerColorUtil.getColor(palette, getDefaultFooterColor()));
+            }
+        }
     }
 
     @Override
@@ -12,11 +12,12 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.request.BaseRequestOptions;
 import com.bumptech.glide.request.target.Target;
-import com.bumptech.glide.signature.MediaStoreSignature;
 import com.poupa.vinylmusicplayer.App;
 import com.poupa.vinylmusicplayer.R;
 import com.poupa.vinylmusicplayer.glide.artistimage.ArtistImage;
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverKey;
 import com.poupa.vinylmusicplayer.glide.audiocover.SongCover;
+import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteTranscoder;
 import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteWrapper;
 import com.poupa.vinylmusicplayer.model.Artist;
 import com.poupa.vinylmusicplayer.model.Song;
@@ -53,11 +54,15 @@ public final class VinylGlideExtension {
     @GlideOption
     @NonNull
     public static BaseRequestOptions<?> songOptions(@NonNull BaseRequestOptions<?> requestOptions, Song song) {
+        final CoverKey coverKey = CoverKey.of(song);
         return requestOptions
-                .diskCacheStrategy(DiskCacheStrategy.NONE)
+                // Keep the decoded cover once per album and size, instead of extracting it again for each song
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
                 .error(R.drawable.default_album_art)
                 .placeholder(R.drawable.default_album_art)
-                .signature(createSignature(song));
+                .signature(coverKey)
+                // Compute the palette once per cover, not for each decoded size
+                .set(BitmapPaletteTranscoder.COVER_KEY, coverKey);
     }
 
     public static Key createSignature(Artist artist) {
@@ -65,7 +70,8 @@ public final class VinylGlideExtension {
     }
 
     public static Key createSignature(Song song) {
-        return new MediaStoreSignature("", song.dateModified, 0);
+        // Album level, so that all the songs of an album share the same cache entries
+        return CoverKey.of(song);
     }
 
     public static Object getArtistModel(Artist artist) {
@@ -15,7 +15,9 @@ import com.poupa.vinylmusicplayer.glide.artistimage.ArtistImage;
 import com.poupa.vinylmusicplayer.glide.artistimage.ArtistImageLoader;
 import com.poupa.vinylmusicplayer.glide.audiocover.FileCover;
 import com.poupa.vinylmusicplayer.glide.audiocover.FileCoverLoader;
+import com.poupa.vinylmusicplayer.glide.audiocover.MediaStoreCoverLoader;
 import com.poupa.vinylmusicplayer.glide.audiocover.SongCover;
+import com.poupa.vinylmusicplayer.glide.audiocover.SongCoverFetcher;
 import com.poupa.vinylmusicplayer.glide.audiocover.SongCoverLoader;
 import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteTranscoder;
 import com.poupa.vinylmusicplayer.glide.palette.BitmapPaletteWrapper;
@@ -32,7 +34,10 @@ public class VinylGlideModule extends AppGlideModule {
     public void registerComponents(@NonNull Context context, @NonNull Glide glide,
                                    @NonNull Registry registry) {
         registry.append(FileCover.class, InputStream.class, new FileCoverLoader.Factory());
-        registry.append(SongCover.class, InputStream.class, new SongCoverLoader.Factory());
+        // The song cover sources, tried in order until one succeeds
+        registry.append(SongCover.class, InputStream.class, new SongCoverLoader.Factory(SongCoverFetcher.Sources.EMBEDDED));
+        registry.append(SongCover.class, Bitmap.class, new MediaStoreCoverLoader.Factory());
+        registry.append(SongCover.class, InputStream.class, new SongCoverLoader.Factory(SongCoverFetcher.Sources.EXTERNAL));
         registry.append(ArtistImage.class, InputStream.class, new ArtistImageLoader.Factory(context));
         registry.register(Bitmap.class, BitmapPaletteWrapper.class, new BitmapPaletteTranscoder());
     }
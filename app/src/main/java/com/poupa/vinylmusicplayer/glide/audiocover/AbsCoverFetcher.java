@@ -1,15 +1,12 @@
 package com.poupa.vinylmusicplayer.glide.audiocover;
 
-import android.content.ContentUris;
 import android.content.Context;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.Point;
-import android.net.Uri;
 import android.os.Build;
 import android.provider.BaseColumns;
 import android.provider.MediaStore;
-import android.util.Size;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -56,6 +53,12 @@ public abstract class AbsCoverFetcher implements DataFetcher<InputStream> {
         return DataSource.LOCAL;
     }
 
+    @Nullable
+    InputStream loadCoverFromThumbnailStore(@NonNull final CoverKey key, @NonNull final CoverThumbnailStore.Size size) {
+        stream = CoverThumbnailStore.getInstance().open(key, size);
+        return stream;
+    }
+
     @Nullable
     InputStream loadCoverFromAudioTags(@NonNull final Song song) {
         try (final AutoCloseAudioFile audio = SAFUtil.loadReadOnlyAudioFile(App.getStaticContext(), song)) {
@@ -122,16 +125,12 @@ public abstract class AbsCoverFetcher implements DataFetcher<InputStream> {
     @RequiresApi(Build.VERSION_CODES.Q)
     @Nullable
     private static InputStream loadCoverFromMediaStoreApi29(final long albumId) throws IOException {
-        try {
-            final Uri uri = ContentUris.withAppendedId(MediaStore.Audio.Albums.EXTERNAL_CONTENT_URI, albumId);
-            final Context context = App.getStaticContext();
-            final Point screenSize = Util.getScreenSize(context);
-            final int coverSize = Math.min(screenSize.x, screenSize.y);
-            final Bitmap cover = context.getContentResolver().loadThumbnail(uri, new Size(coverSize, coverSize), null);
-
-            return bitmap2InputStream(cover);
-        } catch (final FileNotFoundException ignored) {}
-        return null;
+        final Point screenSize = Util.getScreenSize(App.getStaticContext());
+        final int coverSize = Math.min(screenSize.x, screenSize.y);
+        final Bitmap cover = MediaStoreCoverFetcher.loadThumbnail(albumId, coverSize, coverSize, null);
+        if (cover == null) {return null;}
+
+        return bitmap2InputStream(cover);
     }
 
     @Nullable
@@ -166,25 +165,20 @@ public abstract class AbsCoverFetcher implements DataFetcher<InputStream> {
         return new ByteArrayInputStream(ostream.toByteArray());
     }
 
-    private static final String[] FOLDER_IMAGE_FALLBACKS = {
-            "cover.jpg", "album.jpg", "folder.jpg",
-            "cover.jpeg", "album.jpeg", "folder.jpeg",
-            "cover.png", "album.png", "folder.png"
-    };
-
     @Nullable
     InputStream loadCoverFromFolderImage(@NonNull final File file) {
         // Look for album art in external files
+        final File parent = file.getParentFile();
+        final File cover = FolderCoverCache.getCover(parent);
+        if (cover == null) {return null;}
+
         try {
-            final File parent = file.getParentFile();
-            for (final String fallback : FOLDER_IMAGE_FALLBACKS) {
-                final File cover = new File(parent, fallback);
-                if (cover.exists()) {
-                    stream = new FileInputStream(cover);
-                    return stream;
-                }
-            }
-        } catch (final FileNotFoundException ignored) {}
+            stream = new FileInputStream(cover);
+            return stream;
+        } catch (final FileNotFoundException ignored) {
+            // Removed since the directory was listed
+            FolderCoverCache.invalidate(parent);
+        }
         return null;
     }
 
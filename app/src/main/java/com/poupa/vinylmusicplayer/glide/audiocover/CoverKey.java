@@ -0,0 +1,82 @@
+package com.poupa.vinylmusicplayer.glide.audiocover;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Key;
+import com.poupa.vinylmusicplayer.discog.Discography;
+import com.poupa.vinylmusicplayer.model.Song;
+
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * Identity of a cover art, shared by all the songs of an album.
+ *
+ * The cover is resolved once per album, and cached under this key.
+ * The version is the latest modification date among the album songs,
+ * so that a tag change on any of them (i.e. new embedded artwork) invalidates the album cover.
+ *
+ * Songs unknown to the discography fall back to a per-file key.
+ */
+public final class CoverKey implements Key {
+    private static final long NO_ALBUM = -1;
+
+    public final long albumId;
+    // Only set when not keyed by album
+    @Nullable public final String path;
+    public final long version;
+
+    private CoverKey(final long albumId, @Nullable final String path, final long version) {
+        this.albumId = albumId;
+        this.path = path;
+        this.version = version;
+    }
+
+    @NonNull
+    public static CoverKey of(@NonNull final Song song) {
+        if (song.albumId != NO_ALBUM) {
+            final long albumDateModified = Discography.getInstance().getAlbumDateModified(song.albumId);
+            if (albumDateModified >= 0) {
+                return new CoverKey(song.albumId, null, albumDateModified);
+            }
+        }
+        return new CoverKey(NO_ALBUM, song.data, song.dateModified);
+    }
+
+    public boolean isAlbumKey() {
+        return path == null;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull final MessageDigest messageDigest) {
+        messageDigest.update(toString().getBytes(CHARSET));
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object object) {
+        if (this == object) return true;
+        if (!(object instanceof CoverKey)) return false;
+
+        final CoverKey other = (CoverKey) object;
+        return albumId == other.albumId
+                && version == other.version
+                && Objects.equals(path, other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (albumId ^ (albumId >>> 32));
+        result = 31 * result + (path != null ? path.hashCode() : 0);
+        result = 31 * result + (int) (version ^ (version >>> 32));
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return isAlbumKey()
+                ? "CoverKey{album=" + albumId + ", version=" + version + "}"
+                : "CoverKey{path=" + path + ", version=" + version + "}";
+    }
+}
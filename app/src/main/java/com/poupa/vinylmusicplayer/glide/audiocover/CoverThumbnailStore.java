@@ -0,0 +1,406 @@
+package com.poupa.vinylmusicplayer.glide.audiocover;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.poupa.vinylmusicplayer.App;
+import com.poupa.vinylmusicplayer.loader.AlbumLoader;
+import com.poupa.vinylmusicplayer.model.Album;
+import com.poupa.vinylmusicplayer.model.Song;
+import com.poupa.vinylmusicplayer.util.OopsHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent store of the album cover thumbnails, as WebP files at a few fixed sizes.
+ *
+ * Filled in background after each library sync, so that the album covers can be displayed
+ * without reading the audio files. The store is bounded in size, the least recently used files
+ * being evicted first: the access order persists across restarts through the file modification dates.
+ * A pass only evicts the files not accessed since the previous pass started, and stops once none is left,
+ * so that the passes never evict each other's thumbnails in turn.
+ * The thumbnails of the albums no longer in the library are dropped by the next pass.
+ *
+ * Only the album keys are stored, see {@link CoverKey}.
+ */
+public final class CoverThumbnailStore {
+    public enum Size {
+        SMALL(256),
+        LARGE(768);
+
+        public final int pixels;
+
+        Size(final int pixels) {
+            this.pixels = pixels;
+        }
+
+        /**
+         * @return The smallest thumbnail size covering the target, null if none is large enough
+         */
+        @Nullable
+        public static Size fitting(final int width, final int height) {
+            // Including Target.SIZE_ORIGINAL
+            if (width <= 0 || height <= 0) {return null;}
+
+            final int target = Math.max(width, height);
+            for (final Size size : values()) {
+                if (size.pixels >= target) {return size;}
+            }
+            return null;
+        }
+    }
+
+    private static final String DIRECTORY = "cover_thumbnails";
+    private static final String THUMBNAIL_EXTENSION = ".webp";
+    // Marker for the albums without cover, to not retry them on each pass
+    private static final String NO_COVER_EXTENSION = ".none";
+    private static final String TEMP_EXTENSION = ".tmp";
+    // Touched by each pass, its modification date is the start of the previous pass
+    private static final String PASS_MARKER = ".pass";
+    private static final long MAX_BYTES = 50L * 1024 * 1024;
+    // Once full, evict down to that size, not to evict again for each new album
+    private static final long EVICTED_BYTES = MAX_BYTES * 9 / 10;
+    private static final int QUALITY = 85;
+
+    @Nullable
+    private static CoverThumbnailStore sInstance = null;
+
+    private static final class Entry {
+        final long length;
+        long lastAccess;
+
+        Entry(final long length, final long lastAccess) {
+            this.length = length;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final File directory;
+    // File name -> entry
+    @Nullable private HashMap<String, Entry> index = null;
+    private long totalBytes = 0;
+    // The files accessed before are evictable by the running pass
+    private long previousPassStart = 0;
+
+    private final ExecutorService generationExecutor = Executors.newSingleThreadExecutor();
+    // Incremented by each new pass, to abandon the previous one
+    private volatile int generationPass = 0;
+
+    @NonNull
+    public static synchronized CoverThumbnailStore getInstance() {
+        if (sInstance == null) {
+            sInstance = new CoverThumbnailStore(new File(App.getStaticContext().getCacheDir(), DIRECTORY));
+        }
+        return sInstance;
+    }
+
+    private CoverThumbnailStore(@NonNull final File directory) {
+        this.directory = directory;
+    }
+
+    @NonNull
+    private static String getPrefix(@NonNull final CoverKey key) {
+        return key.albumId + "_" + key.version;
+    }
+
+    @NonNull
+    private static String getThumbnailName(@NonNull final CoverKey key, @NonNull final Size size) {
+        return getPrefix(key) + "_" + size.pixels + THUMBNAIL_EXTENSION;
+    }
+
+    @NonNull
+    private static String getNoCoverName(@NonNull final CoverKey key) {
+        return getPrefix(key) + NO_COVER_EXTENSION;
+    }
+
+    @NonNull
+    private HashMap<String, Entry> getIndex() {
+        if (index == null) {
+            index = new HashMap<>();
+            totalBytes = 0;
+
+            //noinspection ResultOfMethodCallIgnored
+            directory.mkdirs();
+            final File[] files = directory.listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    if (file.getName().endsWith(TEMP_EXTENSION)) {
+                        //noinspection ResultOfMethodCallIgnored
+                        file.delete();
+                        continue;
+                    }
+                    if (file.getName().equals(PASS_MARKER)) {continue;}
+                    index.put(file.getName(), new Entry(file.length(), file.lastModified()));
+                    totalBytes += file.length();
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return The thumbnail data, null if not available
+     */
+    @Nullable
+    public synchronized InputStream open(@NonNull final CoverKey key, @NonNull final Size size) {
+        if (!key.isAlbumKey()) {return null;}
+
+        final String name = getThumbnailName(key, size);
+        final Entry entry = getIndex().get(name);
+        if (entry == null) {return null;}
+
+        try {
+            final File file = new File(directory, name);
+            final InputStream input = new FileInputStream(file);
+
+            // Record the access, for the eviction order
+            entry.lastAccess = System.currentTimeMillis();
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(entry.lastAccess);
+            return input;
+        } catch (final FileNotFoundException e) {
+            // Removed behind our back
+            forget(name);
+            return null;
+        }
+    }
+
+    /**
+     * @return True if the album is known to have no cover, at the version of its songs
+     */
+    public synchronized boolean hasNoCover(@NonNull final CoverKey key) {
+        return key.isAlbumKey() && getIndex().containsKey(getNoCoverName(key));
+    }
+
+    private synchronized boolean isKnown(@NonNull final CoverKey key) {
+        final Map<String, Entry> entries = getIndex();
+        if (entries.containsKey(getNoCoverName(key))) {return true;}
+        for (final Size size : Size.values()) {
+            if (!entries.containsKey(getThumbnailName(key, size))) {return false;}
+        }
+        return true;
+    }
+
+    private synchronized void add(@NonNull final CoverKey key, @NonNull final String name, @NonNull final File file) {
+        final Map<String, Entry> entries = getIndex();
+
+        // Drop the other versions of this album
+        final String albumPrefix = key.albumId + "_";
+        final String versionPrefix = getPrefix(key) + (name.endsWith(NO_COVER_EXTENSION) ? "." : "_");
+        final ArrayList<String> outdated = new ArrayList<>();
+        for (final String entry : entries.keySet()) {
+            if (entry.startsWith(albumPrefix) && !entry.startsWith(versionPrefix)) {outdated.add(entry);}
+        }
+        for (final String entry : outdated) {
+            forget(entry);
+        }
+
+        final Entry previous = entries.put(name, new Entry(file.length(), file.lastModified()));
+        if (previous != null) {totalBytes -= previous.length;}
+        totalBytes += file.length();
+    }
+
+    // Record the start of a pass, keeping the start of the previous one
+    private synchronized void startPass() {
+        getIndex();
+        final File marker = new File(directory, PASS_MARKER);
+        previousPassStart = marker.lastModified();
+        try {
+            if (!marker.createNewFile()) {
+                //noinspection ResultOfMethodCallIgnored
+                marker.setLastModified(System.currentTimeMillis());
+            }
+        } catch (final IOException e) {
+            OopsHandler.collectStackTrace(e);
+        }
+    }
+
+    /**
+     * Make room for a new album if the store is full, evicting the least recently used files
+     * among the ones not accessed since the previous pass started
+     *
+     * @return False if the store is still full
+     */
+    private synchronized boolean makeRoom() {
+        if (totalBytes < MAX_BYTES) {return true;}
+
+        final ArrayList<Map.Entry<String, Entry>> evictable = new ArrayList<>();
+        for (final Map.Entry<String, Entry> entry : getIndex().entrySet()) {
+            // Not the markers, that free nothing
+            final Entry value = entry.getValue();
+            if (value.length > 0 && value.lastAccess < previousPassStart) {evictable.add(entry);}
+        }
+        evictable.sort((e1, e2) -> Long.compare(e1.getValue().lastAccess, e2.getValue().lastAccess));
+
+        final ArrayList<String> evicted = new ArrayList<>();
+        long remainingBytes = totalBytes;
+        for (final Map.Entry<String, Entry> entry : evictable) {
+            if (remainingBytes < EVICTED_BYTES) {break;}
+            evicted.add(entry.getKey());
+            remainingBytes -= entry.getValue().length;
+        }
+        for (final String name : evicted) {
+            forget(name);
+        }
+        return totalBytes < MAX_BYTES;
+    }
+
+    // Drop the thumbnails of the albums removed from the library
+    private synchronized void retainAlbums(@NonNull final HashSet<String> albumPrefixes) {
+        final ArrayList<String> removed = new ArrayList<>();
+        for (final String entry : getIndex().keySet()) {
+            if (!albumPrefixes.contains(entry.substring(0, entry.indexOf('_') + 1))) {removed.add(entry);}
+        }
+        for (final String entry : removed) {
+            forget(entry);
+        }
+    }
+
+    private void forget(@NonNull final String name) {
+        final Entry entry = getIndex().remove(name);
+        if (entry != null) {totalBytes -= entry.length;}
+        //noinspection ResultOfMethodCallIgnored
+        new File(directory, name).delete();
+    }
+
+    /**
+     * Generate the missing thumbnails of the library albums, in background and at low priority.
+     * Abandons the pass already running, if any. Stops once the store is full of recently used thumbnails.
+     */
+    public void scheduleGeneration() {
+        final int pass = ++generationPass;
+        generationExecutor.execute(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+            try {
+                startPass();
+                final ArrayList<Album> albums = AlbumLoader.getAllAlbums();
+                final HashSet<String> albumPrefixes = new HashSet<>();
+                for (final Album album : albums) {
+                    albumPrefixes.add(album.getId() + "_");
+                }
+                retainAlbums(albumPrefixes);
+
+                for (final Album album : albums) {
+                    if (pass != generationPass || !makeRoom()) {return;}
+                    generate(album.safeGetFirstSong());
+                }
+            } catch (final RuntimeException e) {
+                OopsHandler.collectStackTrace(e);
+            }
+        });
+    }
+
+    @WorkerThread
+    private void generate(@NonNull final Song song) {
+        if (song.id == Song.EMPTY_SONG.id) {return;}
+
+        final CoverKey key = CoverKey.of(song);
+        if (!key.isAlbumKey() || isKnown(key)) {return;}
+
+        final Bitmap cover = decode(song);
+        if (cover == null) {
+            write(key, getNoCoverName(key), null);
+            return;
+        }
+
+        for (final Size size : Size.values()) {
+            final float scale = Math.min(1.0f, (float) size.pixels / Math.max(cover.getWidth(), cover.getHeight()));
+            final Bitmap thumbnail = (scale < 1.0f)
+                    ? Bitmap.createScaledBitmap(cover,
+                        Math.max(1, Math.round(cover.getWidth() * scale)),
+                        Math.max(1, Math.round(cover.getHeight() * scale)),
+                        true)
+                    : cover;
+            write(key, getThumbnailName(key, size), thumbnail);
+            if (thumbnail != cover) {thumbnail.recycle();}
+        }
+        cover.recycle();
+    }
+
+    @Nullable
+    private static Bitmap decode(@NonNull final Song song) {
+        final SongCoverFetcher fetcher = new SongCoverFetcher(new SongCover(song));
+        try {
+            final InputStream input = fetcher.loadData();
+            if (input == null) {return null;}
+            final byte[] data = readFully(input);
+
+            // Decode no larger than needed for the largest thumbnail
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {return null;}
+
+            final int largest = Size.values()[Size.values().length - 1].pixels;
+            int sampleSize = 1;
+            while (Math.min(options.outWidth, options.outHeight) / (sampleSize * 2) >= largest) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (final IOException e) {
+            OopsHandler.collectStackTrace(e);
+            return null;
+        } finally {
+            fetcher.cleanup();
+        }
+    }
+
+    @NonNull
+    private static byte[] readFully(@NonNull final InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[16 * 1024];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            output.write(buffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+
+    private void write(@NonNull final CoverKey key, @NonNull final String name, @Nullable final Bitmap thumbnail) {
+        // Write aside then rename, so that a partial file is never served
+        final File temp = new File(directory, name + TEMP_EXTENSION);
+        final File file = new File(directory, name);
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            directory.mkdirs();
+            try (final OutputStream output = new FileOutputStream(temp)) {
+                if (thumbnail != null) {
+                    @SuppressWarnings("deprecation")
+                    final Bitmap.CompressFormat format = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R)
+                            ? Bitmap.CompressFormat.WEBP_LOSSY
+                            : Bitmap.CompressFormat.WEBP;
+                    thumbnail.compress(format, QUALITY, output);
+                }
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot rename " + temp);
+            }
+            add(key, name, file);
+        } catch (final IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            OopsHandler.collectStackTrace(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.poupa.vinylmusicplayer.glide.audiocover;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolve the cover image file of a directory (i.e. cover.jpg), shared by all the tracks inside.
+ *
+ * Each directory is listed once, the result (including the absence of cover) is kept
+ * until the directory modification date changes. The image names are case insensitive.
+ */
+public final class FolderCoverCache {
+    // By order of preference
+    private static final String[] FOLDER_IMAGE_FALLBACKS = {
+            "cover.jpg", "album.jpg", "folder.jpg",
+            "cover.jpeg", "album.jpeg", "folder.jpeg",
+            "cover.png", "album.png", "folder.png"
+    };
+    private static final int MAX_ENTRIES = 256;
+
+    private static final class Entry {
+        final long lastModified;
+        @Nullable final File cover;
+
+        Entry(final long lastModified, @Nullable final File cover) {
+            this.lastModified = lastModified;
+            this.cover = cover;
+        }
+    }
+
+    // Directory path -> cover, least recently used first
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private FolderCoverCache() {}
+
+    /**
+     * @return The cover image of the directory, null if there is none
+     */
+    @Nullable
+    public static File getCover(@Nullable final File directory) {
+        if (directory == null) {return null;}
+
+        final String path = directory.getPath();
+        final long lastModified = directory.lastModified();
+        synchronized (entries) {
+            final Entry entry = entries.get(path);
+            if (entry != null && entry.lastModified == lastModified) {return entry.cover;}
+        }
+
+        // List outside of the lock, the worst case is a redundant listing
+        final File cover = findCover(directory);
+        synchronized (entries) {
+            entries.put(path, new Entry(lastModified, cover));
+        }
+        return cover;
+    }
+
+    @Nullable
+    private static File findCover(@NonNull final File directory) {
+        final String[] names = directory.list();
+        if (names == null) {return null;}
+
+        final HashMap<String, String> candidates = new HashMap<>();
+        for (final String name : names) {
+            final String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            for (final String fallback : FOLDER_IMAGE_FALLBACKS) {
+                if (fallback.equals(lowerCaseName)) {
+                    candidates.put(lowerCaseName, name);
+                    break;
+                }
+            }
+        }
+        if (candidates.isEmpty()) {return null;}
+
+        for (final String fallback : FOLDER_IMAGE_FALLBACKS) {
+            final String name = candidates.get(fallback);
+            if (name != null) {return new File(directory, name);}
+        }
+        return null;
+    }
+
+    /**
+     * Forget the cover of the directory, to be called when its resolved cover cannot be opened
+     */
+    public static void invalidate(@Nullable final File directory) {
+        if (directory == null) {return;}
+        synchronized (entries) {
+            entries.remove(directory.getPath());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.poupa.vinylmusicplayer.glide.audiocover;
+
+import android.content.ContentUris;
+import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.poupa.vinylmusicplayer.App;
+import com.poupa.vinylmusicplayer.util.OopsHandler;
+import com.poupa.vinylmusicplayer.util.Util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Fetch the MediaStore album thumbnail as a bitmap, at the size of the target.
+ * No intermediate encoding, Glide uses the bitmap as is.
+ */
+@RequiresApi(Build.VERSION_CODES.Q)
+public class MediaStoreCoverFetcher implements DataFetcher<Bitmap> {
+    private final SongCover model;
+    private final int width;
+    private final int height;
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    MediaStoreCoverFetcher(@NonNull final SongCover model, final int width, final int height) {
+        this.model = model;
+
+        if (width > 0 && height > 0) {
+            this.width = width;
+            this.height = height;
+        } else {
+            // Target.SIZE_ORIGINAL, stay within the screen
+            final Point screenSize = Util.getScreenSize(App.getStaticContext());
+            this.width = this.height = Math.min(screenSize.x, screenSize.y);
+        }
+    }
+
+    @Override
+    public void loadData(@NonNull final Priority priority, @NonNull final DataCallback<? super Bitmap> callback) {
+        try {
+            final Bitmap cover = loadThumbnail(model.song.albumId, width, height, cancellationSignal);
+            if (cover == null) {
+                callback.onLoadFailed(new IOException("No MediaStore cover for song"));
+            } else {
+                callback.onDataReady(cover);
+            }
+        } catch (final Exception e) {
+            OopsHandler.collectStackTrace(e);
+            callback.onLoadFailed(e);
+        }
+    }
+
+    /**
+     * @return The album thumbnail, null if there is none
+     */
+    @Nullable
+    static Bitmap loadThumbnail(final long albumId, final int width, final int height,
+                                @Nullable final CancellationSignal signal) throws IOException {
+        try {
+            final Uri uri = ContentUris.withAppendedId(MediaStore.Audio.Albums.EXTERNAL_CONTENT_URI, albumId);
+            return App.getStaticContext().getContentResolver().loadThumbnail(uri, new Size(width, height), signal);
+        } catch (final FileNotFoundException ignored) {}
+        return null;
+    }
+
+    @Override
+    public void cleanup() {
+        // The bitmap is owned by Glide from now on
+    }
+
+    @Override
+    public void cancel() {
+        cancellationSignal.cancel();
+    }
+
+    @NonNull
+    @Override
+    public Class<Bitmap> getDataClass() {
+        return Bitmap.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+        return DataSource.LOCAL;
+    }
+}
@@ -0,0 +1,43 @@
+package com.poupa.vinylmusicplayer.glide.audiocover;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+
+/**
+ * Song covers from the MediaStore album thumbnails, decoded by the system at the target size.
+ * Only since Android 10, before that the album art file is read as any other image.
+ */
+public class MediaStoreCoverLoader implements ModelLoader<SongCover, Bitmap> {
+    @Nullable
+    @Override
+    public LoadData<Bitmap> buildLoadData(@NonNull SongCover model, int width, int height,
+                                          @NonNull Options options) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {return null;}
+        return new LoadData<>(model.key, new MediaStoreCoverFetcher(model, width, height));
+    }
+
+    @Override
+    public boolean handles(@NonNull SongCover model) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
+
+    public static class Factory implements ModelLoaderFactory<SongCover, Bitmap> {
+        @Override
+        @NonNull
+        public ModelLoader<SongCover, Bitmap> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new MediaStoreCoverLoader();
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
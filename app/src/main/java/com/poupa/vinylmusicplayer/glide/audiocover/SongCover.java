@@ -11,21 +11,24 @@ import com.poupa.vinylmusicplayer.model.Song;
  */
 public class SongCover {
     public final Song song;
+    // The cover identity, shared with the other songs of the album
+    public final CoverKey key;
 
     public SongCover(@NonNull final Song song) {
         this.song = song;
+        this.key = CoverKey.of(song);
     }
 
     @Override
     public int hashCode() {
-        return song.hashCode();
+        return key.hashCode();
     }
 
     @Override
     public boolean equals(@Nullable Object object) {
         if (object instanceof SongCover) {
             SongCover other = (SongCover) object;
-            return song.equals(other.song);
+            return key.equals(other.key);
         }
         return false;
     }
@@ -1,5 +1,7 @@
 package com.poupa.vinylmusicplayer.glide.audiocover;
 
+import android.os.Build;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -15,11 +17,32 @@ import java.io.InputStream;
  * @author SC (soncaokim)
  */
 public class SongCoverFetcher extends AbsCoverFetcher {
+    /**
+     * The cover sources to look at.
+     * Glide goes through them as separate loaders, around the MediaStore thumbnail (see {@link MediaStoreCoverLoader}).
+     */
+    public enum Sources {
+        ALL,
+        // The pre-generated thumbnail, then the audio tags
+        EMBEDDED,
+        // The MediaStore album art file before Android 10, then the folder image
+        EXTERNAL
+    }
+
     private final SongCover model;
+    // If set, the pre-generated thumbnail of that size is used when available
+    @Nullable private final CoverThumbnailStore.Size thumbnailSize;
+    private final Sources sources;
 
     public SongCoverFetcher(@NonNull final SongCover value) {
+        this(value, null, Sources.ALL);
+    }
+
+    public SongCoverFetcher(@NonNull final SongCover value, @Nullable final CoverThumbnailStore.Size size, @NonNull final Sources sources) {
         super();
         model = value;
+        thumbnailSize = size;
+        this.sources = sources;
     }
 
     @Override
@@ -39,12 +62,26 @@ public class SongCoverFetcher extends AbsCoverFetcher {
 
     @Nullable
     public InputStream loadData() {
-        InputStream input = loadCoverFromAudioTags(model.song);
-        if (input == null) {
-            input = loadCoverFromMediaStore(model.song);
+        InputStream input = null;
+        if (sources != Sources.EXTERNAL) {
+            if (thumbnailSize != null) {
+                input = loadCoverFromThumbnailStore(model.key, thumbnailSize);
+            }
+            // Not to open the audio file again if the album has no cover
+            if (input == null && !CoverThumbnailStore.getInstance().hasNoCover(model.key)) {
+                input = loadCoverFromAudioTags(model.song);
+            }
+        }
+        if (sources == Sources.ALL
+                || (sources == Sources.EXTERNAL && Build.VERSION.SDK_INT < Build.VERSION_CODES.Q)) {
+            if (input == null) {
+                input = loadCoverFromMediaStore(model.song);
+            }
         }
-        if (input == null) {
-            input = loadCoverFromFolderImage(new File(model.song.data));
+        if (sources != Sources.EMBEDDED) {
+            if (input == null) {
+                input = loadCoverFromFolderImage(new File(model.song.data));
+            }
         }
         return input;
     }
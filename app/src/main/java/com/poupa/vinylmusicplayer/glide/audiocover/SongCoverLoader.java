@@ -2,6 +2,7 @@ package com.poupa.vinylmusicplayer.glide.audiocover;
 
 import androidx.annotation.NonNull;
 
+import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoaderFactory;
@@ -16,11 +17,19 @@ import java.io.InputStream;
  */
 
 public class SongCoverLoader implements ModelLoader<SongCover, InputStream> {
+    private final SongCoverFetcher.Sources sources;
+
+    SongCoverLoader(@NonNull final SongCoverFetcher.Sources sources) {
+        this.sources = sources;
+    }
 
     @Override
     public LoadData<InputStream> buildLoadData(@NonNull SongCover model, int width, int height,
                                                @NonNull Options options) {
-        return new LoadData<>(new ObjectKey(model.song), new SongCoverFetcher(model));
+        // The thumbnail sizes are cached separately from the full size cover
+        final CoverThumbnailStore.Size size = CoverThumbnailStore.Size.fitting(width, height);
+        final Key key = (size == null) ? model.key : new ObjectKey(model.key + "@" + size.pixels);
+        return new LoadData<>(key, new SongCoverFetcher(model, size, sources));
     }
 
     @Override
@@ -29,10 +38,16 @@ public class SongCoverLoader implements ModelLoader<SongCover, InputStream> {
     }
 
     public static class Factory implements ModelLoaderFactory<SongCover, InputStream> {
+        private final SongCoverFetcher.Sources sources;
+
+        public Factory(@NonNull final SongCoverFetcher.Sources sources) {
+            this.sources = sources;
+        }
+
         @Override
         @NonNull
         public ModelLoader<SongCover, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
-            return new SongCoverLoader();
+            return new SongCoverLoader(sources);
         }
 
         @Override
@@ -3,17 +3,40 @@ package com.poupa.vinylmusicplayer.glide.palette;
 import android.graphics.Bitmap;
 
 import androidx.annotation.NonNull;
+import androidx.palette.graphics.Palette;
 
+import com.bumptech.glide.load.Option;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.resource.transcode.ResourceTranscoder;
+import com.poupa.vinylmusicplayer.App;
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverKey;
+import com.poupa.vinylmusicplayer.provider.CoverPaletteStore;
 import com.poupa.vinylmusicplayer.util.VinylMusicPlayerColorUtil;
 
 public class BitmapPaletteTranscoder implements ResourceTranscoder<Bitmap, BitmapPaletteWrapper> {
+    /**
+     * If set, the palette is computed once for that cover, then taken from the {@link CoverPaletteStore}
+     */
+    public static final Option<CoverKey> COVER_KEY = Option.memory("com.poupa.vinylmusicplayer.glide.palette.CoverKey");
+
     @Override
     public Resource<BitmapPaletteWrapper> transcode(@NonNull Resource<Bitmap> bitmapResource, @NonNull Options options) {
         Bitmap bitmap = bitmapResource.get();
-        BitmapPaletteWrapper bitmapPaletteWrapper = new BitmapPaletteWrapper(bitmap, VinylMusicPlayerColorUtil.generatePalette(bitmap));
+
+        final CoverKey coverKey = options.get(COVER_KEY);
+        Palette palette = null;
+        if (coverKey != null) {
+            palette = CoverPaletteStore.getInstance(App.getStaticContext()).get(coverKey);
+        }
+        if (palette == null) {
+            palette = VinylMusicPlayerColorUtil.generatePalette(bitmap);
+            if (coverKey != null && palette != null) {
+                CoverPaletteStore.getInstance(App.getStaticContext()).put(coverKey, palette);
+            }
+        }
+
+        BitmapPaletteWrapper bitmapPaletteWrapper = new BitmapPaletteWrapper(bitmap, palette);
         return new BitmapPaletteResource(bitmapPaletteWrapper);
     }
 }
@@ -0,0 +1,177 @@
+package com.poupa.vinylmusicplayer.helper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming encoding and decoding of M3U/M3U8 playlists, always as UTF-8.
+ *
+ * Neither side holds the whole playlist: the writer emits entry by entry through a buffer,
+ * the reader hands over the paths chunk by chunk, so that the caller can resolve them in batch.
+ */
+public class M3UCodec implements M3UConstants {
+    private static final char SEPARATOR = '/';
+    private static final String FILE_SCHEME = "file://";
+    private static final char BOM = '\uFEFF';
+
+    public interface ChunkConsumer {
+        void accept(@NonNull List<String> paths) throws IOException;
+    }
+
+    public static class Encoder implements Closeable {
+        private final Writer writer;
+        @Nullable private final String baseDirectory;
+        private boolean headerWritten = false;
+
+        /**
+         * @param baseDirectory If not null, the paths below it are written relative to it
+         */
+        public Encoder(@NonNull final OutputStream stream, @Nullable final String baseDirectory) {
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            this.baseDirectory = (baseDirectory == null) ? null : stripTrailingSeparator(baseDirectory);
+        }
+
+        public void writeEntry(final long durationMillis, @NonNull final String displayName, @NonNull final String path) throws IOException {
+            // The header is only written for non empty playlists
+            if (!headerWritten) {
+                writer.write(HEADER);
+                headerWritten = true;
+            }
+
+            writer.write(System.lineSeparator());
+            writer.write(ENTRY);
+            // Seconds as per the format, -1 when unknown
+            writer.write(Long.toString(durationMillis > 0 ? durationMillis / 1000 : -1));
+            writer.write(DURATION_SEPARATOR);
+            writer.write(displayName);
+            writer.write(System.lineSeparator());
+            writer.write(relativize(path));
+        }
+
+        @NonNull
+        private String relativize(@NonNull final String path) {
+            if (baseDirectory == null) {return path;}
+            if (path.length() > baseDirectory.length()
+                    && path.startsWith(baseDirectory)
+                    && path.charAt(baseDirectory.length()) == SEPARATOR) {
+                return path.substring(baseDirectory.length() + 1);
+            }
+            return path;
+        }
+
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Read the local file paths of the playlist, in order, handing them over by chunks.
+     * Comments and extended info are skipped, so are the non local (i.e. http) entries.
+     *
+     * @param baseDirectory The directory of the playlist file, to resolve the relative paths; if null they are skipped
+     * @param chunkSize Max number of paths per chunk
+     */
+    public static void read(@NonNull final InputStream stream, @Nullable final String baseDirectory, final int chunkSize,
+                            @NonNull final ChunkConsumer consumer) throws IOException {
+        final String base = (baseDirectory == null) ? null : stripTrailingSeparator(baseDirectory);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+
+        ArrayList<String> chunk = new ArrayList<>(chunkSize);
+        boolean firstLine = true;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (firstLine) {
+                firstLine = false;
+                if (!line.isEmpty() && line.charAt(0) == BOM) {line = line.substring(1);}
+            }
+
+            final String path = toAbsolutePath(line.trim(), base);
+            if (path == null) {continue;}
+
+            chunk.add(path);
+            if (chunk.size() >= chunkSize) {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {consumer.accept(chunk);}
+    }
+
+    @Nullable
+    static String toAbsolutePath(@NonNull String entry, @Nullable final String baseDirectory) {
+        if (entry.isEmpty() || entry.charAt(0) == '#') {return null;}
+
+        if (entry.regionMatches(true, 0, FILE_SCHEME, 0, FILE_SCHEME.length())) {
+            try {
+                entry = new URI(entry).getPath();
+            } catch (URISyntaxException e) {
+                entry = entry.substring(FILE_SCHEME.length());
+            }
+            if (entry == null || entry.isEmpty()) {return null;}
+        } else if (entry.contains("://")) {
+            // Stream, not a local file
+            return null;
+        }
+
+        // Playlists written on Windows
+        entry = entry.replace('\\', SEPARATOR);
+
+        if (entry.charAt(0) != SEPARATOR) {
+            if (baseDirectory == null) {return null;}
+            entry = baseDirectory + SEPARATOR + entry;
+        }
+        return normalize(entry);
+    }
+
+    // Resolve the "." and ".." segments, and collapse the repeated separators
+    @NonNull
+    private static String normalize(@NonNull final String absolutePath) {
+        final ArrayList<String> segments = new ArrayList<>();
+        int start = 1;
+        while (start <= absolutePath.length()) {
+            int end = absolutePath.indexOf(SEPARATOR, start);
+            if (end < 0) {end = absolutePath.length();}
+
+            final String segment = absolutePath.substring(start, end);
+            if (segment.equals("..")) {
+                if (!segments.isEmpty()) {segments.remove(segments.size() - 1);}
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.add(segment);
+            }
+            start = end + 1;
+        }
+
+        final StringBuilder result = new StringBuilder(absolutePath.length());
+        for (String segment : segments) {
+            result.append(SEPARATOR).append(segment);
+        }
+        return (result.length() == 0) ? String.valueOf(SEPARATOR) : result.toString();
+    }
+
+    @NonNull
+    private static String stripTrailingSeparator(@NonNull final String directory) {
+        return (directory.length() > 1 && directory.charAt(directory.length() - 1) == SEPARATOR)
+                ? directory.substring(0, directory.length() - 1)
+                : directory;
+    }
+}
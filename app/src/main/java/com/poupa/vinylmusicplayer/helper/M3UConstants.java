@@ -2,6 +2,7 @@ package com.poupa.vinylmusicplayer.helper;
 
 public interface M3UConstants {
     String EXTENSION = "m3u";
+    String EXTENSION_UTF8 = "m3u8";
     String HEADER = "#EXTM3U";
     String ENTRY = "#EXTINF:";
     String DURATION_SEPARATOR = ",";
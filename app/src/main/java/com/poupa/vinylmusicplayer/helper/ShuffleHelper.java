@@ -1,9 +1,14 @@
 package com.poupa.vinylmusicplayer.helper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Function;
 
 /**
  * @author Karim Abou Zeid (kabouzeid)
@@ -11,13 +16,122 @@ import java.util.List;
 public class ShuffleHelper {
 
     public static <T> void makeShuffleList(@NonNull List<T> listToShuffle, final int current) {
-        if (listToShuffle.isEmpty()) return;
-        if (current >= 0) {
-            T song = listToShuffle.remove(current);
-            Collections.shuffle(listToShuffle);
-            listToShuffle.add(0, song);
-        } else {
-            Collections.shuffle(listToShuffle);
+        makeShuffleList(listToShuffle, current, new Random().nextLong());
+    }
+
+    /**
+     * Same as above, the order being given by a seeded permutation, so that it can be reproduced from the seed
+     *
+     * @return The permutation applied, mapping the new positions to the previous ones
+     */
+    @Nullable
+    public static <T> ShufflePermutation makeShuffleList(@NonNull List<T> listToShuffle, final int current, final long seed) {
+        if (listToShuffle.isEmpty()) return null;
+
+        final ShufflePermutation permutation = new ShufflePermutation(seed, listToShuffle.size(),
+                (current >= 0) ? current : ShufflePermutation.NO_HEAD);
+        final List<T> unshuffled = new ArrayList<>(listToShuffle);
+        for (int i = 0; i < unshuffled.size(); ++i) {
+            listToShuffle.set(i, unshuffled.get(permutation.get(i)));
+        }
+        return permutation;
+    }
+
+    /**
+     * Shuffle the list, spreading apart the items of a same group (e.g. artist), then of a same subgroup (e.g. album).
+     * Each group is shuffled on its own, then all groups are merged evenly over the list,
+     * the n-th item of a group of size c being placed around the (n + u) / c fraction of the list, u being random in [0, 1).
+     *
+     * Runs in O(n log k) for k groups, working on index arrays only.
+     * Not reproducible from the seed alone, since the order depends on the groups of the items.
+     */
+    public static <T> void makeSpreadShuffleList(@NonNull List<T> listToShuffle, final int current, final long seed,
+                                                 @NonNull Function<T, Object> groupKey,
+                                                 @NonNull Function<T, Object> subgroupKey) {
+        final int size = listToShuffle.size();
+        if (size == 0) return;
+
+        // The current item stays at the head, the others are spread after it
+        final int[] order = new int[(current >= 0) ? size - 1 : size];
+        for (int i = 0, j = 0; i < size; ++i) {
+            if (i != current) {order[j++] = i;}
+        }
+
+        final Random random = new Random(seed);
+        for (int i = order.length - 1; i > 0; --i) {
+            final int j = random.nextInt(i + 1);
+            final int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        // The subgroups are spread first, the groups then keep the relative order of their items
+        spreadGroups(order, groupIds(listToShuffle, order, subgroupKey), random);
+        spreadGroups(order, groupIds(listToShuffle, order, groupKey), random);
+
+        final List<T> unshuffled = new ArrayList<>(listToShuffle);
+        int position = 0;
+        if (current >= 0) {listToShuffle.set(position++, unshuffled.get(current));}
+        for (int item : order) {
+            listToShuffle.set(position++, unshuffled.get(item));
+        }
+    }
+
+    /**
+     * @return For each index of the list, the dense ID of the group of its item
+     */
+    private static <T> int[] groupIds(@NonNull List<T> list, @NonNull int[] order, @NonNull Function<T, Object> groupKey) {
+        final int[] groups = new int[list.size()];
+        final HashMap<Object, Integer> ids = new HashMap<>();
+        for (int item : order) {
+            final Object key = groupKey.apply(list.get(item));
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+            }
+            groups[item] = id;
+        }
+        return groups;
+    }
+
+    /**
+     * Reorder the items, so that the items of each group are evenly spread.
+     * Within a group, the items keep their relative order.
+     */
+    private static void spreadGroups(@NonNull int[] order, @NonNull int[] groupOf, @NonNull Random random) {
+        int groupCount = 0;
+        for (int item : order) {groupCount = Math.max(groupCount, groupOf[item] + 1);}
+        if (groupCount <= 1) return;
+
+        // Bucket the items by group, as consecutive segments of a single array
+        final int[] segmentStarts = new int[groupCount + 1];
+        for (int item : order) {++segmentStarts[groupOf[item] + 1];}
+        for (int g = 0; g < groupCount; ++g) {segmentStarts[g + 1] += segmentStarts[g];}
+        final int[] taken = new int[groupCount];
+        final int[] grouped = new int[order.length];
+        for (int item : order) {
+            final int g = groupOf[item];
+            grouped[segmentStarts[g] + taken[g]++] = item;
+        }
+
+        // k-way merge of the groups, by the fractional rank of their next item
+        final double[] phases = new double[groupCount];
+        final double[] nextRanks = new double[groupCount];
+        final PriorityQueue<Integer> groups = new PriorityQueue<>(groupCount, (a, b) -> Double.compare(nextRanks[a], nextRanks[b]));
+        for (int g = 0; g < groupCount; ++g) {
+            phases[g] = random.nextDouble();
+            taken[g] = 0;
+            nextRanks[g] = phases[g] / (segmentStarts[g + 1] - segmentStarts[g]);
+            groups.add(g);
+        }
+        for (int position = 0; position < order.length; ++position) {
+            final int g = groups.poll();
+            final int count = segmentStarts[g + 1] - segmentStarts[g];
+            order[position] = grouped[segmentStarts[g] + taken[g]++];
+            if (taken[g] < count) {
+                nextRanks[g] = (taken[g] + phases[g]) / count;
+                groups.add(g);
+            }
         }
     }
 }
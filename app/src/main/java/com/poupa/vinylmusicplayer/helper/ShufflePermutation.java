@@ -0,0 +1,120 @@
+package com.poupa.vinylmusicplayer.helper;
+
+/**
+ * A pseudo-random permutation of [0, size), computed on demand from a seed.
+ * The k-th shuffled element and its inverse are both computed in constant time, without materializing the order.
+ *
+ * Optionally, a head element is pinned at the first position, the others being shuffled after it.
+ *
+ * The permutation is a balanced Feistel network over the smallest power of 4 covering the size,
+ * restricted to [0, size) by cycle walking.
+ * It is not meant to be cryptographically strong, only to be stable for a given seed.
+ */
+public final class ShufflePermutation {
+    public static final int NO_HEAD = -1;
+    private static final int ROUNDS = 4;
+
+    public final long seed;
+    public final int size;
+    public final int head;
+
+    private final int shuffledSize;
+    private final int halfBits;
+    private final int halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public ShufflePermutation(long seed, int size, int head) {
+        if (size < 0 || head < NO_HEAD || head >= size) {
+            throw new IllegalArgumentException("Bad permutation size=" + size + " head=" + head);
+        }
+        this.seed = seed;
+        this.size = size;
+        this.head = head;
+
+        shuffledSize = (head == NO_HEAD) ? size : size - 1;
+        int bits = 2;
+        while (bits < 62 && (1L << bits) < shuffledSize) {bits += 2;}
+        halfBits = bits / 2;
+        halfMask = (1 << halfBits) - 1;
+
+        long key = seed;
+        for (int i = 0; i < ROUNDS; ++i) {
+            key = mix(key + 0x9e3779b97f4a7c15L);
+            roundKeys[i] = key;
+        }
+    }
+
+    /**
+     * @return The element at the given shuffled position
+     */
+    public int get(int position) {
+        if (position < 0 || position >= size) {throw new IndexOutOfBoundsException("position=" + position + " size=" + size);}
+        if (head == NO_HEAD) {return permute(position);}
+        if (position == 0) {return head;}
+
+        final int element = permute(position - 1);
+        return (element < head) ? element : element + 1;
+    }
+
+    /**
+     * @return The shuffled position of the given element
+     */
+    public int indexOf(int element) {
+        if (element < 0 || element >= size) {throw new IndexOutOfBoundsException("element=" + element + " size=" + size);}
+        if (head == NO_HEAD) {return unpermute(element);}
+        if (element == head) {return 0;}
+
+        return unpermute((element < head) ? element : element - 1) + 1;
+    }
+
+    private int permute(int value) {
+        // Cycle walking: the network is a permutation of the covering domain, hence walking its cycles stays within [0, size)
+        int result = value;
+        do {
+            result = encrypt(result);
+        } while (result >= shuffledSize);
+        return result;
+    }
+
+    private int unpermute(int value) {
+        int result = value;
+        do {
+            result = decrypt(result);
+        } while (result >= shuffledSize);
+        return result;
+    }
+
+    private int encrypt(int value) {
+        int left = value >>> halfBits;
+        int right = value & halfMask;
+        for (int i = 0; i < ROUNDS; ++i) {
+            final int next = left ^ round(i, right);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private int decrypt(int value) {
+        int left = value >>> halfBits;
+        int right = value & halfMask;
+        for (int i = ROUNDS - 1; i >= 0; --i) {
+            final int previous = right ^ round(i, left);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private int round(int round, int value) {
+        return (int) mix(roundKeys[round] ^ value) & halfMask;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
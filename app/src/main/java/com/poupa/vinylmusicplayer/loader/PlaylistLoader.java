@@ -47,4 +47,33 @@ public class PlaylistLoader {
 
         return playlists;
     }
+
+    /**
+     * @return A digest of the members of the playlist, changing whenever they are added, removed or reordered
+     */
+    @NonNull
+    public static String getPlaylistFingerprint(@NonNull final Context context, final long playlistId) {
+        int count = 0;
+        long hash = 17;
+        try (Cursor cursor = context.getContentResolver().query(
+                MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId),
+                new String[]{
+                        MediaStore.Audio.Playlists.Members.AUDIO_ID // 0
+                },
+                null,
+                null,
+                MediaStore.Audio.Playlists.Members.DEFAULT_SORT_ORDER))
+        {
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    hash = 31 * hash + cursor.getLong(0);
+                    ++count;
+                } while (cursor.moveToNext());
+            }
+        } catch (SecurityException e) {
+            e.printStackTrace();
+        }
+
+        return count + ":" + Long.toHexString(hash);
+    }
 }
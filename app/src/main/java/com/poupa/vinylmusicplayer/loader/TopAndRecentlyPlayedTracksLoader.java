@@ -17,23 +17,20 @@
 package com.poupa.vinylmusicplayer.loader;
 
 import android.content.Context;
-import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
 
 import androidx.annotation.NonNull;
 
 import com.poupa.vinylmusicplayer.discog.Discography;
 import com.poupa.vinylmusicplayer.model.Song;
+import com.poupa.vinylmusicplayer.model.smartplaylist.SmartPlaylistCache;
 import com.poupa.vinylmusicplayer.provider.HistoryStore;
-import com.poupa.vinylmusicplayer.provider.SongPlayCountStore;
-import com.poupa.vinylmusicplayer.provider.StoreLoader;
 import com.poupa.vinylmusicplayer.sort.SongSortOrder;
 import com.poupa.vinylmusicplayer.util.OopsHandler;
 import com.poupa.vinylmusicplayer.util.PreferenceUtil;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashSet;
 
 public class TopAndRecentlyPlayedTracksLoader {
     @NonNull
@@ -41,10 +38,9 @@ public class TopAndRecentlyPlayedTracksLoader {
         final long cutoff = PreferenceUtil.getInstance().getRecentlyPlayedCutoffTimeMillis();
         if (cutoff == 0) {return new ArrayList<>();}
 
-        HistoryStore historyStore = HistoryStore.getInstance(context);
-        ArrayList<Long> songIds = historyStore.getRecentIds(cutoff);
+        ArrayList<Long> songIds = SmartPlaylistCache.getInstance().getRecentlyPlayedIds(cutoff);
 
-        return Discography.getInstance().getSongsFromIdsAndCleanupOrphans(songIds, historyStore::removeSongIds);
+        return Discography.getInstance().getSongsFromIdsAndCleanupOrphans(songIds, ids -> removeOrphansFromHistory(context, ids));
     }
 
     @NonNull
@@ -52,28 +48,18 @@ public class TopAndRecentlyPlayedTracksLoader {
         final long cutoff = PreferenceUtil.getInstance().getNotRecentlyPlayedCutoffTimeMillis();
         if (cutoff == 0) {return new ArrayList<>();}
 
-        HistoryStore historyStore = HistoryStore.getInstance(context);
-        ArrayList<Long> songIds = new ArrayList<>();
+        final SmartPlaylistCache cache = SmartPlaylistCache.getInstance();
 
         // Collect not played songs
-        Discography discography = Discography.getInstance();
-        HashSet<Long> playedSongIds = new HashSet<>(historyStore.getRecentIds(0));
         @NonNull final String sortOrderStr = PreferenceUtil.getInstance().getNotRecentlyPlayedSortOrder();
         Comparator<Song> sortOrder = sortOrderStr.equals(PreferenceUtil.ALBUM_SORT_ORDER) ? SongSortOrder.BY_ALBUM_DATE_ADDED : SongSortOrder.BY_DATE_ADDED;
-        ArrayList<Song> allSongs = discography.getAllSongs(sortOrder);
-
-        for (Song song : allSongs) {
-            if (!playedSongIds.contains(song.id)) {
-                songIds.add(song.id);
-                playedSongIds.remove(song.id);
-            }
-        }
+        ArrayList<Song> songs = cache.getNeverPlayedSongs(sortOrder);
 
         // Collect not recently played songs
-        ArrayList<Long> notRecentSongIds = historyStore.getRecentIds(-1 * cutoff);
-        songIds.addAll(notRecentSongIds);
+        ArrayList<Long> notRecentSongIds = cache.getNotRecentlyPlayedIds(cutoff);
+        songs.addAll(Discography.getInstance().getSongsFromIdsAndCleanupOrphans(notRecentSongIds, ids -> removeOrphansFromHistory(context, ids)));
 
-        return discography.getSongsFromIdsAndCleanupOrphans(songIds, historyStore::removeSongIds);
+        return songs;
     }
 
     @NonNull
@@ -82,8 +68,8 @@ public class TopAndRecentlyPlayedTracksLoader {
         if (!enabled) {return new ArrayList<>();}
 
         final int NUMBER_OF_TOP_TRACKS = 100;
-        try (Cursor cursor = SongPlayCountStore.getInstance(context).getTopPlayedResults(NUMBER_OF_TOP_TRACKS)) {
-            ArrayList<Long> songIds = StoreLoader.getIdsFromCursor(cursor, SongPlayCountStore.SongPlayCountColumns.ID);
+        try {
+            ArrayList<Long> songIds = SmartPlaylistCache.getInstance().getTopTrackIds(NUMBER_OF_TOP_TRACKS);
             Discography discography = Discography.getInstance();
             return discography.getSongsFromIdsAndCleanupOrphans(songIds, null);
         } catch (SQLiteException|IllegalStateException exception) {
@@ -92,4 +78,8 @@ public class TopAndRecentlyPlayedTracksLoader {
         }
     }
 
+    private static void removeOrphansFromHistory(@NonNull final Context context, @NonNull final ArrayList<Long> songIds) {
+        HistoryStore.getInstance(context).removeSongIds(songIds);
+        SmartPlaylistCache.getInstance().onHistoryRemoved(songIds);
+    }
 }
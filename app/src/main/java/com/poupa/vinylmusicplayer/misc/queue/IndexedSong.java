@@ -58,6 +58,7 @@ public class IndexedSong extends Song {
 
     @Override
     public int hashCode() {
-        return 31 * super.hashCode() + index;
+        // Not depending on the index, that changes while the song is in a hashed collection
+        return super.hashCode();
     }
 }
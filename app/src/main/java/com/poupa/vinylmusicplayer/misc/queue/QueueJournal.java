@@ -0,0 +1,394 @@
+package com.poupa.vinylmusicplayer.misc.queue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.poupa.vinylmusicplayer.helper.ShufflePermutation;
+import com.poupa.vinylmusicplayer.model.Song;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the operations applied to a {@link StaticPlayingQueue}.
+ *
+ * The journal complements a full snapshot of the queue: each snapshot has a generation number,
+ * and the journal replays on top of the snapshot having the same generation.
+ * Writing a new snapshot (compaction) starts a new generation, and resets the journal.
+ *
+ * File layout:
+ * - header: magic, format version, snapshot generation, shuffle mode at snapshot time
+ * - records: payload length, payload, CRC32 of the payload
+ * A record that is truncated or fails its checksum (i.e. the app died while appending)
+ * ends the journal, and is discarded together with anything after it.
+ */
+public class QueueJournal {
+    private static final int MAGIC = 0x564d514a; // VMQJ
+    private static final int FORMAT_VERSION = 2; // v2: shuffles based on ShufflePermutation
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    // Beyond these limits, replaying the journal costs more than rewriting the snapshot
+    private static final int MAX_RECORDS = 256;
+    private static final long MAX_BYTES = 256 * 1024;
+
+    public interface Listener {
+        void onOperation(@NonNull Operation operation);
+
+        /**
+         * The queue was modified in a way that cannot be replayed from an operation, a new snapshot is needed
+         */
+        default void onUnjournaledChange() {}
+    }
+
+    public static final class Operation {
+        static final byte ADD = 1;
+        static final byte ADD_ALL = 2;
+        static final byte ADD_AFTER = 3;
+        static final byte ADD_ALL_AFTER = 4;
+        static final byte ADD_BACK_TO = 5;
+        static final byte MOVE = 6;
+        static final byte REMOVE = 7;
+        static final byte REMOVE_SONGS = 8;
+        static final byte CLEAR = 9;
+        static final byte OPEN = 10;
+        static final byte SHUFFLE = 11;
+        static final byte SHUFFLE_MODE = 12;
+
+        private static final long[] NO_IDS = new long[0];
+
+        final byte code;
+        final int arg1;
+        final int arg2;
+        final long seed;
+        @NonNull final long[] songIds;
+
+        private Operation(byte code, int arg1, int arg2, long seed, @NonNull long[] songIds) {
+            this.code = code;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+            this.seed = seed;
+            this.songIds = songIds;
+        }
+
+        static Operation add(long songId) {
+            return new Operation(ADD, 0, 0, 0, new long[]{songId});
+        }
+
+        static Operation addAll(@NonNull Collection<? extends Song> songs, long seed) {
+            return new Operation(ADD_ALL, 0, 0, seed, idsOf(songs));
+        }
+
+        static Operation addAfter(int position, long songId) {
+            return new Operation(ADD_AFTER, position, 0, 0, new long[]{songId});
+        }
+
+        static Operation addAllAfter(int position, @NonNull Collection<? extends Song> songs, long seed) {
+            return new Operation(ADD_ALL_AFTER, position, 0, seed, idsOf(songs));
+        }
+
+        static Operation addBackTo(int position, int index, long songId) {
+            return new Operation(ADD_BACK_TO, position, index, 0, new long[]{songId});
+        }
+
+        static Operation move(int from, int to) {
+            return new Operation(MOVE, from, to, 0, NO_IDS);
+        }
+
+        static Operation remove(int position) {
+            return new Operation(REMOVE, position, 0, 0, NO_IDS);
+        }
+
+        static Operation removeSongs(@NonNull Collection<? extends Song> songs) {
+            return new Operation(REMOVE_SONGS, 0, 0, 0, idsOf(songs));
+        }
+
+        static Operation clear() {
+            return new Operation(CLEAR, 0, 0, 0, NO_IDS);
+        }
+
+        static Operation open(@NonNull Collection<? extends Song> songs, int startPosition, int shuffleMode, long seed) {
+            return new Operation(OPEN, startPosition, shuffleMode, seed, idsOf(songs));
+        }
+
+        static Operation shuffle(int shuffleMode, int currentPosition, long seed) {
+            return new Operation(SHUFFLE, shuffleMode, currentPosition, seed, NO_IDS);
+        }
+
+        public static Operation shuffleMode(int shuffleMode) {
+            return new Operation(SHUFFLE_MODE, shuffleMode, 0, 0, NO_IDS);
+        }
+
+        @NonNull
+        private static long[] idsOf(@NonNull Collection<? extends Song> songs) {
+            final long[] ids = new long[songs.size()];
+            int i = 0;
+            for (Song song : songs) {ids[i++] = song.id;}
+            return ids;
+        }
+
+        @NonNull
+        private List<Song> songsOf(@NonNull LongFunction<Song> songResolver) {
+            final List<Song> songs = new ArrayList<>(songIds.length);
+            for (long id : songIds) {songs.add(songResolver.apply(id));}
+            return songs;
+        }
+
+        /**
+         * Re-execute the operation on the given queue.
+         * The queue must not have a journal listener attached, otherwise the operation is recorded again.
+         */
+        public void apply(@NonNull StaticPlayingQueue queue, @NonNull LongFunction<Song> songResolver) {
+            switch (code) {
+                case ADD -> queue.add(songResolver.apply(songIds[0]));
+                case ADD_ALL -> queue.addAll(songsOf(songResolver), seed);
+                case ADD_AFTER -> queue.addAfter(arg1, songResolver.apply(songIds[0]));
+                case ADD_ALL_AFTER -> queue.addAllAfter(arg1, songsOf(songResolver), seed);
+                case ADD_BACK_TO -> queue.addSongBackTo(arg1,
+                        new IndexedSong(songResolver.apply(songIds[0]), arg2, IndexedSong.INVALID_INDEX));
+                case MOVE -> queue.move(arg1, arg2);
+                case REMOVE -> queue.remove(arg1);
+                case REMOVE_SONGS -> queue.removeSongs(songsOf(songResolver));
+                case CLEAR -> queue.clear();
+                case OPEN -> queue.openQueue(songsOf(songResolver), arg1, arg2, seed);
+                case SHUFFLE -> {
+                    queue.setCurrentPosition(arg2);
+                    queue.setShuffle(arg1, seed);
+                }
+                case SHUFFLE_MODE -> queue.restoreMode(arg1, queue.getRepeatMode());
+                default -> throw new IllegalArgumentException("Unknown queue operation " + code);
+            }
+        }
+
+        void writeTo(@NonNull DataOutputStream out) throws IOException {
+            out.writeByte(code);
+            out.writeInt(arg1);
+            out.writeInt(arg2);
+            out.writeLong(seed);
+            out.writeInt(songIds.length);
+            for (long id : songIds) {out.writeLong(id);}
+        }
+
+        @NonNull
+        static Operation readFrom(@NonNull DataInputStream in) throws IOException {
+            final byte code = in.readByte();
+            final int arg1 = in.readInt();
+            final int arg2 = in.readInt();
+            final long seed = in.readLong();
+            final int count = in.readInt();
+            if (count < 0) {throw new IOException("Bad song count " + count);}
+            final long[] ids = count == 0 ? NO_IDS : new long[count];
+            for (int i = 0; i < count; ++i) {ids[i] = in.readLong();}
+            return new Operation(code, arg1, arg2, seed, ids);
+        }
+    }
+
+    public static final class Content {
+        public final long generation;
+        public final int shuffleMode;
+        @NonNull public final List<Operation> operations;
+
+        Content(long generation, int shuffleMode, @NonNull List<Operation> operations) {
+            this.generation = generation;
+            this.shuffleMode = shuffleMode;
+            this.operations = operations;
+        }
+
+        /**
+         * @return Whether replaying the journal alters the songs of the queue or their order
+         */
+        public boolean altersQueue() {
+            for (Operation operation : operations) {
+                if (operation.code != Operation.SHUFFLE_MODE) {return true;}
+            }
+            return false;
+        }
+
+        /**
+         * Rebuild a queue from its snapshot content, then replay the journaled operations on it
+         */
+        @NonNull
+        public StaticPlayingQueue replay(@NonNull ArrayList<IndexedSong> snapshotQueue,
+                                         @NonNull ArrayList<IndexedSong> snapshotOriginalQueue,
+                                         @NonNull LongFunction<Song> songResolver) {
+            return replay(snapshotQueue, snapshotOriginalQueue, null, songResolver);
+        }
+
+        @NonNull
+        public StaticPlayingQueue replay(@NonNull ArrayList<IndexedSong> snapshotQueue,
+                                         @NonNull ArrayList<IndexedSong> snapshotOriginalQueue,
+                                         @Nullable ShufflePermutation snapshotShuffleOrder,
+                                         @NonNull LongFunction<Song> songResolver) {
+            final StaticPlayingQueue queue = new StaticPlayingQueue(
+                    snapshotQueue,
+                    snapshotOriginalQueue,
+                    snapshotQueue.isEmpty() ? StaticPlayingQueue.INVALID_POSITION : 0,
+                    shuffleMode,
+                    StaticPlayingQueue.REPEAT_MODE_NONE);
+            queue.restoreShuffleOrder(snapshotShuffleOrder);
+            for (Operation operation : operations) {
+                operation.apply(queue, songResolver);
+            }
+            return queue;
+        }
+    }
+
+    @NonNull private final File file;
+    private long generation = -1;
+    private int recordCount;
+    private long byteCount;
+
+    public QueueJournal(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return The generation of the snapshot this journal applies to, or -1 if the journal is not usable
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public synchronized boolean needsCompaction(int pendingOperations) {
+        return (generation < 0)
+                || (recordCount + pendingOperations > MAX_RECORDS)
+                || (byteCount > MAX_BYTES);
+    }
+
+    /**
+     * Read the journal, dropping any incomplete or corrupted tail so that later appends remain readable
+     *
+     * @return The journal content, or null if there is no usable journal
+     */
+    @Nullable
+    public synchronized Content read() {
+        generation = -1;
+        recordCount = 0;
+        byteCount = 0;
+        if (!file.exists()) {return null;}
+
+        final List<Operation> operations = new ArrayList<>();
+        final long fileGeneration;
+        final int shuffleMode;
+        long validLength = HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {return null;}
+            fileGeneration = in.readLong();
+            shuffleMode = in.readInt();
+
+            final CRC32 crc = new CRC32();
+            final long fileLength = file.length();
+            while (true) {
+                final int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException endOfJournal) {
+                    break;
+                }
+                if (length <= 0 || validLength + 4 + length + 4 > fileLength) {break;}
+
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+                final int checksum = in.readInt();
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {break;}
+
+                try (DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload))) {
+                    operations.add(Operation.readFrom(record));
+                }
+                validLength += 4 + length + 4;
+            }
+        } catch (IOException truncatedHeader) {
+            return null;
+        }
+
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        generation = fileGeneration;
+        recordCount = operations.size();
+        byteCount = validLength;
+        return new Content(fileGeneration, shuffleMode, operations);
+    }
+
+    /**
+     * Start an empty journal on top of the snapshot of the given generation
+     */
+    public synchronized void reset(long newGeneration, int shuffleMode) throws IOException {
+        generation = -1;
+        try (FileOutputStream stream = new FileOutputStream(file, false)) {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(newGeneration);
+            out.writeInt(shuffleMode);
+            out.flush();
+            stream.getFD().sync();
+        }
+        generation = newGeneration;
+        recordCount = 0;
+        byteCount = HEADER_SIZE;
+    }
+
+    public synchronized void append(@NonNull List<Operation> operations) throws IOException {
+        if (operations.isEmpty()) {return;}
+        if (generation < 0) {throw new IOException("Appending to an unusable journal");}
+
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        final DataOutputStream payloadOut = new DataOutputStream(payload);
+        final CRC32 crc = new CRC32();
+        long written = 0;
+        try (FileOutputStream stream = new FileOutputStream(file, true)) {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            for (Operation operation : operations) {
+                payload.reset();
+                operation.writeTo(payloadOut);
+                payloadOut.flush();
+
+                final byte[] bytes = payload.toByteArray();
+                crc.reset();
+                crc.update(bytes, 0, bytes.length);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.writeInt((int) crc.getValue());
+                written += 4 + bytes.length + 4;
+            }
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException e) {
+            // The tail may be torn, do not append anything more until the next reset
+            generation = -1;
+            throw e;
+        }
+        recordCount += operations.size();
+        byteCount += written;
+    }
+
+    /**
+     * Stand-in for a song that is only known by its ID, used while replaying the journal
+     */
+    @NonNull
+    public static Song placeholderSong(long songId) {
+        return new Song(songId, "", -1, -1, -1L, "", -1L, -1L, -1L, "", new ArrayList<>(0));
+    }
+}
@@ -0,0 +1,318 @@
+package com.poupa.vinylmusicplayer.misc.queue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.poupa.vinylmusicplayer.helper.ShufflePermutation;
+import com.poupa.vinylmusicplayer.model.Song;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Full content of the playing queues, saved as packed arrays in a single file.
+ *
+ * The songs of the playing queue are those of the original queue, in another order.
+ * Hence only the song IDs of the original queue are saved, the playing queue being saved as its order:
+ * - either the explicit index in the original queue of each song
+ * - or a base order, being the identity or a seeded shuffle (see {@link ShufflePermutation}),
+ *   plus the exceptions to it, ie. the positions where the songs were moved, added or removed since.
+ *
+ * File layout, little endian:
+ * - header (48 bytes): magic, format version, generation, queue size, original queue size,
+ *   order type, shuffle size, shuffle seed, shuffle head, exception count
+ * - song IDs of the original queue, as longs
+ * - for an explicit order: indexes of the queue, as ints
+ * - otherwise: positions of the exceptions in ascending order, then their indexes, as ints
+ * The file is replaced atomically on save, and memory-mapped on restore.
+ * The order is validated as it is read, so that restoring a part of the queue does not compute it all.
+ */
+public class QueueSnapshot {
+    private static final int MAGIC = 0x564d5153; // VMQS
+    private static final int FORMAT_VERSION = 2;
+    private static final int FORMAT_VERSION_FULL_QUEUES = 1;
+    private static final int HEADER_SIZE = 48; // keep the long arrays 8-bytes aligned
+    private static final int HEADER_SIZE_FULL_QUEUES = 32;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final int ORDER_EXPLICIT = 0;
+    private static final int ORDER_IDENTITY = 1;
+    private static final int ORDER_SHUFFLED = 2;
+
+    public final long generation;
+    @NonNull private final LongBuffer originalQueueIds;
+    private final int queueSize;
+    @Nullable private final IntBuffer queueIndexes;
+    @Nullable private final ShufflePermutation shuffleOrder;
+    @Nullable private final IntBuffer exceptionPositions;
+    @Nullable private final IntBuffer exceptionIndexes;
+
+    private QueueSnapshot(long generation, @NonNull LongBuffer originalQueueIds, int queueSize,
+                          @Nullable IntBuffer queueIndexes, @Nullable ShufflePermutation shuffleOrder,
+                          @Nullable IntBuffer exceptionPositions, @Nullable IntBuffer exceptionIndexes) {
+        this.generation = generation;
+        this.originalQueueIds = originalQueueIds;
+        this.queueSize = queueSize;
+        this.queueIndexes = queueIndexes;
+        this.shuffleOrder = shuffleOrder;
+        this.exceptionPositions = exceptionPositions;
+        this.exceptionIndexes = exceptionIndexes;
+    }
+
+    public int size() {
+        return queueSize;
+    }
+
+    /**
+     * @return The shuffle order the playing queue was saved against, if any
+     */
+    @Nullable
+    public ShufflePermutation getShuffleOrder() {
+        return shuffleOrder;
+    }
+
+    /**
+     * @return The index in the original queue of the song at the given position of the playing queue
+     * @throws IOException if the saved order is not valid
+     */
+    private int getIndexAt(int position) throws IOException {
+        final int index = getSavedIndexAt(position);
+        if (index < 0 || index >= queueSize) {throw new IOException("Bad queue snapshot index " + index + " at " + position);}
+        return index;
+    }
+
+    private int getSavedIndexAt(int position) {
+        if (queueIndexes != null) {return queueIndexes.get(position);}
+
+        if (exceptionPositions != null && exceptionIndexes != null) {
+            int low = 0;
+            int high = exceptionPositions.limit() - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int exceptionPosition = exceptionPositions.get(middle);
+                if (exceptionPosition < position) {low = middle + 1;}
+                else if (exceptionPosition > position) {high = middle - 1;}
+                else {return exceptionIndexes.get(middle);}
+            }
+        }
+        return getBaseIndexAt(shuffleOrder, position);
+    }
+
+    private static int getBaseIndexAt(@Nullable ShufflePermutation shuffleOrder, int position) {
+        // Songs added after the shuffle are appended, in the original order as well
+        return (shuffleOrder != null && position < shuffleOrder.size) ? shuffleOrder.get(position) : position;
+    }
+
+    public long getSongIdAt(int position) throws IOException {
+        return originalQueueIds.get(getIndexAt(position));
+    }
+
+    public void collectSongIds(@NonNull Set<Long> songIds) {
+        for (int i = 0; i < originalQueueIds.limit(); ++i) {songIds.add(originalQueueIds.get(i));}
+    }
+
+    @NonNull
+    public ArrayList<IndexedSong> getPlayingQueue(@NonNull LongFunction<Song> songResolver) throws IOException {
+        final ArrayList<IndexedSong> queue = new ArrayList<>(queueSize);
+        for (int i = 0; i < queueSize; ++i) {
+            final int index = getIndexAt(i);
+            queue.add(new IndexedSong(songResolver.apply(originalQueueIds.get(index)), index, IndexedSong.INVALID_INDEX));
+        }
+        return queue;
+    }
+
+    @NonNull
+    public ArrayList<IndexedSong> getOriginalPlayingQueue(@NonNull LongFunction<Song> songResolver) {
+        final int size = originalQueueIds.limit();
+        final ArrayList<IndexedSong> queue = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            queue.add(new IndexedSong(songResolver.apply(originalQueueIds.get(i)), i, IndexedSong.INVALID_INDEX));
+        }
+        return queue;
+    }
+
+    /**
+     * @return The snapshot, or null if there is no snapshot file
+     * @throws IOException if the file is not a valid snapshot
+     */
+    @Nullable
+    public static QueueSnapshot read(@NonNull File file) throws IOException {
+        if (!file.exists()) {return null;}
+
+        final MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            // The mapping remains valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.limit() < HEADER_SIZE_FULL_QUEUES || buffer.getInt(0) != MAGIC) {throw new IOException("Not a queue snapshot");}
+        final int version = buffer.getInt(4);
+        final QueueSnapshot snapshot;
+        if (version == FORMAT_VERSION) {snapshot = readOrderedQueue(buffer);}
+        else if (version == FORMAT_VERSION_FULL_QUEUES) {snapshot = readFullQueues(buffer);}
+        else {throw new IOException("Unsupported queue snapshot version " + version);}
+        return snapshot;
+    }
+
+    @NonNull
+    private static QueueSnapshot readOrderedQueue(@NonNull ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE) {throw new IOException("Truncated queue snapshot header");}
+        final long generation = buffer.getLong(8);
+        final int queueSize = buffer.getInt(16);
+        final int originalQueueSize = buffer.getInt(20);
+        final int orderType = buffer.getInt(24);
+        final int shuffleSize = buffer.getInt(28);
+        final long shuffleSeed = buffer.getLong(32);
+        final int shuffleHead = buffer.getInt(40);
+        final int exceptionCount = buffer.getInt(44);
+        if (queueSize < 0 || queueSize != originalQueueSize) {throw new IOException("Bad queue snapshot sizes");}
+        if (buffer.limit() < HEADER_SIZE + 8L * queueSize) {throw new IOException("Truncated queue snapshot");}
+
+        final LongBuffer originalQueueIds = slice(buffer, HEADER_SIZE, 8 * queueSize).asLongBuffer();
+        final int orderOffset = HEADER_SIZE + 8 * queueSize;
+        switch (orderType) {
+            case ORDER_EXPLICIT -> {
+                checkLength(buffer, orderOffset + 4L * queueSize);
+                final IntBuffer queueIndexes = slice(buffer, orderOffset, 4 * queueSize).asIntBuffer();
+                return new QueueSnapshot(generation, originalQueueIds, queueSize, queueIndexes, null, null, null);
+            }
+            case ORDER_IDENTITY, ORDER_SHUFFLED -> {
+                if (exceptionCount < 0 || exceptionCount > queueSize) {throw new IOException("Bad queue snapshot exception count");}
+                checkLength(buffer, orderOffset + 8L * exceptionCount);
+
+                ShufflePermutation shuffleOrder = null;
+                if (orderType == ORDER_SHUFFLED) {
+                    if (shuffleSize > queueSize) {throw new IOException("Bad queue snapshot shuffle size");}
+                    try {
+                        shuffleOrder = new ShufflePermutation(shuffleSeed, shuffleSize, shuffleHead);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(e);
+                    }
+                }
+                final IntBuffer exceptionPositions = slice(buffer, orderOffset, 4 * exceptionCount).asIntBuffer();
+                final IntBuffer exceptionIndexes = slice(buffer, orderOffset + 4 * exceptionCount, 4 * exceptionCount).asIntBuffer();
+                return new QueueSnapshot(generation, originalQueueIds, queueSize, null, shuffleOrder, exceptionPositions, exceptionIndexes);
+            }
+            default -> throw new IOException("Bad queue snapshot order type " + orderType);
+        }
+    }
+
+    /**
+     * Read the snapshots saved with both queues in full: IDs of the queue then of the original queue, then their indexes
+     */
+    @NonNull
+    private static QueueSnapshot readFullQueues(@NonNull ByteBuffer buffer) throws IOException {
+        final long generation = buffer.getLong(8);
+        final int queueSize = buffer.getInt(16);
+        final int originalQueueSize = buffer.getInt(20);
+        if (queueSize < 0 || queueSize != originalQueueSize) {throw new IOException("Bad queue snapshot sizes");}
+        checkLength(buffer, HEADER_SIZE_FULL_QUEUES + 24L * queueSize);
+
+        final LongBuffer originalQueueIds = slice(buffer, HEADER_SIZE_FULL_QUEUES + 8 * queueSize, 8 * queueSize).asLongBuffer();
+        final IntBuffer queueIndexes = slice(buffer, HEADER_SIZE_FULL_QUEUES + 16 * queueSize, 4 * queueSize).asIntBuffer();
+        return new QueueSnapshot(generation, originalQueueIds, queueSize, queueIndexes, null, null, null);
+    }
+
+    private static void checkLength(@NonNull ByteBuffer buffer, long expectedLength) throws IOException {
+        if (buffer.limit() != expectedLength) {throw new IOException("Queue snapshot size mismatch: " + buffer.limit() + " vs " + expectedLength);}
+    }
+
+    @NonNull
+    private static ByteBuffer slice(@NonNull ByteBuffer buffer, int offset, int length) {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Write the snapshot to a temporary file, then move it in place, so that a crash never leaves a partial snapshot
+     *
+     * @param shuffleOrder The permutation the queue order derives from, if any. Only used to save the order compactly
+     */
+    public static void write(@NonNull File file, long generation,
+                             @NonNull List<IndexedSong> queue, @NonNull List<IndexedSong> originalQueue,
+                             @Nullable ShufflePermutation shuffleOrder) throws IOException {
+        final int size = queue.size();
+        if (size != originalQueue.size()) {throw new IOException("Mismatching queue sizes " + size + " vs " + originalQueue.size());}
+        final ShufflePermutation baseOrder = (shuffleOrder != null && shuffleOrder.size <= size) ? shuffleOrder : null;
+
+        // Compare the order with its base one, an exception costing twice as much as an explicit index
+        int exceptionCount = 0;
+        final int maxExceptionCount = size / 2;
+        for (int i = 0; i < size && exceptionCount <= maxExceptionCount; ++i) {
+            if (queue.get(i).index != getBaseIndexAt(baseOrder, i)) {++exceptionCount;}
+        }
+        final int orderType;
+        if (exceptionCount > maxExceptionCount) {orderType = ORDER_EXPLICIT;}
+        else if (baseOrder != null) {orderType = ORDER_SHUFFLED;}
+        else {orderType = ORDER_IDENTITY;}
+
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(tempFile, false)) {
+            final FileChannel channel = stream.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.putLong(generation);
+            buffer.putInt(size);
+            buffer.putInt(size);
+            buffer.putInt(orderType);
+            buffer.putInt(orderType == ORDER_SHUFFLED ? baseOrder.size : 0);
+            buffer.putLong(orderType == ORDER_SHUFFLED ? baseOrder.seed : 0L);
+            buffer.putInt(orderType == ORDER_SHUFFLED ? baseOrder.head : ShufflePermutation.NO_HEAD);
+            buffer.putInt(orderType == ORDER_EXPLICIT ? 0 : exceptionCount);
+
+            for (IndexedSong song : originalQueue) {
+                if (buffer.remaining() < 8) {drain(channel, buffer);}
+                buffer.putLong(song.id);
+            }
+            if (orderType == ORDER_EXPLICIT) {
+                for (IndexedSong song : queue) {
+                    if (buffer.remaining() < 4) {drain(channel, buffer);}
+                    buffer.putInt(song.index);
+                }
+            } else {
+                for (int i = 0; i < size; ++i) {
+                    if (queue.get(i).index == getBaseIndexAt(baseOrder, i)) {continue;}
+                    if (buffer.remaining() < 4) {drain(channel, buffer);}
+                    buffer.putInt(i);
+                }
+                for (int i = 0; i < size; ++i) {
+                    final int index = queue.get(i).index;
+                    if (index == getBaseIndexAt(baseOrder, i)) {continue;}
+                    if (buffer.remaining() < 4) {drain(channel, buffer);}
+                    buffer.putInt(index);
+                }
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Cannot move queue snapshot in place " + file);
+        }
+    }
+
+    private static void drain(@NonNull FileChannel channel, @NonNull ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
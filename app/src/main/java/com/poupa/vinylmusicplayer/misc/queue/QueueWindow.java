@@ -0,0 +1,99 @@
+package com.poupa.vinylmusicplayer.misc.queue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.poupa.vinylmusicplayer.model.Song;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A slice of the saved playing queue around the saved position.
+ * It is enough to resume the playback, while the rest of the queue is still being restored.
+ */
+public class QueueWindow {
+    private final int start;
+    private final int end;
+    private final int fullQueueSize;
+    @NonNull private final ArrayList<IndexedSong> songs;
+    // For each song kept in the window, its offset from the window start, orphan songs being skipped
+    @NonNull private final int[] offsets;
+
+    /**
+     * @param start Position of the first song of the window in the full queue
+     * @param windowSongs Songs of the window, the songs removed from the library being marked as Song.EMPTY_SONG
+     * @param fullQueueSize Size of the full queue, including the songs removed from the library
+     */
+    public QueueWindow(int start, @NonNull List<? extends Song> windowSongs, int fullQueueSize) {
+        this.start = start;
+        this.end = start + windowSongs.size();
+        this.fullQueueSize = fullQueueSize;
+
+        songs = new ArrayList<>(windowSongs.size());
+        offsets = new int[windowSongs.size()];
+        for (int i = 0; i < windowSongs.size(); ++i) {
+            final Song song = windowSongs.get(i);
+            if (song.id == Song.EMPTY_SONG.id) {continue;}
+
+            offsets[songs.size()] = i;
+            // Within the window, the play order is the original order
+            songs.add(new IndexedSong(song, songs.size(), IndexedSong.INVALID_INDEX));
+        }
+    }
+
+    public boolean isEmpty() {
+        return songs.isEmpty();
+    }
+
+    /**
+     * @param fullQueuePosition The saved position, in the full queue
+     * @return A queue with the songs of the window, positioned at the saved song or the next one kept
+     */
+    @Nullable
+    public StaticPlayingQueue createQueue(int fullQueuePosition, int shuffleMode, int repeatMode) {
+        if (songs.isEmpty()) {return null;}
+
+        int position = songs.size() - 1;
+        for (int i = 0; i < songs.size(); ++i) {
+            if (start + offsets[i] >= fullQueuePosition) {
+                position = i;
+                break;
+            }
+        }
+        return new StaticPlayingQueue(songs, new ArrayList<>(songs), position, shuffleMode, repeatMode);
+    }
+
+    /**
+     * @return The position in the full queue, as saved, of the song at the given position of the window queue
+     */
+    public int toFullQueuePosition(int windowPosition) {
+        if (windowPosition < 0 || windowPosition >= songs.size()) {return StaticPlayingQueue.INVALID_POSITION;}
+        return start + offsets[windowPosition];
+    }
+
+    /**
+     * Within the window, the songs removed from the library are skipped, as they are in the restored queue.
+     * Hence the positions of the window songs in the restored queue differ by the same offset.
+     *
+     * @param restoredQueue The full playing queue as restored, with the removed songs still marked as Song.EMPTY_SONG
+     * @return The offset to add to the positions of the window, to get the same songs in the restored queue
+     */
+    public int getRestoredQueueOffset(@NonNull List<? extends Song> restoredQueue) {
+        int removedSongs = 0;
+        final int count = Math.min(start, restoredQueue.size());
+        for (int i = 0; i < count; ++i) {
+            if (restoredQueue.get(i).id == Song.EMPTY_SONG.id) {++removedSongs;}
+        }
+        return start - removedSongs;
+    }
+
+    /**
+     * @return Whether moving on from the given position may need songs that are outside of the window
+     */
+    public boolean isAtEdge(int windowPosition) {
+        // When repeating, the first and last songs of the queue are next to each other
+        final boolean isPartial = (start > 0) || (end < fullQueueSize);
+        return isPartial && ((windowPosition <= 0) || (windowPosition >= songs.size() - 1));
+    }
+}
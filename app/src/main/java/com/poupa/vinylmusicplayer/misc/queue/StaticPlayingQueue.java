@@ -4,11 +4,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.poupa.vinylmusicplayer.helper.ShuffleHelper;
+import com.poupa.vinylmusicplayer.helper.ShufflePermutation;
 import com.poupa.vinylmusicplayer.model.Song;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Random;
 
 public class StaticPlayingQueue {
 
@@ -29,11 +31,24 @@ public class StaticPlayingQueue {
 
     /** List of element currently saved (way better than songs to ensure only the correct occurrence of a song is modified) */
     private ArrayList<IndexedSong> queue;
-    /** Copy of the queue used to allow revert of history last operation */
+    /**
+     * The queue in its unshuffled order, used to allow revert of history last operation.
+     * Both lists share the same entries, the index of an entry being its position in this list.
+     */
     private final ArrayList<IndexedSong> originalQueue;
 
     private long nextUniqueId;
 
+    /** Source of the seeds of the shuffle operations, a seed being journaled along with its operation */
+    private final Random shuffleSeeds = new Random();
+    @Nullable
+    private QueueJournal.Listener journalListener;
+    /** Permutation giving the order of the queue as of its last shuffle, the queue may have been modified since */
+    @Nullable
+    private ShufflePermutation shuffleOrder;
+    /** Whether the full queue shuffles spread the artists and albums apart, see {@link ShuffleHelper#makeSpreadShuffleList} */
+    private boolean spreadShuffle;
+
     public StaticPlayingQueue() {
         queue = new ArrayList<>();
         originalQueue = new ArrayList<>();
@@ -52,8 +67,14 @@ public class StaticPlayingQueue {
             throw new IllegalArgumentException("Queue size=" + queueSize + " vs position=" + restoredPosition);
         }
 
-        this.queue = new ArrayList<>(restoreQueue);
         this.originalQueue = new ArrayList<>(restoreOriginalQueue);
+        // Share the entries of the original queue, instead of keeping a copy of each song per list
+        this.queue = new ArrayList<>(queueSize);
+        for (IndexedSong song : restoreQueue) {
+            final int index = song.index;
+            final boolean isShared = (index >= 0) && (index < queueSize) && (originalQueue.get(index).id == song.id);
+            queue.add(isShared ? originalQueue.get(index) : song);
+        }
         this.shuffleMode = shuffleMode;
         this.repeatMode = repeatMode;
 
@@ -63,7 +84,7 @@ public class StaticPlayingQueue {
         // See MusicPlaybackQueueStore.getSongPosition
         for (int i = queueSize - 1; i >= 0; --i) {
             if (restoreQueue.get(i).id == Song.EMPTY_SONG.id) {
-                remove(i);
+                removeImpl(i);
             }
         }
 
@@ -71,8 +92,35 @@ public class StaticPlayingQueue {
     }
 
     public void restoreMode(int shuffleMode, int repeatMode) {
+        final boolean shuffleModeChanged = (this.shuffleMode != shuffleMode);
         this.shuffleMode = shuffleMode;
         this.repeatMode = repeatMode;
+
+        if (shuffleModeChanged) {record(QueueJournal.Operation.shuffleMode(shuffleMode));}
+    }
+
+    /**
+     * Get notified of every modification of the queue content, for incremental persistence
+     */
+    public void setJournalListener(@Nullable final QueueJournal.Listener listener) {
+        journalListener = listener;
+    }
+
+    private void record(@NonNull final QueueJournal.Operation operation) {
+        if (journalListener != null) {
+            journalListener.onOperation(operation);
+        }
+    }
+
+    private void recordShuffle(@NonNull final QueueJournal.Operation operation) {
+        // The spread order depends on the song tags, that may differ at replay time
+        if (spreadShuffle && shuffleMode == SHUFFLE_MODE_SHUFFLE) {
+            if (journalListener != null) {
+                journalListener.onUnjournaledChange();
+            }
+        } else {
+            record(operation);
+        }
     }
 
     private void restoreUniqueId() {
@@ -102,50 +150,61 @@ public class StaticPlayingQueue {
      * Add song at the end of both list
       */
     public void add(Song song) {
-        long uniqueId = getNextUniqueId();
-        queue.add(new IndexedSong(song, queue.size(), uniqueId));
-        originalQueue.add(new IndexedSong(song, originalQueue.size(), uniqueId));
+        addImpl(song);
+        record(QueueJournal.Operation.add(song.id));
+    }
+
+    private void addImpl(Song song) {
+        final IndexedSong entry = new IndexedSong(song, originalQueue.size(), getNextUniqueId());
+        queue.add(entry);
+        originalQueue.add(entry);
     }
 
     /**
      * Add list of song at the end of both list
      */
     public void addAll(@NonNull final Collection<? extends Song> songs) {
+        addAll(songs, shuffleSeeds.nextLong());
+    }
+
+    void addAll(@NonNull final Collection<? extends Song> songs, long seed) {
+        addAllImpl(songs, seed);
+        record(QueueJournal.Operation.addAll(songs, seed));
+    }
+
+    private void addAllImpl(@NonNull final Collection<? extends Song> songs, long seed) {
         final int position = size();
         for (Song song : songs) {
-            add(song);
+            addImpl(song);
         }
 
         if (getShuffleMode() == SHUFFLE_MODE_SHUFFLE) {
-            ShuffleHelper.makeShuffleList(queue.subList(position, queue.size()), 0);
+            ShuffleHelper.makeShuffleList(queue.subList(position, queue.size()), 0, seed);
         }
     }
 
-    private void updateQueueIndexesAfterSongsModification(int position, int occurrence, int previousPosition, int direction) {
-        for (int i = 0; i < queue.size(); i++) {
+    /**
+     * The entries being shared by both lists, renumbering the original queue updates the queue too
+     */
+    private void updateQueueIndexesAfterSongsModification(int previousPosition) {
+        for (int i = previousPosition; i < originalQueue.size(); i++) {
             originalQueue.get(i).index = i;
-
-            if (!(i >= position && i <= position+occurrence) && queue.get(i).index >= previousPosition  ) {
-                queue.get(i).index = queue.get(i).index + direction*(occurrence + 1);
-
-                int index = queue.get(i).index;
-                if (index < 0) {throw new IllegalArgumentException("Bad index=" + index);}
-            }
         }
     }
 
     private void addOneSong(int position, int previousPosition, Song song) {
-        long uniqueId = getNextUniqueId();
-        originalQueue.add(previousPosition, new IndexedSong(song, previousPosition, uniqueId));
-        queue.add(position, new IndexedSong(song, previousPosition, uniqueId));
+        final IndexedSong entry = new IndexedSong(song, previousPosition, getNextUniqueId());
+        originalQueue.add(previousPosition, entry);
+        queue.add(position, entry);
 
-        updateQueueIndexesAfterSongsModification(position, 0, previousPosition, +1);
+        updateQueueIndexesAfterSongsModification(previousPosition);
     }
 
     /**
      * Add song after and including position, numbering need to be redone for every song after this position (+1)
      */
-    public void addAfter(int position, Song song) {
+    public void addAfter(final int requestedPosition, Song song) {
+        int position = requestedPosition;
         int queueSize = queue.size();
         if (position >= queueSize) {
             position = queueSize - 1;
@@ -158,6 +217,8 @@ public class StaticPlayingQueue {
         if (position < this.currentPosition) {
             this.currentPosition++;
         }
+
+        record(QueueJournal.Operation.addAfter(requestedPosition, song.id));
     }
 
     /**
@@ -171,15 +232,26 @@ public class StaticPlayingQueue {
         if (position <= this.currentPosition) {
             this.currentPosition++;
         }
+
+        record(QueueJournal.Operation.addBackTo(position, previousPosition, song.id));
     }
 
     /**
      * Add songs after and including position, numbering need to be redone for every song after this position (+number of song)
      */
     public void addAllAfter(int position, @NonNull Collection<? extends Song> songs) {
+        addAllAfter(position, songs, shuffleSeeds.nextLong());
+    }
+
+    void addAllAfter(final int requestedPosition, @NonNull Collection<? extends Song> songs, long seed) {
+        addAllAfterImpl(requestedPosition, songs, seed);
+        record(QueueJournal.Operation.addAllAfter(requestedPosition, songs, seed));
+    }
+
+    private void addAllAfterImpl(int position, @NonNull Collection<? extends Song> songs, long seed) {
         final int queueSize = queue.size();
         if (queueSize == 0) {
-            addAll(songs);
+            addAllImpl(songs, seed);
             return;
         }
 
@@ -192,21 +264,18 @@ public class StaticPlayingQueue {
         int n = songs.size() - 1;
         final List<Song> songsAsList = new ArrayList<>(songs);
         for (int i = n; i >= 0; i--) {
-            int newPosition = previousPosition + i;
-            long uniqueId = getNextUniqueId();
-
-            // Note: Two separate copies in for two queues
-            originalQueue.add(previousPosition, new IndexedSong(songsAsList.get(i), newPosition, uniqueId));
-            queue.add(position, new IndexedSong(songsAsList.get(i), newPosition, uniqueId));
+            final IndexedSong entry = new IndexedSong(songsAsList.get(i), previousPosition + i, getNextUniqueId());
+            originalQueue.add(previousPosition, entry);
+            queue.add(position, entry);
 
             if (position <= this.currentPosition) {
                 this.currentPosition++;
             }
         }
 
-        updateQueueIndexesAfterSongsModification(position, n, previousPosition, +1);
+        updateQueueIndexesAfterSongsModification(previousPosition);
         if (getShuffleMode() == SHUFFLE_MODE_SHUFFLE) {
-            ShuffleHelper.makeShuffleList(queue.subList(position, position + songs.size()), 0);
+            ShuffleHelper.makeShuffleList(queue.subList(position, position + songs.size()), 0, seed);
         }
     }
 
@@ -224,10 +293,7 @@ public class StaticPlayingQueue {
             IndexedSong previousSongToMove = originalQueue.remove(from);
             originalQueue.add(to, previousSongToMove);
 
-            for (int i = 0; i < queue.size(); i++) {
-                queue.get(i).index = i;
-                originalQueue.get(i).index = i;
-            }
+            updateQueueIndexesAfterSongsModification(Math.min(from, to));
         }
 
         if (from > currentPosition && to <= currentPosition) {
@@ -237,6 +303,8 @@ public class StaticPlayingQueue {
         } else if (from == currentPosition) {
             this.currentPosition = to;
         }
+
+        record(QueueJournal.Operation.move(from, to));
     }
 
     private int rePosition(int deletedPosition) {
@@ -259,10 +327,16 @@ public class StaticPlayingQueue {
      * Remove song at index position, numbering need to be redone for every song after this position (-1)
      */
     public int remove(int position) {
+        final int newPosition = removeImpl(position);
+        record(QueueJournal.Operation.remove(position));
+        return newPosition;
+    }
+
+    private int removeImpl(int position) {
         IndexedSong o = queue.remove(position);
         originalQueue.remove(o.index);
 
-        updateQueueIndexesAfterSongsModification(-1, 0, o.index, -1);
+        updateQueueIndexesAfterSongsModification(o.index);
 
         return rePosition(position);
     }
@@ -272,7 +346,7 @@ public class StaticPlayingQueue {
 
         for (int i = queue.size() - 1; i >= 0; i--) {
             if (queue.get(i).id == song.id) {
-                int temp = remove(i);
+                int temp = removeImpl(i);
                 if (temp != INVALID_POSITION) {
                     hasPositionChanged = temp;
                 }
@@ -292,12 +366,19 @@ public class StaticPlayingQueue {
             }
         }
 
+        record(QueueJournal.Operation.removeSongs(songs));
         return hasPositionChanged;
     }
 
     public void clear() {
+        clearImpl();
+        record(QueueJournal.Operation.clear());
+    }
+
+    private void clearImpl() {
         queue.clear();
         originalQueue.clear();
+        shuffleOrder = null;
 
         restoreUniqueId();
     }
@@ -309,17 +390,22 @@ public class StaticPlayingQueue {
     /* -------------------- queue getter info -------------------- */
 
     public boolean openQueue(@Nullable final Collection<? extends Song> playingQueue, final int startPosition, int shuffleMode) {
+        return openQueue(playingQueue, startPosition, shuffleMode, shuffleSeeds.nextLong());
+    }
+
+    boolean openQueue(@Nullable final Collection<? extends Song> playingQueue, final int startPosition, int shuffleMode, long seed) {
         if (playingQueue == null || playingQueue.isEmpty() || startPosition < 0 || startPosition >= playingQueue.size()) {
             return false;
         }
 
-        clear();
+        clearImpl();
         this.shuffleMode = SHUFFLE_MODE_NONE;
-        addAll(playingQueue);
+        addAllImpl(playingQueue, seed);
 
         this.currentPosition = startPosition;
-        setShuffle(shuffleMode);
+        setShuffleImpl(shuffleMode, seed);
 
+        recordShuffle(QueueJournal.Operation.open(playingQueue, startPosition, shuffleMode, seed));
         return true;
     }
 
@@ -429,6 +515,19 @@ public class StaticPlayingQueue {
     /* -------------------- shuffle method -------------------- */
 
     public void setShuffle(int shuffleMode) {
+        setShuffle(shuffleMode, shuffleSeeds.nextLong());
+    }
+
+    void setShuffle(int shuffleMode, long seed) {
+        if (this.shuffleMode == shuffleMode)
+            return;
+
+        final int positionBeforeShuffle = currentPosition;
+        setShuffleImpl(shuffleMode, seed);
+        recordShuffle(QueueJournal.Operation.shuffle(shuffleMode, positionBeforeShuffle, seed));
+    }
+
+    private void setShuffleImpl(int shuffleMode, long seed) {
         if (this.shuffleMode == shuffleMode)
             return;
 
@@ -436,9 +535,18 @@ public class StaticPlayingQueue {
             case SHUFFLE_MODE_NONE:
                 currentPosition = queue.isEmpty() ? -1 : queue.get(currentPosition).index;
                 revert();
+                shuffleOrder = null;
                 break;
             case SHUFFLE_MODE_SHUFFLE:
-                ShuffleHelper.makeShuffleList(queue, currentPosition);
+                if (spreadShuffle) {
+                    ShuffleHelper.makeSpreadShuffleList(queue, currentPosition, seed,
+                            song -> song.artistNames,
+                            song -> song.albumId);
+                    shuffleOrder = null;
+                } else {
+                    // Unshuffled, the queue is in the original order, hence the permutation maps the positions to the original indexes
+                    shuffleOrder = ShuffleHelper.makeShuffleList(queue, currentPosition, seed);
+                }
                 currentPosition = 0;
                 break;
         }
@@ -446,6 +554,13 @@ public class StaticPlayingQueue {
         this.shuffleMode = shuffleMode;
     }
 
+    /**
+     * Applies to the next shuffles of the whole queue, the songs added to a shuffled queue being shuffled among themselves only
+     */
+    public void setSpreadShuffle(boolean spreadShuffle) {
+        this.spreadShuffle = spreadShuffle;
+    }
+
     public void toggleShuffle() {
         switch (shuffleMode) {
             case SHUFFLE_MODE_NONE:
@@ -461,6 +576,18 @@ public class StaticPlayingQueue {
         return shuffleMode;
     }
 
+    /**
+     * @return The permutation from which the queue order derives, if any. See {@link QueueSnapshot}
+     */
+    @Nullable
+    public ShufflePermutation getShuffleOrder() {
+        return shuffleOrder;
+    }
+
+    public void restoreShuffleOrder(@Nullable final ShufflePermutation shuffleOrder) {
+        this.shuffleOrder = shuffleOrder;
+    }
+
     /* -------------------- repeat method -------------------- */
     public void setRepeatMode(final int repeatMode) {
         if (this.repeatMode == repeatMode)
@@ -11,6 +11,7 @@ import com.poupa.vinylmusicplayer.util.MusicUtil;
 
 import org.jetbrains.annotations.NonNls;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -69,8 +70,8 @@ public class Playlist implements Parcelable {
     @NonNull
     public List<? extends Song> getSongs(Context context) {
         // this default implementation covers static playlists
-        StaticPlaylist staticPlaylist = new StaticPlaylist(name);
-        return staticPlaylist.asSongs();
+        StaticPlaylist staticPlaylist = StaticPlaylist.getPlaylist(name);
+        return (staticPlaylist != null) ? staticPlaylist.asSongs() : new ArrayList<>();
     }
 
     @Override
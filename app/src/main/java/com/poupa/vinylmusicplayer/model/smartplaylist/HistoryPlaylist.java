@@ -52,6 +52,7 @@ public class HistoryPlaylist extends AbsSmartPlaylist {
     @Override
     public void clear(@NonNull Context context) {
         HistoryStore.getInstance(context).clear();
+        SmartPlaylistCache.getInstance().onHistoryCleared();
         super.clear(context);
     }
 
@@ -65,6 +66,7 @@ public class HistoryPlaylist extends AbsSmartPlaylist {
         for (Song song : songs) {songIds.add(song.id);}
 
         HistoryStore.getInstance(context).addSongIds(songIds);
+        SmartPlaylistCache.getInstance().onSongsPlayed(songIds, System.currentTimeMillis());
         super.importPlaylist(context, playlist);
     }
 
@@ -30,6 +30,7 @@ public class MyTopTracksPlaylist extends AbsSmartPlaylist {
     @Override
     public void clear(@NonNull Context context) {
         SongPlayCountStore.getInstance(context).clear();
+        SmartPlaylistCache.getInstance().onPlayCountsChanged();
         super.clear(context);
     }
 
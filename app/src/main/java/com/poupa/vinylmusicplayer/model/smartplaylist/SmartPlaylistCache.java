@@ -0,0 +1,347 @@
+package com.poupa.vinylmusicplayer.model.smartplaylist;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.poupa.vinylmusicplayer.App;
+import com.poupa.vinylmusicplayer.discog.Discography;
+import com.poupa.vinylmusicplayer.model.Song;
+import com.poupa.vinylmusicplayer.provider.HistoryStore;
+import com.poupa.vinylmusicplayer.provider.SongPlayCountStore;
+import com.poupa.vinylmusicplayer.provider.StoreLoader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Materialized content of the smart playlists, so that opening them costs the size of the result,
+ * not the size of the library or of the history.
+ *
+ * Built on first use from the discography and the history store, then kept up to date
+ * from the play events and the per-song library changes.
+ * The top tracks are read from their (indexed) store, and kept until the play counts change.
+ *
+ * Locking: the discography notifies its changes while locked, hence this cache never calls
+ * into the discography or into the stores while holding its own lock.
+ */
+public class SmartPlaylistCache implements Discography.SongsChangedListener {
+    // The plays are persisted asynchronously, keep the latest ones to replay them when building
+    private static final int MAX_UNSAVED_PLAYS = 100;
+
+    private static final Comparator<Song> BY_DATE_ADDED = Comparator.<Song>comparingLong(s -> s.dateAdded)
+            .thenComparingLong(s -> s.id);
+    private static final Comparator<HistoryEntry> BY_TIME_PLAYED = Comparator.<HistoryEntry>comparingLong(e -> e.timePlayed)
+            .thenComparingLong(e -> e.sequence);
+
+    @Nullable
+    private static SmartPlaylistCache sInstance = null;
+
+    private static final class HistoryEntry {
+        final long songId;
+        final long timePlayed;
+        // tie breaker between plays at the same time, later plays sort after
+        final long sequence;
+
+        HistoryEntry(long songId, long timePlayed, long sequence) {
+            this.songId = songId;
+            this.timePlayed = timePlayed;
+            this.sequence = sequence;
+        }
+    }
+
+    // Serializes the builds, never taken by the discography notifications
+    private final Object buildLock = new Object();
+
+    // Guarded by this
+    private boolean built = false;
+    @Nullable private ArrayList<Consumer<SmartPlaylistCache>> changesDuringBuild = null;
+    private final ArrayDeque<HistoryEntry> unsavedPlays = new ArrayDeque<>();
+    private final HashMap<Long, Song> songsById = new HashMap<>();
+    private final TreeSet<Song> songsByDateAdded = new TreeSet<>(BY_DATE_ADDED);
+    private final TreeSet<Song> neverPlayedSongs = new TreeSet<>(BY_DATE_ADDED);
+    private final HashMap<Long, HistoryEntry> historyById = new HashMap<>();
+    private final TreeSet<HistoryEntry> history = new TreeSet<>(BY_TIME_PLAYED);
+    private long nextSequence = 0;
+
+    @Nullable private ArrayList<Long> topTrackIds = null;
+    private int topTrackCount = 0;
+    private long topTracksGeneration = 0;
+
+    @NonNull
+    public static synchronized SmartPlaylistCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new SmartPlaylistCache();
+            Discography.getInstance().addSongsChangedListener(sInstance);
+        }
+        return sInstance;
+    }
+
+    private SmartPlaylistCache() {}
+
+    @NonNull
+    private static Context getContext() {
+        return App.getInstance().getApplicationContext();
+    }
+
+    private void ensureBuilt() {
+        synchronized (buildLock) {
+            synchronized (this) {
+                if (built) {return;}
+                changesDuringBuild = new ArrayList<>();
+            }
+
+            // Read the sources unlocked, the changes meanwhile are queued and replayed after
+            final ArrayList<Song> songs = Discography.getInstance().getAllSongs(null);
+            final Map<Long, Long> playTimes = HistoryStore.getInstance(getContext()).getPlayTimes();
+
+            synchronized (this) {
+                songsById.clear();
+                songsByDateAdded.clear();
+                neverPlayedSongs.clear();
+                historyById.clear();
+                history.clear();
+
+                for (Map.Entry<Long, Long> playTime : playTimes.entrySet()) {
+                    final HistoryEntry entry = new HistoryEntry(playTime.getKey(), playTime.getValue(), nextSequence++);
+                    historyById.put(entry.songId, entry);
+                    history.add(entry);
+                }
+                for (Song song : songs) {applySongAdded(song);}
+
+                for (Consumer<SmartPlaylistCache> change : changesDuringBuild) {change.accept(this);}
+                changesDuringBuild = null;
+                for (HistoryEntry play : unsavedPlays) {applyPlayed(play.songId, play.timePlayed);}
+
+                built = true;
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // Queries
+
+    /**
+     * @return The ids of the songs played after the cutoff, the most recent first
+     */
+    @NonNull
+    public ArrayList<Long> getRecentlyPlayedIds(long cutoffMillis) {
+        ensureBuilt();
+        synchronized (this) {
+            final ArrayList<Long> songIds = new ArrayList<>();
+            final Iterator<HistoryEntry> entries = history.descendingIterator();
+            while (entries.hasNext()) {
+                final HistoryEntry entry = entries.next();
+                if (entry.timePlayed <= cutoffMillis) {break;}
+                songIds.add(entry.songId);
+            }
+            return songIds;
+        }
+    }
+
+    /**
+     * @return The ids of the songs played before the cutoff, the least recent first
+     */
+    @NonNull
+    public ArrayList<Long> getNotRecentlyPlayedIds(long cutoffMillis) {
+        ensureBuilt();
+        synchronized (this) {
+            final ArrayList<Long> songIds = new ArrayList<>();
+            for (HistoryEntry entry : history) {
+                if (entry.timePlayed >= cutoffMillis) {break;}
+                songIds.add(entry.songId);
+            }
+            return songIds;
+        }
+    }
+
+    /**
+     * @return The songs never played, in the given order
+     */
+    @NonNull
+    public ArrayList<Song> getNeverPlayedSongs(@NonNull Comparator<Song> sortOrder) {
+        ensureBuilt();
+        final ArrayList<Song> songs;
+        synchronized (this) {
+            songs = new ArrayList<>(neverPlayedSongs);
+        }
+        songs.sort(sortOrder);
+        return songs;
+    }
+
+    /**
+     * @return The songs added after the cutoff, in the given order
+     */
+    @NonNull
+    public ArrayList<Song> getSongsAddedAfter(long cutoffSecs, @NonNull Comparator<Song> sortOrder) {
+        ensureBuilt();
+        final ArrayList<Song> songs = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Song> iterator = songsByDateAdded.descendingIterator();
+            while (iterator.hasNext()) {
+                final Song song = iterator.next();
+                if (song.dateAdded <= cutoffSecs) {break;}
+                songs.add(song);
+            }
+        }
+        songs.sort(sortOrder);
+        return songs;
+    }
+
+    /**
+     * @return The ids of the most played songs, the most played first
+     */
+    @NonNull
+    public ArrayList<Long> getTopTrackIds(int count) {
+        final long generation;
+        synchronized (this) {
+            if (topTrackIds != null && topTrackCount == count) {return new ArrayList<>(topTrackIds);}
+            generation = topTracksGeneration;
+        }
+
+        final ArrayList<Long> songIds;
+        try (Cursor cursor = SongPlayCountStore.getInstance(getContext()).getTopPlayedResults(count)) {
+            songIds = StoreLoader.getIdsFromCursor(cursor, SongPlayCountStore.SongPlayCountColumns.ID);
+        }
+        synchronized (this) {
+            // Do not keep the result if the play counts changed during the read
+            if (generation == topTracksGeneration) {
+                topTrackIds = songIds;
+                topTrackCount = count;
+            }
+        }
+        return new ArrayList<>(songIds);
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // Play events
+
+    public void onSongPlayed(long songId, long timePlayed) {
+        onSongsPlayed(List.of(songId), timePlayed);
+    }
+
+    public synchronized void onSongsPlayed(@NonNull List<Long> songIds, long timePlayed) {
+        for (long songId : songIds) {
+            unsavedPlays.addLast(new HistoryEntry(songId, timePlayed, 0));
+            if (unsavedPlays.size() > MAX_UNSAVED_PLAYS) {unsavedPlays.removeFirst();}
+            if (built) {applyPlayed(songId, timePlayed);}
+        }
+    }
+
+    public synchronized void onHistoryCleared() {
+        unsavedPlays.clear();
+        if (built) {applyHistoryCleared();}
+        else if (changesDuringBuild != null) {changesDuringBuild.add(SmartPlaylistCache::applyHistoryCleared);}
+    }
+
+    private void applyHistoryCleared() {
+        historyById.clear();
+        history.clear();
+        neverPlayedSongs.clear();
+        neverPlayedSongs.addAll(songsByDateAdded);
+    }
+
+    /**
+     * To be called once these songs are removed from the history store
+     */
+    public synchronized void onHistoryRemoved(@NonNull List<Long> songIds) {
+        final HashSet<Long> removedIds = new HashSet<>(songIds);
+        unsavedPlays.removeIf(play -> removedIds.contains(play.songId));
+        if (built) {applyHistoryRemoved(removedIds);}
+        else if (changesDuringBuild != null) {changesDuringBuild.add(cache -> cache.applyHistoryRemoved(removedIds));}
+    }
+
+    private void applyHistoryRemoved(@NonNull Collection<Long> songIds) {
+        for (long songId : songIds) {
+            final HistoryEntry entry = historyById.remove(songId);
+            if (entry != null) {history.remove(entry);}
+
+            final Song song = songsById.get(songId);
+            if (song != null) {neverPlayedSongs.add(song);}
+        }
+    }
+
+    /**
+     * To be called once the play count store is modified
+     */
+    public synchronized void onPlayCountsChanged() {
+        ++topTracksGeneration;
+        topTrackIds = null;
+    }
+
+    private void applyPlayed(long songId, long timePlayed) {
+        final HistoryEntry previous = historyById.get(songId);
+        if (previous != null) {
+            if (previous.timePlayed > timePlayed) {return;}
+            history.remove(previous);
+        }
+        final HistoryEntry entry = new HistoryEntry(songId, timePlayed, nextSequence++);
+        historyById.put(songId, entry);
+        history.add(entry);
+
+        final Song song = songsById.get(songId);
+        if (song != null) {neverPlayedSongs.remove(song);}
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // Library changes
+
+    @Override
+    public synchronized void onSongAdded(@NonNull final Song song) {
+        if (built) {applySongAdded(song);}
+        else if (changesDuringBuild != null) {changesDuringBuild.add(cache -> cache.applySongAdded(song));}
+    }
+
+    @Override
+    public synchronized void onSongsRemoved(@NonNull final Collection<Long> songIds) {
+        if (built) {applySongsRemoved(songIds);}
+        else if (changesDuringBuild != null) {
+            final ArrayList<Long> removedIds = new ArrayList<>(songIds);
+            changesDuringBuild.add(cache -> cache.applySongsRemoved(removedIds));
+        }
+    }
+
+    @Override
+    public synchronized void onSongsCleared() {
+        if (built) {applySongsCleared();}
+        else if (changesDuringBuild != null) {changesDuringBuild.add(SmartPlaylistCache::applySongsCleared);}
+    }
+
+    private void applySongAdded(@NonNull final Song song) {
+        final Song previous = songsById.put(song.id, song);
+        if (previous != null) {
+            songsByDateAdded.remove(previous);
+            neverPlayedSongs.remove(previous);
+        }
+        songsByDateAdded.add(song);
+        if (!historyById.containsKey(song.id)) {neverPlayedSongs.add(song);}
+    }
+
+    private void applySongsRemoved(@NonNull final Collection<Long> songIds) {
+        for (long songId : songIds) {
+            final Song song = songsById.remove(songId);
+            if (song != null) {
+                songsByDateAdded.remove(song);
+                neverPlayedSongs.remove(song);
+            }
+            // The history store is cleaned up when the playlist meets the orphan
+        }
+    }
+
+    private void applySongsCleared() {
+        songsById.clear();
+        songsByDateAdded.clear();
+        neverPlayedSongs.clear();
+    }
+}
@@ -0,0 +1,202 @@
+package com.poupa.vinylmusicplayer.provider;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.palette.graphics.Palette;
+
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverKey;
+import com.poupa.vinylmusicplayer.util.OopsHandler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Storage of the palette swatches extracted from the covers, by cover key.
+ *
+ * The palette of a cover is computed once, then rebuilt from its swatches,
+ * whatever the size the cover is displayed at.
+ * All the swatches are kept in memory once loaded, so that the colors can be painted before the cover is decoded.
+ */
+public class CoverPaletteStore extends SQLiteOpenHelper {
+    public static final String DATABASE_NAME = "cover_palettes.db";
+    private static final int VERSION = 1;
+
+    // Album id for the covers not keyed by album
+    private static final long NO_ALBUM = -1;
+
+    @Nullable
+    private static CoverPaletteStore sInstance = null;
+
+    private static final Executor writeExecutor = Executors.newSingleThreadExecutor();
+
+    // Cover key -> swatches, as pairs of (color, population)
+    private final HashMap<String, int[]> swatchesByKey = new HashMap<>();
+    private boolean loaded = false;
+
+    public CoverPaletteStore(final Context context) {
+        super(context, DATABASE_NAME, null, VERSION);
+    }
+
+    @NonNull
+    public static synchronized CoverPaletteStore getInstance(@NonNull final Context context) {
+        if (sInstance == null) {
+            final CoverPaletteStore store = new CoverPaletteStore(context.getApplicationContext());
+            writeExecutor.execute(store::ensureLoaded);
+            sInstance = store;
+        }
+        return sInstance;
+    }
+
+    @Override
+    public void onCreate(@NonNull final SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + CoverPaletteColumns.NAME + " ("
+                + CoverPaletteColumns.COVER_KEY + " TEXT PRIMARY KEY, "
+                + CoverPaletteColumns.ALBUM_ID + " INTEGER NOT NULL, "
+                + CoverPaletteColumns.SWATCHES + " BLOB NOT NULL);");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + CoverPaletteColumns.NAME + "_" + CoverPaletteColumns.ALBUM_ID
+                + " ON " + CoverPaletteColumns.NAME + " (" + CoverPaletteColumns.ALBUM_ID + ");");
+    }
+
+    @Override
+    public void onUpgrade(@NonNull final SQLiteDatabase db, final int oldVersion, final int newVersion) {
+        // Derived data, can be computed again
+        db.execSQL("DROP TABLE IF EXISTS " + CoverPaletteColumns.NAME);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(@NonNull final SQLiteDatabase db, final int oldVersion, final int newVersion) {
+        onUpgrade(db, oldVersion, newVersion);
+    }
+
+    @WorkerThread
+    private synchronized void ensureLoaded() {
+        if (loaded) {return;}
+        loaded = true;
+
+        // Read without holding the memory copy, that the UI thread may peek at meanwhile
+        final HashMap<String, int[]> stored = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().query(CoverPaletteColumns.NAME,
+                new String[]{CoverPaletteColumns.COVER_KEY, CoverPaletteColumns.SWATCHES},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                stored.put(cursor.getString(0), unpack(cursor.getBlob(1)));
+            }
+        } catch (final RuntimeException e) {
+            OopsHandler.collectStackTrace(e);
+        }
+
+        synchronized (swatchesByKey) {
+            // Computed while loading, more recent
+            for (final String key : swatchesByKey.keySet()) {stored.remove(key);}
+            swatchesByKey.putAll(stored);
+        }
+    }
+
+    /**
+     * Without waiting for the storage, i.e. from the UI thread
+     *
+     * @return The palette of the cover, null if not known or not loaded yet
+     */
+    @Nullable
+    public Palette peek(@NonNull final CoverKey key) {
+        final int[] swatches;
+        synchronized (swatchesByKey) {
+            swatches = swatchesByKey.get(key.toString());
+        }
+        return (swatches == null) ? null : toPalette(swatches);
+    }
+
+    /**
+     * @return The palette of the cover, null if not computed yet
+     */
+    @WorkerThread
+    @Nullable
+    public Palette get(@NonNull final CoverKey key) {
+        ensureLoaded();
+        return peek(key);
+    }
+
+    public void put(@NonNull final CoverKey key, @NonNull final Palette palette) {
+        final List<Palette.Swatch> swatches = palette.getSwatches();
+        final int[] packed = new int[2 * swatches.size()];
+        for (int i = 0; i < swatches.size(); ++i) {
+            packed[2 * i] = swatches.get(i).getRgb();
+            packed[2 * i + 1] = swatches.get(i).getPopulation();
+        }
+
+        final String keyString = key.toString();
+        synchronized (swatchesByKey) {
+            swatchesByKey.put(keyString, packed);
+        }
+
+        writeExecutor.execute(() -> {
+            final long albumId = key.isAlbumKey() ? key.albumId : NO_ALBUM;
+            final SQLiteDatabase database = getWritableDatabase();
+            database.beginTransaction();
+            try {
+                // Drop the palettes of the previous versions of the album cover
+                if (albumId != NO_ALBUM) {
+                    final String[] args = {String.valueOf(albumId), keyString};
+                    database.delete(CoverPaletteColumns.NAME,
+                            CoverPaletteColumns.ALBUM_ID + " = ? AND " + CoverPaletteColumns.COVER_KEY + " != ?",
+                            args);
+                }
+
+                final ContentValues values = new ContentValues(3);
+                values.put(CoverPaletteColumns.COVER_KEY, keyString);
+                values.put(CoverPaletteColumns.ALBUM_ID, albumId);
+                values.put(CoverPaletteColumns.SWATCHES, pack(packed));
+                database.insertWithOnConflict(CoverPaletteColumns.NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+                database.setTransactionSuccessful();
+            } catch (final RuntimeException e) {
+                OopsHandler.collectStackTrace(e);
+            } finally {
+                database.endTransaction();
+            }
+        });
+    }
+
+    @NonNull
+    private static Palette toPalette(@NonNull final int[] packed) {
+        final ArrayList<Palette.Swatch> swatches = new ArrayList<>(packed.length / 2);
+        for (int i = 0; i + 1 < packed.length; i += 2) {
+            swatches.add(new Palette.Swatch(packed[i], packed[i + 1]));
+        }
+        return Palette.from(swatches);
+    }
+
+    @NonNull
+    private static byte[] pack(@NonNull final int[] values) {
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * values.length);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    @NonNull
+    private static int[] unpack(@NonNull final byte[] bytes) {
+        final int[] values = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+        return values;
+    }
+
+    public interface CoverPaletteColumns {
+        String NAME = "cover_palette";
+
+        String COVER_KEY = "cover_key";
+        String ALBUM_ID = "album_id";
+        String SWATCHES = "swatches";
+    }
+}
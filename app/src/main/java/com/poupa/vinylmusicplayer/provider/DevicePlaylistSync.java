@@ -0,0 +1,139 @@
+package com.poupa.vinylmusicplayer.provider;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.provider.MediaStore;
+
+import androidx.annotation.NonNull;
+
+import com.poupa.vinylmusicplayer.App;
+import com.poupa.vinylmusicplayer.R;
+import com.poupa.vinylmusicplayer.loader.PlaylistLoader;
+import com.poupa.vinylmusicplayer.loader.PlaylistSongLoader;
+import com.poupa.vinylmusicplayer.model.Playlist;
+import com.poupa.vinylmusicplayer.service.MusicService;
+import com.poupa.vinylmusicplayer.util.OopsHandler;
+import com.poupa.vinylmusicplayer.util.PrefKey;
+import com.poupa.vinylmusicplayer.util.SafeToast;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Import of the device (MediaStore) playlists into the static playlists.
+ *
+ * Runs in background on first use, then each time the device playlists change.
+ * Each imported playlist records the fingerprint of its device counterpart,
+ * so that only the ones changed on the device are imported again.
+ */
+final class DevicePlaylistSync {
+    private static final String PREF_MIGRATED_STATIC_PLAYLISTS = PrefKey.nonExportableKey("migrated_static_playlists");
+
+    // milliseconds to delay before syncing, to aggregate the change events
+    private static final long SYNC_DELAY = 1000;
+
+    private static final Executor syncExecutor = Executors.newSingleThreadExecutor();
+    private static boolean started = false;
+
+    private static final Runnable syncRunnable = () -> syncExecutor.execute(() -> {
+        try {
+            sync(App.getStaticContext());
+        } catch (RuntimeException e) {
+            OopsHandler.collectStackTrace(e);
+        }
+    });
+
+    private DevicePlaylistSync() {}
+
+    static synchronized void start() {
+        if (started) {return;}
+        started = true;
+
+        final Context context = App.getStaticContext();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        context.getContentResolver().registerContentObserver(
+                MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI,
+                true,
+                new ContentObserver(handler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        // Coalesce the closely spaced events, e.g. while a playlist is being written
+                        handler.removeCallbacks(syncRunnable);
+                        handler.postDelayed(syncRunnable, SYNC_DELAY);
+                    }
+                });
+
+        syncRunnable.run();
+    }
+
+    private static void sync(@NonNull final Context context) {
+        final PlaylistRegistry registry = PlaylistRegistry.getInstance();
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        final boolean noMigrationMarker = !preferences.contains(PREF_MIGRATED_STATIC_PLAYLISTS);
+
+        Set<String> previouslyMigratedNames = new HashSet<>(preferences.getStringSet(PREF_MIGRATED_STATIC_PLAYLISTS, new HashSet<>()));
+        Set<String> skippedNames = new HashSet<>();
+        Set<String> nowMigratedNames = new HashSet<>();
+        boolean imported = false;
+
+        for (Playlist playlist : PlaylistLoader.getAllPlaylists(context)) {
+            final String name = playlist.name;
+            final String fingerprint = PlaylistLoader.getPlaylistFingerprint(context, playlist.id);
+
+            StaticPlaylist internalPlaylist = registry.get(name);
+            if (internalPlaylist != null) {
+                final String importedFingerprint = internalPlaylist.getDeviceFingerprint();
+                if (importedFingerprint == null) {
+                    if (!previouslyMigratedNames.contains(name)) {
+                        // don't overwrite internal ones
+                        skippedNames.add(name);
+                        continue;
+                    }
+                    // Imported before the fingerprints, take it as it is
+                    internalPlaylist.setDeviceFingerprint(fingerprint);
+                } else if (!importedFingerprint.equals(fingerprint)) {
+                    internalPlaylist.importFromDevice(PlaylistSongLoader.getPlaylistSongList(context, playlist.id), fingerprint);
+                    imported = true;
+                }
+                nowMigratedNames.add(name);
+                continue;
+            }
+
+            internalPlaylist = registry.getOrCreate(name);
+            internalPlaylist.importFromDevice(PlaylistSongLoader.getPlaylistSongList(context, playlist.id), fingerprint);
+            imported = true;
+            nowMigratedNames.add(name);
+
+            // Note: Don't delete migrated playlists here.
+            // since playlist can be shared with other apps, this will be a destructive action
+        }
+
+        // Set a persistent marker in prefs, to avoid doing this again
+        final boolean changed = !previouslyMigratedNames.containsAll(nowMigratedNames) || !nowMigratedNames.containsAll(previouslyMigratedNames);
+        if (noMigrationMarker || changed) {
+            preferences.edit().putStringSet(PREF_MIGRATED_STATIC_PLAYLISTS, nowMigratedNames).apply();
+        }
+
+        if (imported) {
+            // The playlists may have been listed before the import, let the UI reload them
+            context.sendBroadcast(new Intent(MusicService.MEDIA_STORE_CHANGED));
+        }
+
+        if (noMigrationMarker) {
+            new Handler(context.getMainLooper()).post(() -> {
+                final String message = !skippedNames.isEmpty()
+                    ? context.getResources().getString(R.string.imported_x_skipped_x_playlists, nowMigratedNames.size(), skippedNames.size())
+                    : context.getResources().getString(R.string.imported_x_playlists, nowMigratedNames.size());
+                SafeToast.show(context, message);
+            });
+        }
+    }
+}
@@ -16,41 +16,68 @@
 
 package com.poupa.vinylmusicplayer.provider;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.poupa.vinylmusicplayer.model.Song;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 public class HistoryStore extends SQLiteOpenHelper {
     public static final String DATABASE_NAME = "history.db";
-    private static final int VERSION = 1;
+    private static final int VERSION = 2;
     @Nullable
     private static HistoryStore sInstance = null;
 
     public HistoryStore(final Context context) {
-        super(context, DATABASE_NAME, null, VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * @param name The database file name, null for an in-memory database
+     */
+    @VisibleForTesting
+    public HistoryStore(final Context context, @Nullable final String name) {
+        super(context, name, null, VERSION);
     }
 
     @Override
     public void onCreate(@NonNull final SQLiteDatabase db) {
+        // One row per song, the last time it was played
         db.execSQL("CREATE TABLE IF NOT EXISTS " + RecentStoreColumns.NAME + " ("
-                + RecentStoreColumns.ID + " LONG NOT NULL," + RecentStoreColumns.TIME_PLAYED
-                + " LONG NOT NULL);");
+                + RecentStoreColumns.ID + " INTEGER PRIMARY KEY," + RecentStoreColumns.TIME_PLAYED
+                + " INTEGER NOT NULL);");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + RecentStoreColumns.NAME + "_time ON "
+                + RecentStoreColumns.NAME + " (" + RecentStoreColumns.TIME_PLAYED + ");");
     }
 
     @Override
     public void onUpgrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + RecentStoreColumns.NAME);
-        onCreate(db);
+        if (oldVersion == 1) {
+            // Keep the history, moving it to a table keyed by song
+            final String legacyTable = RecentStoreColumns.NAME + "_v1";
+            db.execSQL("ALTER TABLE " + RecentStoreColumns.NAME + " RENAME TO " + legacyTable);
+            onCreate(db);
+            db.execSQL("INSERT OR REPLACE INTO " + RecentStoreColumns.NAME
+                    + " (" + RecentStoreColumns.ID + ", " + RecentStoreColumns.TIME_PLAYED + ")"
+                    + " SELECT " + RecentStoreColumns.ID + ", MAX(" + RecentStoreColumns.TIME_PLAYED + ")"
+                    + " FROM " + legacyTable + " GROUP BY " + RecentStoreColumns.ID);
+            db.execSQL("DROP TABLE " + legacyTable);
+        } else {
+            db.execSQL("DROP TABLE IF EXISTS " + RecentStoreColumns.NAME);
+            onCreate(db);
+        }
     }
 
     @Override
@@ -75,6 +102,15 @@ public class HistoryStore extends SQLiteOpenHelper {
     }
 
     public void addSongIds(@NonNull List<Long> songIds) {
+        addSongIds(songIds, Collections.nCopies(songIds.size(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Add several entries in one transaction
+     *
+     * @param timesPlayed The time each song was played at, in the same order as the song ids
+     */
+    public void addSongIds(@NonNull List<Long> songIds, @NonNull List<Long> timesPlayed) {
         if (songIds.isEmpty()) {
             return;
         }
@@ -82,22 +118,18 @@ public class HistoryStore extends SQLiteOpenHelper {
         final SQLiteDatabase database = getWritableDatabase();
         database.beginTransaction();
 
+        // replace the previous entry of the song, if any
+        final SQLiteStatement upsert = database.compileStatement("INSERT OR REPLACE INTO " + RecentStoreColumns.NAME
+                + " (" + RecentStoreColumns.ID + ", " + RecentStoreColumns.TIME_PLAYED + ") VALUES (?, ?)");
         try {
-            long importTime = System.currentTimeMillis();
-            final ContentValues values = new ContentValues(2);
-
-            for (long songId : songIds) {
-                // remove previous entries
-                removeSongId(database, songId);
-
-                // add the entry
-                values.clear();
-                values.put(RecentStoreColumns.ID, songId);
-                values.put(RecentStoreColumns.TIME_PLAYED, importTime);
-                database.insert(RecentStoreColumns.NAME, null, values);
+            for (int i = 0; i < songIds.size(); ++i) {
+                upsert.bindLong(1, songIds.get(i));
+                upsert.bindLong(2, timesPlayed.get(i));
+                upsert.executeInsert();
             }
             database.setTransactionSuccessful();
         } finally {
+            upsert.close();
             database.endTransaction();
         }
     }
@@ -123,6 +155,40 @@ public class HistoryStore extends SQLiteOpenHelper {
         });
     }
 
+    /**
+     * Remove the least recently played songs beyond the given number of entries
+     *
+     * @param maxEntries The number of entries to keep, 0 for no limit
+     * @return The ids of the removed songs
+     */
+    @NonNull
+    public ArrayList<Long> prune(final int maxEntries) {
+        final ArrayList<Long> prunedIds = new ArrayList<>();
+        if (maxEntries <= 0) {return prunedIds;}
+
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            final long excess = DatabaseUtils.queryNumEntries(database, RecentStoreColumns.NAME) - maxEntries;
+            if (excess > 0) {
+                try (Cursor cursor = database.query(RecentStoreColumns.NAME,
+                        new String[]{RecentStoreColumns.ID},
+                        null, null, null, null,
+                        RecentStoreColumns.TIME_PLAYED + " ASC",
+                        String.valueOf(excess))) {
+                    prunedIds.addAll(StoreLoader.getIdsFromCursor(cursor, RecentStoreColumns.ID));
+                }
+                for (long id : prunedIds) {
+                    removeSongId(database, id);
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return prunedIds;
+    }
+
     public void clear() {
         final SQLiteDatabase database = getWritableDatabase();
         database.delete(RecentStoreColumns.NAME, null, null);
@@ -150,6 +216,26 @@ public class HistoryStore extends SQLiteOpenHelper {
         }
     }
 
+    /**
+     * @return The time each song was last played at, from the oldest to the most recent
+     */
+    @NonNull
+    public LinkedHashMap<Long, Long> getPlayTimes() {
+        final SQLiteDatabase database = getReadableDatabase();
+        final LinkedHashMap<Long, Long> playTimes = new LinkedHashMap<>();
+        try (Cursor cursor = database.query(RecentStoreColumns.NAME,
+                new String[]{RecentStoreColumns.ID, RecentStoreColumns.TIME_PLAYED},
+                null, null, null, null,
+                RecentStoreColumns.TIME_PLAYED + " ASC")) {
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    playTimes.put(cursor.getLong(0), cursor.getLong(1));
+                } while (cursor.moveToNext());
+            }
+        }
+        return playTimes;
+    }
+
     private Cursor queryRecentIds(long cutoff) {
         final boolean noCutoffTime = (cutoff == 0);
         final boolean reverseOrder = (cutoff < 0);
@@ -15,7 +15,6 @@
 */
 package com.poupa.vinylmusicplayer.provider;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -25,19 +24,35 @@ import android.provider.MediaStore.Audio.AudioColumns;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
 
 import com.poupa.vinylmusicplayer.discog.Discography;
+import com.poupa.vinylmusicplayer.helper.ShufflePermutation;
 import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.misc.queue.QueueJournal;
+import com.poupa.vinylmusicplayer.misc.queue.QueueSnapshot;
+import com.poupa.vinylmusicplayer.misc.queue.QueueWindow;
+import com.poupa.vinylmusicplayer.misc.queue.StaticPlayingQueue;
 import com.poupa.vinylmusicplayer.model.Song;
+import com.poupa.vinylmusicplayer.util.OopsHandler;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 /**
  * @author Andrew Neal, modified by Karim Abou Zeid
  *
  * This keeps track of the music playback and history state of the playback service
+ *
+ * The queues are persisted as a snapshot file, plus a journal of the operations done since that snapshot.
+ * See {@link QueueSnapshot} and {@link QueueJournal}
+ * The DB tables only hold the queues saved by older versions, until they are converted to a snapshot file.
  */
 public class MusicPlaybackQueueStore extends SQLiteOpenHelper {
     @Nullable
@@ -45,8 +60,20 @@ public class MusicPlaybackQueueStore extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "music_playback_state.db";
     private static final String PLAYING_QUEUE_TABLE_NAME = "playing_queue";
     private static final String ORIGINAL_PLAYING_QUEUE_TABLE_NAME = "original_playing_queue";
+    private static final String SNAPSHOT_FILE_NAME = "music_playback_queue.snapshot";
+    private static final String JOURNAL_FILE_NAME = "music_playback_queue.journal";
     private static final int VERSION = 7;
 
+    @NonNull
+    private final File snapshotFile;
+    @NonNull
+    private final QueueJournal journal;
+    private boolean journalLoaded = false;
+    private long snapshotGeneration = -1;
+    private boolean snapshotOutdated = false;
+    @Nullable
+    private ShufflePermutation savedShuffleOrder;
+
     /**
      * Constructor of <code>MusicPlaybackState</code>
      *
@@ -54,6 +81,8 @@ public class MusicPlaybackQueueStore extends SQLiteOpenHelper {
      */
     private MusicPlaybackQueueStore(final Context context) {
         super(context, DATABASE_NAME, null, VERSION);
+        snapshotFile = new File(context.getFilesDir(), SNAPSHOT_FILE_NAME);
+        journal = new QueueJournal(new File(context.getFilesDir(), JOURNAL_FILE_NAME));
     }
 
     @Override
@@ -146,101 +175,257 @@ public class MusicPlaybackQueueStore extends SQLiteOpenHelper {
         return sInstance;
     }
 
-    public synchronized void saveQueues(@NonNull final ArrayList<IndexedSong> playingQueue, @NonNull final ArrayList<IndexedSong> originalPlayingQueue) {
-        saveQueue(PLAYING_QUEUE_TABLE_NAME, playingQueue);
-        saveQueue(ORIGINAL_PLAYING_QUEUE_TABLE_NAME, originalPlayingQueue);
+    /**
+     * @param pendingOperations Number of operations waiting to be journaled
+     * @return Whether the queues should be saved as a new snapshot, instead of appending to the journal
+     */
+    public synchronized boolean isSnapshotDue(final int pendingOperations) {
+        if (!journalLoaded) {
+            journal.read();
+            journalLoaded = true;
+        }
+        return snapshotOutdated
+                || (journal.getGeneration() != getSnapshotGeneration()) || journal.needsCompaction(pendingOperations);
     }
 
     /**
-     * Clears the existing database and saves the queue into the db so that when the
-     * app is restarted, the tracks you were listening to is restored
-     *
-     * @param queue the queue to save
+     * @return false if the operations could not be persisted, in which case a snapshot needs to be saved
      */
-    private synchronized void saveQueue(final String tableName, @NonNull final ArrayList<IndexedSong> queue) {
-        final SQLiteDatabase database = getWritableDatabase();
-        database.beginTransaction();
+    public synchronized boolean appendToJournal(@NonNull final List<QueueJournal.Operation> operations) {
+        if (operations.isEmpty()) {return true;}
+        if (isSnapshotDue(operations.size())) {return false;}
 
         try {
-            database.delete(tableName, null, null);
-            database.setTransactionSuccessful();
-        } finally {
-            database.endTransaction();
+            journal.append(operations);
+            return true;
+        } catch (IOException e) {
+            OopsHandler.collectStackTrace(e);
+            return false;
+        }
+    }
+
+    /**
+     * Saves the queues as a new snapshot file so that when the
+     * app is restarted, the tracks you were listening to is restored.
+     * The journal is then restarted on top of this new snapshot.
+     */
+    public synchronized void saveQueues(@NonNull final ArrayList<IndexedSong> playingQueue, @NonNull final ArrayList<IndexedSong> originalPlayingQueue,
+                                        final int shuffleMode, @Nullable final ShufflePermutation shuffleOrder) {
+        final long generation = getSnapshotGeneration() + 1;
+        try {
+            QueueSnapshot.write(snapshotFile, generation, playingQueue, originalPlayingQueue, shuffleOrder);
+        } catch (IOException e) {
+            OopsHandler.collectStackTrace(e);
+            // Keep the previous snapshot and its journal, but do not journal on top of them anymore
+            snapshotOutdated = true;
+            return;
         }
+        snapshotGeneration = generation;
+        snapshotOutdated = false;
 
-        final int NUM_PROCESS = 20;
-        int position = 0;
-        while (position < queue.size()) {
-            database.beginTransaction();
+        // If the app dies before the journal is reset, the stale journal does not match the new generation
+        // and will be ignored
+        try {
+            journal.reset(generation, shuffleMode);
+        } catch (IOException e) {
+            OopsHandler.collectStackTrace(e);
+        }
+        journalLoaded = true;
+    }
+
+    private long getSnapshotGeneration() {
+        if (snapshotGeneration < 0) {
+            snapshotGeneration = 0;
             try {
-                for (int i = position; i < queue.size() && i < position + NUM_PROCESS; i++) {
-                    Song song = queue.get(i);
-                    int indexInQueue = queue.get(i).index;
-                    ContentValues values = new ContentValues();
+                final QueueSnapshot snapshot = QueueSnapshot.read(snapshotFile);
+                if (snapshot != null) {snapshotGeneration = snapshot.generation;}
+            } catch (IOException e) {
+                OopsHandler.collectStackTrace(e);
+            }
+        }
+        return snapshotGeneration;
+    }
 
-                    values.put(BaseColumns._ID, song.id);
-                    values.put(MusicPlaybackColumns.INDEX_IN_QUEUE, indexInQueue);
+    /**
+     * @return The saved playing queue and original playing queue, in that order
+     */
+    @NonNull
+    public synchronized Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>> getSavedQueues() {
+        QueueSnapshot snapshot = null;
+        try {
+            snapshot = QueueSnapshot.read(snapshotFile);
+            if (snapshot == null) {snapshot = migrateLegacySnapshot();}
+        } catch (IOException e) {
+            OopsHandler.collectStackTrace(e);
+        }
+        savedShuffleOrder = null;
+        if (snapshot == null) {
+            return new Pair<>(new ArrayList<>(), new ArrayList<>());
+        }
+        snapshotGeneration = snapshot.generation;
+        savedShuffleOrder = snapshot.getShuffleOrder();
+
+        // Resolve all the songs of the snapshot in one go, then map the IDs via a hash lookup
+        final HashSet<Long> songIds = new HashSet<>(2 * snapshot.size());
+        snapshot.collectSongIds(songIds);
+        final Discography discography = Discography.getInstance();
+        final HashMap<Long, Song> songsById = new HashMap<>(songIds.size());
+        for (final Song song : discography.getSongsFromIds(songIds, null)) {
+            songsById.put(song.id, song);
+        }
+        final LongFunction<Song> songResolver = (songId) -> {
+            Song song = songsById.get(songId);
+            if (song == null) {
+                // Either an orphan, or a song added by the journal
+                song = discography.getSong(songId);
+                if (song == Song.EMPTY_SONG) {return QueueJournal.placeholderSong(songId);}
+                songsById.put(songId, song);
+            }
+            return song;
+        };
 
-                    database.insert(tableName, null, values);
+        ArrayList<IndexedSong> queue;
+        ArrayList<IndexedSong> originalQueue;
+        try {
+            queue = snapshot.getPlayingQueue(songResolver);
+            originalQueue = snapshot.getOriginalPlayingQueue(songResolver);
+
+            final QueueJournal.Content content = journal.read();
+            journalLoaded = true;
+            if (content != null && content.generation == snapshot.generation && !content.operations.isEmpty()) {
+                try {
+                    final StaticPlayingQueue replayed = content.replay(queue, originalQueue, savedShuffleOrder, songResolver);
+                    queue = replayed.getPlayingQueue();
+                    originalQueue = replayed.getOriginalPlayingQueue();
+                    savedShuffleOrder = replayed.getShuffleOrder();
+                } catch (IndexOutOfBoundsException | IllegalArgumentException journalOutOfSync) {
+                    // Keep the snapshot only, and drop the journal that cannot be applied on it
+                    OopsHandler.collectStackTrace(journalOutOfSync);
+                    queue = snapshot.getPlayingQueue(songResolver);
+                    originalQueue = snapshot.getOriginalPlayingQueue(songResolver);
+                    try {
+                        journal.reset(content.generation, content.shuffleMode);
+                    } catch (IOException e) {
+                        OopsHandler.collectStackTrace(e);
+                    }
                 }
-                database.setTransactionSuccessful();
-            } finally {
-                database.endTransaction();
-                position += NUM_PROCESS;
             }
+        } catch (IOException e) {
+            // Not a valid order
+            OopsHandler.collectStackTrace(e);
+            savedShuffleOrder = null;
+            return new Pair<>(new ArrayList<>(), new ArrayList<>());
         }
+
+        markOrphans(queue, songsById);
+        markOrphans(originalQueue, songsById);
+        return new Pair<>(queue, originalQueue);
     }
 
-    @NonNull
-    public ArrayList<IndexedSong> getSavedPlayingQueue() {
-        return getQueue(PLAYING_QUEUE_TABLE_NAME);
+    /**
+     * Get the songs around the given position of the saved playing queue, without restoring the full queues.
+     *
+     * @param position The saved position in the playing queue
+     * @param radius Number of songs to get before and after the position
+     * @return The window, or null if it cannot be taken from the snapshot alone or if it would cover the whole queue
+     */
+    @Nullable
+    public synchronized QueueWindow getSavedQueueWindow(final int position, final int radius) {
+        final QueueSnapshot snapshot;
+        try {
+            snapshot = QueueSnapshot.read(snapshotFile);
+        } catch (IOException e) {
+            OopsHandler.collectStackTrace(e);
+            return null;
+        }
+        if (snapshot == null) {return null;}
+
+        final int size = snapshot.size();
+        if (position < 0 || position >= size || size <= 2 * radius + 1) {return null;}
+
+        // The positions in the snapshot are only valid if nothing is to be replayed on top of it
+        final QueueJournal.Content content = journal.read();
+        journalLoaded = true;
+        if (content != null && content.generation == snapshot.generation && content.altersQueue()) {return null;}
+        snapshotGeneration = snapshot.generation;
+
+        final int start = Math.max(0, position - radius);
+        final int end = Math.min(size, position + radius + 1);
+        final Discography discography = Discography.getInstance();
+        final ArrayList<Song> songs = new ArrayList<>(end - start);
+        try {
+            for (int i = start; i < end; ++i) {
+                songs.add(discography.getSong(snapshot.getSongIdAt(i)));
+            }
+        } catch (IOException e) {
+            OopsHandler.collectStackTrace(e);
+            return null;
+        }
+        return new QueueWindow(start, songs, size);
     }
 
-    @NonNull
-    public ArrayList<IndexedSong> getSavedOriginalPlayingQueue() {
-        return getQueue(ORIGINAL_PLAYING_QUEUE_TABLE_NAME);
+    /**
+     * @return The shuffle order of the queues last returned by {@link #getSavedQueues()}, if any
+     */
+    @Nullable
+    public synchronized ShufflePermutation getSavedShuffleOrder() {
+        return savedShuffleOrder;
+    }
+
+    private static void markOrphans(@NonNull final ArrayList<IndexedSong> queue, @NonNull final HashMap<Long, Song> songsById) {
+        final int size = queue.size();
+        for (int i = 0; i < size; ++i) {
+            final IndexedSong song = queue.get(i);
+            if (!songsById.containsKey(song.id)) {
+                // Add a place holder song here, to be removed after by the caller
+                // This is done to maintain consistent queue and playing position
+                queue.set(i, new IndexedSong(Song.EMPTY_SONG, song.index, IndexedSong.INVALID_INDEX));
+            }
+        }
     }
 
+    /**
+     * Convert the queues saved in the DB by older versions to a snapshot file, then empty the DB tables
+     * @return The converted snapshot, or null if there is nothing to convert
+     */
+    @Nullable
+    private QueueSnapshot migrateLegacySnapshot() throws IOException {
+        final ArrayList<IndexedSong> queue = getLegacySnapshotQueue(PLAYING_QUEUE_TABLE_NAME);
+        final ArrayList<IndexedSong> originalQueue = getLegacySnapshotQueue(ORIGINAL_PLAYING_QUEUE_TABLE_NAME);
+        if (queue.isEmpty() && originalQueue.isEmpty()) {return null;}
 
-    @NonNull
-    private ArrayList<IndexedSong> getSongPosition(@Nullable Cursor cursor, @NonNull final ArrayList<Song> songs, @NonNull final ArrayList<Long> removedSongIds) {
-        ArrayList<IndexedSong> queue = new ArrayList<>();
+        // Saved without journal, hence as the first generation
+        QueueSnapshot.write(snapshotFile, 0, queue, originalQueue, null);
 
-        if (cursor != null && cursor.moveToFirst()) {
-            int i = 0;
-            int idColumn = cursor.getColumnIndex(BaseColumns._ID);
-            int indexColumn = cursor.getColumnIndex(MusicPlaybackColumns.INDEX_IN_QUEUE);
-
-            do {
-                long songId = cursor.getLong(idColumn);
-                int songIndex = cursor.getInt(indexColumn);
-
-                if (removedSongIds.contains(songId) || i >= songs.size()) {
-                    // Add a place holder song here, to be removed after by the caller
-                    // This is done to maintain consistent queue and playing position
-                    queue.add(new IndexedSong(Song.EMPTY_SONG, songIndex, IndexedSong.INVALID_INDEX));
-                } else {
-                    queue.add(new IndexedSong(songs.get(i), songIndex, IndexedSong.INVALID_INDEX));
-                    i++;
-                }
-            } while (cursor.moveToNext());
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            database.delete(PLAYING_QUEUE_TABLE_NAME, null, null);
+            database.delete(ORIGINAL_PLAYING_QUEUE_TABLE_NAME, null, null);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
         }
 
-        return queue;
+        return QueueSnapshot.read(snapshotFile);
     }
 
     @NonNull
-    private ArrayList<IndexedSong> getQueue(@NonNull final String tableName) {
+    private ArrayList<IndexedSong> getLegacySnapshotQueue(@NonNull final String tableName) {
+        ArrayList<IndexedSong> queue = new ArrayList<>();
         try (Cursor cursor = getReadableDatabase().query(tableName, new String[]{BaseColumns._ID, MusicPlaybackColumns.INDEX_IN_QUEUE},
                 null, null, null, null, null)) {
-            ArrayList<Long> songIds = StoreLoader.getIdsFromCursor(cursor, BaseColumns._ID);
-
-            ArrayList<Long> removedSongIds = new ArrayList<>();
-            Discography discography = Discography.getInstance();
-            ArrayList<Song> songs = discography.getSongsFromIdsAndCleanupOrphans(songIds, removedSongIds::addAll);
-
-            return getSongPosition(cursor, songs, removedSongIds);
+            if (cursor != null && cursor.moveToFirst()) {
+                int idColumn = cursor.getColumnIndex(BaseColumns._ID);
+                int indexColumn = cursor.getColumnIndex(MusicPlaybackColumns.INDEX_IN_QUEUE);
+
+                do {
+                    final long songId = cursor.getLong(idColumn);
+                    queue.add(new IndexedSong(QueueJournal.placeholderSong(songId), cursor.getInt(indexColumn), IndexedSong.INVALID_INDEX));
+                } while (cursor.moveToNext());
+            }
         }
+        return queue;
     }
 
     public interface MusicPlaybackColumns extends AudioColumns {
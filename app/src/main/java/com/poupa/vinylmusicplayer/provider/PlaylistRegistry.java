@@ -0,0 +1,124 @@
+package com.poupa.vinylmusicplayer.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.poupa.vinylmusicplayer.App;
+import com.poupa.vinylmusicplayer.R;
+import com.poupa.vinylmusicplayer.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Process-wide index of the static playlists, by id and by name.
+ *
+ * Loaded once from the playlist store, then kept up to date by the playlist operations,
+ * so that the lookups neither hit the storage nor create new playlist objects.
+ *
+ * Locking: the registry may call into a playlist while locked, never the reverse.
+ */
+final class PlaylistRegistry {
+    @Nullable
+    private static PlaylistRegistry sInstance = null;
+
+    private final HashMap<String, StaticPlaylist> playlistsByName = new HashMap<>();
+    private final HashMap<Long, StaticPlaylist> playlistsById = new HashMap<>();
+    // The display order, rebuilt on demand after a change
+    @Nullable private ArrayList<StaticPlaylist> orderedPlaylists = null;
+
+    @NonNull
+    static synchronized PlaylistRegistry getInstance() {
+        if (sInstance == null) {
+            sInstance = new PlaylistRegistry();
+        }
+        return sInstance;
+    }
+
+    private PlaylistRegistry() {
+        for (String name : StoreBackedSongList.getStore().getPlaylistNames()) {
+            index(new StaticPlaylist(name));
+        }
+    }
+
+    private void index(@NonNull final StaticPlaylist playlist) {
+        playlistsByName.put(playlist.getName(), playlist);
+        playlistsById.put(playlist.getId(), playlist);
+        orderedPlaylists = null;
+    }
+
+    private void unindex(@NonNull final String name, final long id) {
+        playlistsByName.remove(name);
+        playlistsById.remove(id);
+        orderedPlaylists = null;
+    }
+
+    /**
+     * @return The playlists, the favorites first then by name
+     */
+    @NonNull
+    synchronized List<StaticPlaylist> getAll() {
+        if (orderedPlaylists == null) {
+            final String favoritesPlaylistName = App.getStaticContext().getString(R.string.favorites);
+
+            orderedPlaylists = new ArrayList<>(playlistsByName.size());
+            StaticPlaylist favoritesPlaylist = null;
+            for (StaticPlaylist playlist : playlistsByName.values()) {
+                if (playlist.getName().equals(favoritesPlaylistName)) {
+                    favoritesPlaylist = playlist;
+                    continue;
+                }
+                orderedPlaylists.add(playlist);
+            }
+
+            orderedPlaylists.sort((l1, l2) -> StringUtil.compareIgnoreAccent(l1.getName(), l2.getName()));
+
+            if (favoritesPlaylist != null)
+                orderedPlaylists.add(0, favoritesPlaylist);
+        }
+        return new ArrayList<>(orderedPlaylists);
+    }
+
+    @Nullable
+    synchronized StaticPlaylist get(final long id) {
+        return playlistsById.get(id);
+    }
+
+    @Nullable
+    synchronized StaticPlaylist get(@NonNull final String name) {
+        return playlistsByName.get(name);
+    }
+
+    @NonNull
+    synchronized StaticPlaylist getOrCreate(@NonNull final String name) {
+        StaticPlaylist playlist = playlistsByName.get(name);
+        if (playlist == null) {
+            playlist = new StaticPlaylist(name);
+            playlist.create();
+            index(playlist);
+        }
+        return playlist;
+    }
+
+    synchronized void remove(@NonNull final String name) {
+        final StaticPlaylist playlist = playlistsByName.get(name);
+        // Not to write its entries after the deletion
+        if (playlist != null) {playlist.discardEdit();}
+
+        StoreBackedSongList.remove(name);
+        if (playlist != null) {unindex(name, playlist.getId());}
+    }
+
+    /**
+     * To be called once the playlist is renamed in the store, replacing any other playlist by that name
+     */
+    synchronized void onRenamed(@NonNull final StaticPlaylist playlist, @NonNull final String oldName, final long oldId) {
+        if (playlistsByName.get(oldName) == playlist) {unindex(oldName, oldId);}
+
+        final StaticPlaylist replaced = playlistsByName.get(playlist.getName());
+        if (replaced != null && replaced != playlist) {unindex(replaced.getName(), replaced.getId());}
+
+        index(playlist);
+    }
+}
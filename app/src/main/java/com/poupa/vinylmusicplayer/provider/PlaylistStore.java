@@ -0,0 +1,393 @@
+package com.poupa.vinylmusicplayer.provider;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.preference.PreferenceManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.poupa.vinylmusicplayer.util.OopsHandler;
+import com.poupa.vinylmusicplayer.util.PrefKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Storage of the static playlists.
+ *
+ * Each entry of a playlist is a row, ordered by a sparse sort key:
+ * adding, removing or moving an entry writes that entry only, whatever the size of the playlist.
+ */
+public class PlaylistStore extends SQLiteOpenHelper {
+    public static final String DATABASE_NAME = "playlists.db";
+    private static final int VERSION = 2;
+
+    public static final long NO_PLAYLIST = -1;
+    // Spacing of the sort keys, so that an entry can be moved between two others without renumbering
+    public static final long SORT_KEY_GAP = 1L << 20;
+
+    // The playlists used to be stored as comma separated song ids, one preference per playlist
+    private static final String LEGACY_PREF_NAME_PREFIX = PrefKey.nonExportablePrefixedKey("SONG_IDS_");
+    private static final String LEGACY_SEPARATOR = ",";
+    private static final String PREF_MIGRATED_FROM_PREFERENCES = PrefKey.nonExportableKey("playlists_migrated_to_store");
+
+    @Nullable
+    private static PlaylistStore sInstance = null;
+
+    public PlaylistStore(final Context context) {
+        super(context, DATABASE_NAME, null, VERSION);
+    }
+
+    @NonNull
+    public static synchronized PlaylistStore getInstance(@NonNull final Context context) {
+        if (sInstance == null) {
+            sInstance = new PlaylistStore(context.getApplicationContext());
+            sInstance.migrateFromPreferences(PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext()));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstance(@Nullable final PlaylistStore store) {
+        sInstance = store;
+    }
+
+    @Override
+    public void onCreate(@NonNull final SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + PlaylistColumns.NAME + " ("
+                + PlaylistColumns.ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + PlaylistColumns.PLAYLIST_NAME + " TEXT NOT NULL UNIQUE,"
+                + PlaylistColumns.DEVICE_FINGERPRINT + " TEXT);");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + PlaylistEntryColumns.NAME + " ("
+                + PlaylistEntryColumns.PLAYLIST_ID + " INTEGER NOT NULL,"
+                + PlaylistEntryColumns.SORT_KEY + " INTEGER NOT NULL,"
+                + PlaylistEntryColumns.SONG_ID + " INTEGER NOT NULL,"
+                + "PRIMARY KEY (" + PlaylistEntryColumns.PLAYLIST_ID + ", " + PlaylistEntryColumns.SORT_KEY + "));");
+    }
+
+    @Override
+    public void onUpgrade(@NonNull final SQLiteDatabase db, final int oldVersion, final int newVersion) {
+        if (oldVersion < 2) {
+            db.execSQL("ALTER TABLE " + PlaylistColumns.NAME + " ADD COLUMN " + PlaylistColumns.DEVICE_FINGERPRINT + " TEXT;");
+        }
+    }
+
+    @Override
+    public void onDowngrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The playlists are user data, do not drop them
+        // Keep the tables as they are, the columns added by the newer version being ignored by this one
+        OopsHandler.collectStackTrace(new IllegalStateException("Downgrading " + DATABASE_NAME + " from " + oldVersion + " to " + newVersion));
+        onCreate(db);
+    }
+
+    private synchronized void migrateFromPreferences(@NonNull final SharedPreferences preferences) {
+        if (preferences.getBoolean(PREF_MIGRATED_FROM_PREFERENCES, false)) {return;}
+
+        final ArrayList<String> legacyPrefNames = new ArrayList<>();
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (Map.Entry<String, ?> pref : preferences.getAll().entrySet()) {
+                final String prefName = pref.getKey();
+                if (!prefName.startsWith(LEGACY_PREF_NAME_PREFIX)) {continue;}
+                legacyPrefNames.add(prefName);
+
+                final String name = prefName.substring(LEGACY_PREF_NAME_PREFIX.length());
+                if (getPlaylistId(database, name) != NO_PLAYLIST) {continue;}
+
+                final ArrayList<Long> songIds = new ArrayList<>();
+                final ArrayList<Long> sortKeys = new ArrayList<>();
+                final Object values = pref.getValue();
+                if (values instanceof String) {
+                    try {
+                        for (String id : ((String) values).split(LEGACY_SEPARATOR)) {
+                            songIds.add(Long.valueOf(id));
+                            sortKeys.add(SORT_KEY_GAP * sortKeys.size());
+                        }
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                final long playlistId = createPlaylist(database, name);
+                insertEntries(database, playlistId, songIds, sortKeys);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        final SharedPreferences.Editor editor = preferences.edit();
+        for (String prefName : legacyPrefNames) {editor.remove(prefName);}
+        editor.putBoolean(PREF_MIGRATED_FROM_PREFERENCES, true);
+        editor.apply();
+    }
+
+    @NonNull
+    public synchronized ArrayList<String> getPlaylistNames() {
+        final ArrayList<String> names = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(PlaylistColumns.NAME,
+                new String[]{PlaylistColumns.PLAYLIST_NAME}, null, null, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    names.add(cursor.getString(0));
+                } while (cursor.moveToNext());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return The id of the playlist, NO_PLAYLIST if there is none by that name
+     */
+    public synchronized long getPlaylistId(@NonNull final String name) {
+        return getPlaylistId(getReadableDatabase(), name);
+    }
+
+    private static long getPlaylistId(@NonNull final SQLiteDatabase database, @NonNull final String name) {
+        try (Cursor cursor = database.query(PlaylistColumns.NAME, new String[]{PlaylistColumns.ID},
+                PlaylistColumns.PLAYLIST_NAME + " = ?", new String[]{name}, null, null, null)) {
+            return (cursor != null && cursor.moveToFirst()) ? cursor.getLong(0) : NO_PLAYLIST;
+        }
+    }
+
+    /**
+     * @return The id of the playlist, created if needed
+     */
+    public synchronized long getOrCreatePlaylist(@NonNull final String name) {
+        final SQLiteDatabase database = getWritableDatabase();
+        final long playlistId = getPlaylistId(database, name);
+        return (playlistId != NO_PLAYLIST) ? playlistId : createPlaylist(database, name);
+    }
+
+    private static long createPlaylist(@NonNull final SQLiteDatabase database, @NonNull final String name) {
+        final ContentValues values = new ContentValues(1);
+        values.put(PlaylistColumns.PLAYLIST_NAME, name);
+        return database.insert(PlaylistColumns.NAME, null, values);
+    }
+
+    public synchronized void deletePlaylist(@NonNull final String name) {
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            deletePlaylist(database, getPlaylistId(database, name));
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static void deletePlaylist(@NonNull final SQLiteDatabase database, final long playlistId) {
+        if (playlistId == NO_PLAYLIST) {return;}
+
+        final String[] args = new String[]{String.valueOf(playlistId)};
+        database.delete(PlaylistEntryColumns.NAME, PlaylistEntryColumns.PLAYLIST_ID + " = ?", args);
+        database.delete(PlaylistColumns.NAME, PlaylistColumns.ID + " = ?", args);
+    }
+
+    /**
+     * Rename the playlist, replacing any other playlist by that name
+     */
+    public synchronized void renamePlaylist(final long playlistId, @NonNull final String newName) {
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            final long existingId = getPlaylistId(database, newName);
+            if (existingId != playlistId) {
+                deletePlaylist(database, existingId);
+
+                final ContentValues values = new ContentValues(1);
+                values.put(PlaylistColumns.PLAYLIST_NAME, newName);
+                database.update(PlaylistColumns.NAME, values, PlaylistColumns.ID + " = ?",
+                        new String[]{String.valueOf(playlistId)});
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * @return The fingerprint of the device playlist this one was imported from, null if not imported
+     */
+    @Nullable
+    public synchronized String getDeviceFingerprint(final long playlistId) {
+        try (Cursor cursor = getReadableDatabase().query(PlaylistColumns.NAME, new String[]{PlaylistColumns.DEVICE_FINGERPRINT},
+                PlaylistColumns.ID + " = ?", new String[]{String.valueOf(playlistId)}, null, null, null)) {
+            return (cursor != null && cursor.moveToFirst()) ? cursor.getString(0) : null;
+        }
+    }
+
+    public synchronized void setDeviceFingerprint(final long playlistId, @Nullable final String fingerprint) {
+        final ContentValues values = new ContentValues(1);
+        values.put(PlaylistColumns.DEVICE_FINGERPRINT, fingerprint);
+        getWritableDatabase().update(PlaylistColumns.NAME, values, PlaylistColumns.ID + " = ?",
+                new String[]{String.valueOf(playlistId)});
+    }
+
+    /**
+     * Read the entries of a playlist, in order
+     */
+    public synchronized void loadEntries(final long playlistId, @NonNull final List<Long> songIds, @NonNull final List<Long> sortKeys) {
+        try (Cursor cursor = getReadableDatabase().query(PlaylistEntryColumns.NAME,
+                new String[]{PlaylistEntryColumns.SONG_ID, PlaylistEntryColumns.SORT_KEY},
+                PlaylistEntryColumns.PLAYLIST_ID + " = ?", new String[]{String.valueOf(playlistId)},
+                null, null, PlaylistEntryColumns.SORT_KEY + " ASC")) {
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    songIds.add(cursor.getLong(0));
+                    sortKeys.add(cursor.getLong(1));
+                } while (cursor.moveToNext());
+            }
+        }
+    }
+
+    /**
+     * Append the songs at the end of the playlist
+     * @return The sort keys of the new entries
+     */
+    @NonNull
+    public synchronized ArrayList<Long> appendEntries(final long playlistId, @NonNull final List<Long> songIds) {
+        final ArrayList<Long> sortKeys = new ArrayList<>(songIds.size());
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            long sortKey;
+            try (Cursor cursor = database.rawQuery("SELECT MAX(" + PlaylistEntryColumns.SORT_KEY + ") FROM " + PlaylistEntryColumns.NAME
+                    + " WHERE " + PlaylistEntryColumns.PLAYLIST_ID + " = ?", new String[]{String.valueOf(playlistId)})) {
+                sortKey = (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) ? cursor.getLong(0) + SORT_KEY_GAP : 0;
+            }
+            for (int i = 0; i < songIds.size(); ++i) {
+                sortKeys.add(sortKey);
+                sortKey += SORT_KEY_GAP;
+            }
+            insertEntries(database, playlistId, songIds, sortKeys);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return sortKeys;
+    }
+
+    /**
+     * Insert the songs with the given sort keys
+     * @return False if a sort key is already taken, i.e. the playlist was modified elsewhere
+     */
+    public synchronized boolean insertEntries(final long playlistId, @NonNull final List<Long> songIds, @NonNull final List<Long> sortKeys) {
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            insertEntries(database, playlistId, songIds, sortKeys);
+            database.setTransactionSuccessful();
+            return true;
+        } catch (SQLiteConstraintException e) {
+            return false;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static void insertEntries(@NonNull final SQLiteDatabase database, final long playlistId,
+                                      @NonNull final List<Long> songIds, @NonNull final List<Long> sortKeys) {
+        final SQLiteStatement insert = database.compileStatement("INSERT INTO " + PlaylistEntryColumns.NAME
+                + " (" + PlaylistEntryColumns.PLAYLIST_ID + ", " + PlaylistEntryColumns.SORT_KEY + ", " + PlaylistEntryColumns.SONG_ID
+                + ") VALUES (?, ?, ?)");
+        try {
+            for (int i = 0; i < songIds.size(); ++i) {
+                insert.bindLong(1, playlistId);
+                insert.bindLong(2, sortKeys.get(i));
+                insert.bindLong(3, songIds.get(i));
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    public synchronized void deleteEntries(final long playlistId, @NonNull final List<Long> sortKeys) {
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        final SQLiteStatement delete = database.compileStatement("DELETE FROM " + PlaylistEntryColumns.NAME
+                + " WHERE " + PlaylistEntryColumns.PLAYLIST_ID + " = ? AND " + PlaylistEntryColumns.SORT_KEY + " = ?");
+        try {
+            for (long sortKey : sortKeys) {
+                delete.bindLong(1, playlistId);
+                delete.bindLong(2, sortKey);
+                delete.executeUpdateDelete();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            delete.close();
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * @return False if the entry could not be moved, i.e. the playlist was modified elsewhere
+     */
+    public synchronized boolean moveEntry(final long playlistId, final long sortKey, final long newSortKey) {
+        final ContentValues values = new ContentValues(1);
+        values.put(PlaylistEntryColumns.SORT_KEY, newSortKey);
+        return 1 == getWritableDatabase().updateWithOnConflict(PlaylistEntryColumns.NAME, values,
+                PlaylistEntryColumns.PLAYLIST_ID + " = ? AND " + PlaylistEntryColumns.SORT_KEY + " = ?",
+                new String[]{String.valueOf(playlistId), String.valueOf(sortKey)},
+                SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    /**
+     * Apply several modifications as a whole
+     * @param writes The modifications, returning false to cancel them all
+     * @return False if cancelled
+     */
+    public synchronized boolean applyInTransaction(@NonNull final BooleanSupplier writes) {
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            if (!writes.getAsBoolean()) {return false;}
+            database.setTransactionSuccessful();
+            return true;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Rewrite all the entries of a playlist, e.g. to spread again its sort keys
+     */
+    public synchronized void replaceEntries(final long playlistId, @NonNull final List<Long> songIds, @NonNull final List<Long> sortKeys) {
+        final SQLiteDatabase database = getWritableDatabase();
+        database.beginTransaction();
+        try {
+            database.delete(PlaylistEntryColumns.NAME, PlaylistEntryColumns.PLAYLIST_ID + " = ?",
+                    new String[]{String.valueOf(playlistId)});
+            insertEntries(database, playlistId, songIds, sortKeys);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    public interface PlaylistColumns {
+        String NAME = "playlist";
+
+        String ID = "id";
+        String PLAYLIST_NAME = "name";
+        String DEVICE_FINGERPRINT = "device_fingerprint";
+    }
+
+    public interface PlaylistEntryColumns {
+        String NAME = "playlist_entry";
+
+        String PLAYLIST_ID = "playlist_id";
+        String SORT_KEY = "sort_key";
+        String SONG_ID = "song_id";
+    }
+}
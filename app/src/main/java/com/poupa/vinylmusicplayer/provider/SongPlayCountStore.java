@@ -21,92 +21,164 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-import android.view.animation.AccelerateInterpolator;
-import android.view.animation.Interpolator;
+import android.database.sqlite.SQLiteStatement;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This database tracks the number of play counts for an individual song.  This is used to drive
  * the top played tracks as well as the playlist images
+ *
+ * The plays are appended to an event log, and rolled up per song and week before the top tracks are read.
+ * Each song also has a score, maintained incrementally, over which the top tracks are an indexed read.
+ *
+ * The score weights a play exponentially on its week, instead of on its age:
+ * the weights of all songs then decay at the same pace, and the order of the scores holds as time passes.
+ * Only the plays leaving the tracked window need a score update.
  */
 public class SongPlayCountStore extends SQLiteOpenHelper {
     @Nullable
     private static SongPlayCountStore sInstance = null;
 
     public static final String DATABASE_NAME = "song_play_count.db";
-    private static final int VERSION = 3;
-
-    // interpolator curve applied for measuring the curve
-    @NonNull
-    private static final Interpolator sInterpolator = new AccelerateInterpolator(1.5f);
+    private static final int VERSION = 4;
 
     // how many weeks worth of playback to track
     private static final int NUM_WEEKS = 52;
 
-    // how high to multiply the interpolation curve
-    private static final int INTERPOLATOR_HEIGHT = 50;
+    // how fast the weight of a play decays: a play counts for half after that many weeks,
+    // i.e. a play one year ago counts for about 1/3, as in the previous week-based curve
+    private static final int HALF_LIFE_WEEKS = 32;
 
-    // how high the base value is. The ratio of the Height to Base is what really matters
-    private static final int INTERPOLATOR_BASE = 25;
+    private static final long ONE_WEEK_IN_MS = 1000L * 60 * 60 * 24 * 7;
 
-    private static final int ONE_WEEK_IN_MS = 1000 * 60 * 60 * 24 * 7;
+    // the week of unit weight (2020-01-01), to keep the weights of the current weeks in range
+    private static final int ANCHOR_WEEK = (int) (1_577_836_800_000L / ONE_WEEK_IN_MS);
 
-    @NonNull
-    private static final String WHERE_ID_EQUALS = SongPlayCountColumns.ID + "=?";
+    // the layout of the play counts before the event log, to migrate from
+    private static final int LEGACY_VERSION = 3;
+    private static final String LEGACY_TABLE = "song_play_count";
+    private static final String LEGACY_WEEK_PLAY_COUNT = "week";
+    private static final String LEGACY_LAST_UPDATED_WEEK_INDEX = "week_index";
 
-    // number of weeks since epoch time
-    private final int mNumberOfWeeksSinceEpoch;
+    // the week up to which the plays out of the window have been expired
+    private int mExpiredUpToWeek = Integer.MIN_VALUE;
 
     public SongPlayCountStore(final Context context) {
         super(context, DATABASE_NAME, null, VERSION);
 
-        long msSinceEpoch = System.currentTimeMillis();
-        mNumberOfWeeksSinceEpoch = (int) (msSinceEpoch / ONE_WEEK_IN_MS);
-
-        updateResults();
+        expireOldWeeks(getWritableDatabase(), getCurrentWeek());
     }
 
     @Override
     public void onCreate(@NonNull final SQLiteDatabase db) {
-        // create the play count table
-        // WARNING: If you change the order of these columns
-        // please update getColumnIndexForWeek
-        StringBuilder builder = new StringBuilder();
-        builder.append("CREATE TABLE IF NOT EXISTS ");
-        builder.append(SongPlayCountColumns.NAME);
-        builder.append("(");
-        builder.append(SongPlayCountColumns.ID);
-        builder.append(" LONG UNIQUE,");
-
-        for (int i = 0; i < NUM_WEEKS; i++) {
-            builder.append(getColumnNameForWeek(i));
-            builder.append(" INT DEFAULT 0,");
-        }
-
-        builder.append(SongPlayCountColumns.LAST_UPDATED_WEEK_INDEX);
-        builder.append(" INT NOT NULL,");
-
-        builder.append(SongPlayCountColumns.PLAY_COUNT_SCORE);
-        builder.append(" REAL DEFAULT 0);");
-
-        db.execSQL(builder.toString());
+        // the event ids are never reused, the rollup keeps track of the last one counted
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + PlayEventColumns.NAME + " ("
+                + PlayEventColumns.EVENT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + PlayEventColumns.ID + " INTEGER NOT NULL,"
+                + PlayEventColumns.TIME_PLAYED + " INTEGER NOT NULL);");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + PlayEventColumns.NAME + "_time ON "
+                + PlayEventColumns.NAME + " (" + PlayEventColumns.TIME_PLAYED + ");");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + PlayEventRollupColumns.NAME + " ("
+                + PlayEventRollupColumns.ID + " INTEGER PRIMARY KEY,"
+                + PlayEventRollupColumns.LAST_EVENT_ID + " INTEGER NOT NULL);");
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + WeeklyPlayCountColumns.NAME + " ("
+                + WeeklyPlayCountColumns.ID + " INTEGER NOT NULL,"
+                + WeeklyPlayCountColumns.WEEK + " INTEGER NOT NULL,"
+                + WeeklyPlayCountColumns.PLAY_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY (" + WeeklyPlayCountColumns.ID + ", " + WeeklyPlayCountColumns.WEEK + "));");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + WeeklyPlayCountColumns.NAME + "_week ON "
+                + WeeklyPlayCountColumns.NAME + " (" + WeeklyPlayCountColumns.WEEK + ");");
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + SongPlayCountColumns.NAME + " ("
+                + SongPlayCountColumns.ID + " INTEGER PRIMARY KEY,"
+                + SongPlayCountColumns.PLAY_COUNT_SCORE + " REAL NOT NULL DEFAULT 0);");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + SongPlayCountColumns.NAME + "_score ON "
+                + SongPlayCountColumns.NAME + " (" + SongPlayCountColumns.PLAY_COUNT_SCORE + " DESC);");
     }
 
     @Override
     public void onUpgrade(@NonNull final SQLiteDatabase db, final int oldVersion, final int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + SongPlayCountColumns.NAME);
-        onCreate(db);
+        if (oldVersion == LEGACY_VERSION) {
+            onCreate(db);
+            migrateLegacyTable(db);
+            db.execSQL("DROP TABLE IF EXISTS " + LEGACY_TABLE);
+        } else {
+            dropTables(db);
+            onCreate(db);
+        }
     }
 
     @Override
     public void onDowngrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
-        // If we ever have downgrade, drop the table to be safe
-        db.execSQL("DROP TABLE IF EXISTS " + SongPlayCountColumns.NAME);
+        // If we ever have downgrade, drop the tables to be safe
+        dropTables(db);
         onCreate(db);
     }
 
+    private static void dropTables(@NonNull final SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + LEGACY_TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + PlayEventColumns.NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + PlayEventRollupColumns.NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + WeeklyPlayCountColumns.NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + SongPlayCountColumns.NAME);
+    }
+
+    /**
+     * Convert the 52 week columns per song into weekly rows and scores.
+     * The individual plays are not known, the event log starts empty.
+     */
+    private static void migrateLegacyTable(@NonNull final SQLiteDatabase db) {
+        final SQLiteStatement insertWeek = db.compileStatement("INSERT OR REPLACE INTO " + WeeklyPlayCountColumns.NAME
+                + " (" + WeeklyPlayCountColumns.ID + ", " + WeeklyPlayCountColumns.WEEK + ", " + WeeklyPlayCountColumns.PLAY_COUNT
+                + ") VALUES (?, ?, ?)");
+        final SQLiteStatement insertScore = db.compileStatement("INSERT OR REPLACE INTO " + SongPlayCountColumns.NAME
+                + " (" + SongPlayCountColumns.ID + ", " + SongPlayCountColumns.PLAY_COUNT_SCORE + ") VALUES (?, ?)");
+
+        try (final Cursor cursor = db.query(LEGACY_TABLE, null, null, null, null, null, null)) {
+            if (cursor == null || !cursor.moveToFirst()) {return;}
+
+            final int idColumn = cursor.getColumnIndex(SongPlayCountColumns.ID);
+            final int lastUpdatedWeekColumn = cursor.getColumnIndex(LEGACY_LAST_UPDATED_WEEK_INDEX);
+            final int[] weekColumns = new int[NUM_WEEKS];
+            for (int i = 0; i < NUM_WEEKS; i++) {
+                weekColumns[i] = cursor.getColumnIndex(LEGACY_WEEK_PLAY_COUNT + i);
+            }
+
+            do {
+                final long songId = cursor.getLong(idColumn);
+                final int lastUpdatedWeek = cursor.getInt(lastUpdatedWeekColumn);
+                double score = 0;
+                // the column N holds the plays N weeks before the last update
+                for (int i = 0; i < NUM_WEEKS; i++) {
+                    final int playCount = cursor.getInt(weekColumns[i]);
+                    if (playCount <= 0) {continue;}
+
+                    final int week = lastUpdatedWeek - i;
+                    insertWeek.bindLong(1, songId);
+                    insertWeek.bindLong(2, week);
+                    insertWeek.bindLong(3, playCount);
+                    insertWeek.executeInsert();
+                    score += playCount * getScoreWeightForWeek(week);
+                }
+                if (score > 0) {
+                    insertScore.bindLong(1, songId);
+                    insertScore.bindDouble(2, score);
+                    insertScore.executeInsert();
+                }
+            } while (cursor.moveToNext());
+        } finally {
+            insertWeek.close();
+            insertScore.close();
+        }
+    }
+
     /**
      * @param context The {@link Context} to use
      * @return A new instance of this class.
@@ -125,139 +197,56 @@ public class SongPlayCountStore extends SQLiteOpenHelper {
      * @param songId The song id to increase the play count
      */
     public void bumpPlayCount(final long songId) {
-        if (songId == -1) {
+        bumpPlayCounts(List.of(songId));
+    }
+
+    /**
+     * Increases the play count of several songs by 1 each, in one transaction
+     * Each play is a single append to the event log, regardless of the history size
+     *
+     * @param songIds The song ids to increase the play count, a song may appear several times
+     */
+    public void bumpPlayCounts(@NonNull final List<Long> songIds) {
+        if (songIds.isEmpty()) {
             return;
         }
 
+        final long now = System.currentTimeMillis();
         final SQLiteDatabase database = getWritableDatabase();
+
         // begin the transaction
         database.beginTransaction();
+        final SQLiteStatement insertEvent = database.compileStatement("INSERT INTO " + PlayEventColumns.NAME
+                + " (" + PlayEventColumns.ID + ", " + PlayEventColumns.TIME_PLAYED + ") VALUES (?, ?)");
+        try {
+            for (long songId : songIds) {
+                if (songId == -1) {
+                    continue;
+                }
 
-        // get the cursor of this content inside the transaction
-        try (final Cursor cursor = database.query(SongPlayCountColumns.NAME, null, WHERE_ID_EQUALS,
-                new String[]{String.valueOf(songId)}, null, null, null)) {
-            if (cursor != null && cursor.moveToFirst()) {
-                updateExistingRow(database, cursor, true);
-            } else {
-                // if we have no existing results, create a new one
-                createNewPlayedEntry(database, songId);
+                insertEvent.bindLong(1, songId);
+                insertEvent.bindLong(2, now);
+                insertEvent.executeInsert();
             }
             database.setTransactionSuccessful();
         } finally {
+            insertEvent.close();
             database.endTransaction();
         }
     }
 
-    /**
-     * This creates a new entry that indicates a song has been played once as well as its score
-     *
-     * @param database a write able database
-     * @param songId   the id of the track
-     */
-    private void createNewPlayedEntry(@NonNull final SQLiteDatabase database, final long songId) {
-        // no row exists, create a new one
-        float newScore = getScoreMultiplierForWeek(0);
-        int newPlayCount = 1;
-
-        final ContentValues values = new ContentValues(3);
-        values.put(SongPlayCountColumns.ID, songId);
-        values.put(SongPlayCountColumns.PLAY_COUNT_SCORE, newScore);
-        values.put(SongPlayCountColumns.LAST_UPDATED_WEEK_INDEX, mNumberOfWeeksSinceEpoch);
-        values.put(getColumnNameForWeek(0), newPlayCount);
-
-        database.insert(SongPlayCountColumns.NAME, null, values);
-    }
-
-    /**
-     * This function will take a song entry and update it to the latest week and increase the count
-     * for the current week by 1 if necessary
-     *
-     * @param database  a writeable database
-     * @param cursor    the cursor, pointing to the track to bump
-     * @param bumpCount whether to bump the current's week play count by 1 and adjust the score
-     */
-    private void updateExistingRow(@NonNull final SQLiteDatabase database, @NonNull Cursor cursor, boolean bumpCount) {
-        final long id = cursor.getLong(cursor.getColumnIndex(SongPlayCountColumns.ID));
-        final String stringId = String.valueOf(id);
-
-        // figure how many weeks since we last updated
-        final int lastUpdatedWeek = cursor.getInt(cursor.getColumnIndex(SongPlayCountColumns.LAST_UPDATED_WEEK_INDEX));
-        int weekDiff = mNumberOfWeeksSinceEpoch - lastUpdatedWeek;
-
-        // if it's more than the number of weeks we track, delete it and create a new entry
-        if (Math.abs(weekDiff) >= NUM_WEEKS) {
-            // this entry needs to be dropped since it is too outdated
-            deleteEntry(database, stringId);
-            if (bumpCount) {
-                createNewPlayedEntry(database, id);
-            }
-        } else if (weekDiff != 0) {
-            // else, shift the weeks
-            int[] playCounts = new int[NUM_WEEKS];
-
-            if (weekDiff > 0) {
-                // time is shifted forwards
-                for (int i = 0; i < NUM_WEEKS - weekDiff; i++) {
-                    playCounts[i + weekDiff] = cursor.getInt(getColumnIndexForWeek(i));
-                }
-            } else {
-                // time is shifted backwards (by user) - nor typical behavior but we
-                // will still handle it
-
-                // since weekDiff is -ve, NUM_WEEKS + weekDiff is the real # of weeks we have to
-                // transfer.  Then we transfer the old week i - weekDiff to week i
-                // for example if the user shifted back 2 weeks, ie -2, then for 0 to
-                // NUM_WEEKS + (-2) we set the new week i = old week i - (-2) or i+2
-                for (int i = 0; i < NUM_WEEKS + weekDiff; i++) {
-                    playCounts[i] = cursor.getInt(getColumnIndexForWeek(i - weekDiff));
-                }
-            }
-
-            // bump the count
-            if (bumpCount) {
-                playCounts[0]++;
-            }
-
-            float score = calculateScore(playCounts);
-
-            // if the score is non-existant, then delete it
-            if (score < .01f) {
-                deleteEntry(database, stringId);
-            } else {
-                // create the content values
-                ContentValues values = new ContentValues(NUM_WEEKS + 2);
-                values.put(SongPlayCountColumns.LAST_UPDATED_WEEK_INDEX, mNumberOfWeeksSinceEpoch);
-                values.put(SongPlayCountColumns.PLAY_COUNT_SCORE, score);
-
-                for (int i = 0; i < NUM_WEEKS; i++) {
-                    values.put(getColumnNameForWeek(i), playCounts[i]);
-                }
-
-                // update the entry
-                database.update(SongPlayCountColumns.NAME, values, WHERE_ID_EQUALS,
-                        new String[]{stringId});
-            }
-        } else if (bumpCount) {
-            // else no shifting, just update the scores
-            ContentValues values = new ContentValues(2);
-
-            // increase the score by a single score amount
-            int scoreIndex = cursor.getColumnIndex(SongPlayCountColumns.PLAY_COUNT_SCORE);
-            float score = cursor.getFloat(scoreIndex) + getScoreMultiplierForWeek(0);
-            values.put(SongPlayCountColumns.PLAY_COUNT_SCORE, score);
-
-            // increase the play count by 1
-            values.put(getColumnNameForWeek(0), cursor.getInt(getColumnIndexForWeek(0)) + 1);
-
-            // update the entry
-            database.update(SongPlayCountColumns.NAME, values, WHERE_ID_EQUALS,
-                    new String[]{stringId});
-        }
-    }
-
     public void clear() {
         final SQLiteDatabase database = getWritableDatabase();
-        database.delete(SongPlayCountColumns.NAME, null, null);
+        database.beginTransaction();
+        try {
+            database.delete(PlayEventColumns.NAME, null, null);
+            database.delete(PlayEventRollupColumns.NAME, null, null);
+            database.delete(WeeklyPlayCountColumns.NAME, null, null);
+            database.delete(SongPlayCountColumns.NAME, null, null);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
     }
 
     /**
@@ -268,112 +257,197 @@ public class SongPlayCountStore extends SQLiteOpenHelper {
      * @return the top tracks
      */
     public Cursor getTopPlayedResults(int numResults) {
-        final SQLiteDatabase database = getReadableDatabase();
+        final SQLiteDatabase database = getWritableDatabase();
+        final int week = getCurrentWeek();
+        expireOldWeeks(database, week);
+        rollUpEvents(database, week);
+
         return database.query(SongPlayCountColumns.NAME, new String[]{SongPlayCountColumns.ID},
                 null, null, null, null, SongPlayCountColumns.PLAY_COUNT_SCORE + " DESC",
                 (numResults <= 0 ? null : String.valueOf(numResults)));
     }
 
     /**
-     * This updates all the results for the getTopPlayedResults so that we can get an
-     * accurate list of the top played results
+     * Drop the plays older than NUM_WEEKS, and their contribution to the scores.
+     * Only the rows of the expired weeks are visited, this is a no-op within the same week.
      */
-    private synchronized void updateResults() {
-        final SQLiteDatabase database = getWritableDatabase();
+    private synchronized void expireOldWeeks(@NonNull final SQLiteDatabase database, final int currentWeek) {
+        if (currentWeek <= mExpiredUpToWeek) {return;}
+
+        final int oldestWeekWeCareAbout = currentWeek - NUM_WEEKS + 1;
+        final String[] oldestWeekArgs = new String[]{String.valueOf(oldestWeekWeCareAbout)};
 
         database.beginTransaction();
+        try {
+            final Map<Long, Double> expiredScores = new HashMap<>();
+            try (final Cursor cursor = database.query(WeeklyPlayCountColumns.NAME,
+                    new String[]{WeeklyPlayCountColumns.ID, WeeklyPlayCountColumns.WEEK, WeeklyPlayCountColumns.PLAY_COUNT},
+                    WeeklyPlayCountColumns.WEEK + " < ?", oldestWeekArgs, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    do {
+                        final long songId = cursor.getLong(0);
+                        final double expiredScore = cursor.getInt(2) * getScoreWeightForWeek(cursor.getInt(1));
+                        final Double previous = expiredScores.get(songId);
+                        expiredScores.put(songId, (previous == null) ? expiredScore : previous + expiredScore);
+                    } while (cursor.moveToNext());
+                }
+            }
 
-        int oldestWeekWeCareAbout = mNumberOfWeeksSinceEpoch - NUM_WEEKS + 1;
-        // delete rows we don't care about anymore
-        database.delete(SongPlayCountColumns.NAME, SongPlayCountColumns.LAST_UPDATED_WEEK_INDEX
-                + " < " + oldestWeekWeCareAbout, null);
-
-        // get the remaining rows
-        try (final Cursor cursor = database.query(SongPlayCountColumns.NAME,
-                null, null, null, null, null, null)) {
-            if (cursor != null && cursor.moveToFirst()) {
-                // for each row, update it
-                do {
-                    updateExistingRow(database, cursor, false);
-                } while (cursor.moveToNext());
+            database.delete(WeeklyPlayCountColumns.NAME, WeeklyPlayCountColumns.WEEK + " < ?", oldestWeekArgs);
+            database.delete(PlayEventColumns.NAME, PlayEventColumns.TIME_PLAYED + " < ?",
+                    new String[]{String.valueOf(oldestWeekWeCareAbout * ONE_WEEK_IN_MS)});
+
+            if (!expiredScores.isEmpty()) {
+                final SQLiteStatement decreaseScore = database.compileStatement("UPDATE " + SongPlayCountColumns.NAME
+                        + " SET " + SongPlayCountColumns.PLAY_COUNT_SCORE + " = " + SongPlayCountColumns.PLAY_COUNT_SCORE + " - ?"
+                        + " WHERE " + SongPlayCountColumns.ID + " = ?");
+                // no play left in the window, drop the score rather than keeping a rounding residue
+                final SQLiteStatement deleteScore = database.compileStatement("DELETE FROM " + SongPlayCountColumns.NAME
+                        + " WHERE " + SongPlayCountColumns.ID + " = ? AND NOT EXISTS (SELECT 1 FROM " + WeeklyPlayCountColumns.NAME
+                        + " WHERE " + WeeklyPlayCountColumns.ID + " = ?)");
+                try {
+                    for (Map.Entry<Long, Double> entry : expiredScores.entrySet()) {
+                        decreaseScore.bindDouble(1, entry.getValue());
+                        decreaseScore.bindLong(2, entry.getKey());
+                        decreaseScore.executeUpdateDelete();
+
+                        deleteScore.bindLong(1, entry.getKey());
+                        deleteScore.bindLong(2, entry.getKey());
+                        deleteScore.executeUpdateDelete();
+                    }
+                } finally {
+                    decreaseScore.close();
+                    deleteScore.close();
+                }
             }
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
         }
+        mExpiredUpToWeek = currentWeek;
     }
 
     /**
-     * Deletes the entry
-     *
-     * @param database database to use
-     * @param stringId id to delete
+     * Count the plays appended since the previous rollup into the weekly rows and the scores.
+     * Only the new events are visited, grouped per song and week.
      */
-    private void deleteEntry(@NonNull final SQLiteDatabase database, final String stringId) {
-        database.delete(SongPlayCountColumns.NAME, WHERE_ID_EQUALS, new String[]{stringId});
-    }
+    private synchronized void rollUpEvents(@NonNull final SQLiteDatabase database, final int currentWeek) {
+        final long oldestTimeWeCareAbout = (currentWeek - NUM_WEEKS + 1) * ONE_WEEK_IN_MS;
 
-    /**
-     * Calculates the score of the song given the play counts
-     *
-     * @param playCounts an array of the # of times a song has been played for each week
-     *                   where playCounts[N] is the # of times it was played N weeks ago
-     * @return the score
-     */
-    private static float calculateScore(@Nullable final int[] playCounts) {
-        if (playCounts == null) {
-            return 0;
-        }
+        database.beginTransaction();
+        final SQLiteStatement insertWeek = database.compileStatement("INSERT OR IGNORE INTO " + WeeklyPlayCountColumns.NAME
+                + " (" + WeeklyPlayCountColumns.ID + ", " + WeeklyPlayCountColumns.WEEK + ") VALUES (?, ?)");
+        final SQLiteStatement bumpWeek = database.compileStatement("UPDATE " + WeeklyPlayCountColumns.NAME
+                + " SET " + WeeklyPlayCountColumns.PLAY_COUNT + " = " + WeeklyPlayCountColumns.PLAY_COUNT + " + ?"
+                + " WHERE " + WeeklyPlayCountColumns.ID + " = ? AND " + WeeklyPlayCountColumns.WEEK + " = ?");
+        final SQLiteStatement insertScore = database.compileStatement("INSERT OR IGNORE INTO " + SongPlayCountColumns.NAME
+                + " (" + SongPlayCountColumns.ID + ") VALUES (?)");
+        final SQLiteStatement bumpScore = database.compileStatement("UPDATE " + SongPlayCountColumns.NAME
+                + " SET " + SongPlayCountColumns.PLAY_COUNT_SCORE + " = " + SongPlayCountColumns.PLAY_COUNT_SCORE + " + ?"
+                + " WHERE " + SongPlayCountColumns.ID + " = ?");
+        try {
+            final long rolledUpEventId = queryLong(database, "SELECT MAX(" + PlayEventRollupColumns.LAST_EVENT_ID
+                    + ") FROM " + PlayEventRollupColumns.NAME);
+            final long lastEventId = queryLong(database, "SELECT MAX(" + PlayEventColumns.EVENT_ID
+                    + ") FROM " + PlayEventColumns.NAME);
+            if (lastEventId <= rolledUpEventId) {return;}
+
+            // the plays out of the window, if any, are left to the expiry
+            try (final Cursor cursor = database.rawQuery("SELECT " + PlayEventColumns.ID + ", "
+                    + PlayEventColumns.TIME_PLAYED + " / " + ONE_WEEK_IN_MS + " AS week, COUNT(*) FROM " + PlayEventColumns.NAME
+                    + " WHERE " + PlayEventColumns.EVENT_ID + " > ? AND " + PlayEventColumns.EVENT_ID + " <= ?"
+                    + " AND " + PlayEventColumns.TIME_PLAYED + " >= ?"
+                    + " GROUP BY " + PlayEventColumns.ID + ", week",
+                    new String[]{String.valueOf(rolledUpEventId), String.valueOf(lastEventId), String.valueOf(oldestTimeWeCareAbout)})) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    do {
+                        final long songId = cursor.getLong(0);
+                        final int week = cursor.getInt(1);
+                        final int playCount = cursor.getInt(2);
+
+                        insertWeek.bindLong(1, songId);
+                        insertWeek.bindLong(2, week);
+                        insertWeek.executeInsert();
+                        bumpWeek.bindLong(1, playCount);
+                        bumpWeek.bindLong(2, songId);
+                        bumpWeek.bindLong(3, week);
+                        bumpWeek.executeUpdateDelete();
+
+                        insertScore.bindLong(1, songId);
+                        insertScore.executeInsert();
+                        bumpScore.bindDouble(1, playCount * getScoreWeightForWeek(week));
+                        bumpScore.bindLong(2, songId);
+                        bumpScore.executeUpdateDelete();
+                    } while (cursor.moveToNext());
+                }
+            }
 
-        float score = 0;
-        for (int i = 0; i < Math.min(playCounts.length, NUM_WEEKS); i++) {
-            score += playCounts[i] * getScoreMultiplierForWeek(i);
+            final ContentValues values = new ContentValues(2);
+            values.put(PlayEventRollupColumns.ID, 0);
+            values.put(PlayEventRollupColumns.LAST_EVENT_ID, lastEventId);
+            database.insertWithOnConflict(PlayEventRollupColumns.NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            database.setTransactionSuccessful();
+        } finally {
+            insertWeek.close();
+            bumpWeek.close();
+            insertScore.close();
+            bumpScore.close();
+            database.endTransaction();
         }
-
-        return score;
     }
 
-    /**
-     * Gets the column name for each week #
-     *
-     * @param week number
-     * @return the column name
-     */
-    @NonNull
-    private static String getColumnNameForWeek(final int week) {
-        return SongPlayCountColumns.WEEK_PLAY_COUNT + week;
+    private static long queryLong(@NonNull final SQLiteDatabase database, @NonNull final String query) {
+        try (final Cursor cursor = database.rawQuery(query, null)) {
+            if (cursor == null || !cursor.moveToFirst() || cursor.isNull(0)) {return 0;}
+            return cursor.getLong(0);
+        }
     }
 
-    /**
-     * Gets the score multiplier for each week
-     *
-     * @param week number
-     * @return the multiplier to apply
-     */
-    private static float getScoreMultiplierForWeek(final int week) {
-        return sInterpolator.getInterpolation(1 - (week / (float) NUM_WEEKS)) * INTERPOLATOR_HEIGHT
-                + INTERPOLATOR_BASE;
+    private static int getCurrentWeek() {
+        return (int) (System.currentTimeMillis() / ONE_WEEK_IN_MS);
     }
 
     /**
-     * For some performance gain, return a static value for the column index for a week
-     * WARNING: This function assumes you have selected all columns for it to work
+     * Gets the score weight of a play in a given week
      *
-     * @param week number
-     * @return column index of that week
+     * @param week number of weeks since epoch
+     * @return the weight to apply
      */
-    private static int getColumnIndexForWeek(final int week) {
-        // ID, followed by the weeks columns
-        return 1 + week;
+    private static double getScoreWeightForWeek(final int week) {
+        return Math.pow(2, (week - ANCHOR_WEEK) / (double) HALF_LIFE_WEEKS);
     }
 
     public interface SongPlayCountColumns {
 
-        String NAME = "song_play_count";
+        String NAME = "song_play_score";
 
         String ID = "song_id";
-        String WEEK_PLAY_COUNT = "week";
-        String LAST_UPDATED_WEEK_INDEX = "week_index";
         String PLAY_COUNT_SCORE = "play_count_score";
     }
+
+    public interface WeeklyPlayCountColumns {
+
+        String NAME = "song_weekly_play_count";
+
+        String ID = "song_id";
+        String WEEK = "week";
+        String PLAY_COUNT = "play_count";
+    }
+
+    public interface PlayEventColumns {
+
+        String NAME = "play_event";
+
+        String EVENT_ID = "event_id";
+        String ID = "song_id";
+        String TIME_PLAYED = "time_played";
+    }
+
+    public interface PlayEventRollupColumns {
+
+        String NAME = "play_event_rollup";
+
+        String ID = "id";
+        String LAST_EVENT_ID = "last_event_id";
+    }
 }
@@ -1,146 +1,81 @@
 package com.poupa.vinylmusicplayer.provider;
 
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.os.Handler;
-import android.text.TextUtils;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.poupa.vinylmusicplayer.App;
-import com.poupa.vinylmusicplayer.R;
-import com.poupa.vinylmusicplayer.loader.PlaylistLoader;
-import com.poupa.vinylmusicplayer.loader.PlaylistSongLoader;
 import com.poupa.vinylmusicplayer.model.Playlist;
-import com.poupa.vinylmusicplayer.util.PrefKey;
-import com.poupa.vinylmusicplayer.util.SafeToast;
+import com.poupa.vinylmusicplayer.model.Song;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.UUID;
 
 /**
  * @author SC (soncaokim)
  */
-public class StaticPlaylist extends PreferenceBackedReorderableSongList {
-    private static final String PREF_MIGRATED_STATIC_PLAYLISTS = PrefKey.nonExportableKey("migrated_static_playlists");
-
-    @NonNull
-    private static List<StaticPlaylist> importDevicePlaylists(@NonNull final Context context, @NonNull final Set<String> internalNames) {
-        List<StaticPlaylist> importedPlaylists = new ArrayList<>();
-
-        final SharedPreferences preferences = getPreferences();
-        final boolean noMigrationMarker = !preferences.contains(PREF_MIGRATED_STATIC_PLAYLISTS);
-
-        Set<String> previouslyMigratedNames = new HashSet<>(preferences.getStringSet(PREF_MIGRATED_STATIC_PLAYLISTS, new HashSet<>()));
-        Set<String> skippedNames = new HashSet<>();
-        Set<String> nowMigratedNames = new HashSet<>();
-
-        final boolean keepMediaStorePlaylistsInSync = true;
-
-        for (Playlist playlist : PlaylistLoader.getAllPlaylists(context)) {
-            final String name = playlist.name;
-            if (internalNames.contains(name)) {
-                // don't overwrite internal ones
-                skippedNames.add(name);
-                continue;
-            }
-
-            if (previouslyMigratedNames.contains(name) && !keepMediaStorePlaylistsInSync) {
-                // don't migrate again
-                nowMigratedNames.add(name);
-                continue;
-            }
-
-            StaticPlaylist importedPlaylist = new StaticPlaylist(name);
-            importedPlaylist.addSongs(PlaylistSongLoader.getPlaylistSongList(context, playlist.id));
-
-            importedPlaylists.add(importedPlaylist);
-            nowMigratedNames.add(name);
-
-            // Note: Don't delete migrated playlists here.
-            // since playlist can be shared with other apps, this will be a destructive action
-        }
-
-        // Set a persistent marker in prefs, to avoid doing this again
-        final boolean changed = !previouslyMigratedNames.containsAll(nowMigratedNames) || !nowMigratedNames.containsAll(previouslyMigratedNames);
-        if (noMigrationMarker || changed) {
-            preferences.edit().putStringSet(PREF_MIGRATED_STATIC_PLAYLISTS, nowMigratedNames).apply();
-        }
-
-        if (noMigrationMarker) {
-            new Handler(context.getMainLooper()).post(() -> {
-                final String message = !skippedNames.isEmpty()
-                    ? context.getResources().getString(R.string.imported_x_skipped_x_playlists, nowMigratedNames.size(), skippedNames.size())
-                    : context.getResources().getString(R.string.imported_x_playlists, nowMigratedNames.size());
-                SafeToast.show(context, message);
-            });
-        }
-
-        return importedPlaylists;
-    }
-
+public class StaticPlaylist extends StoreBackedReorderableSongList {
     @NonNull
     public static List<StaticPlaylist> getAllPlaylists() {
-        List<StaticPlaylist> internalPlaylists = new ArrayList<>();
-        Set<String> internalNames = new HashSet<>();
-        for (PreferencesBackedSongList playlist : PreferencesBackedSongList.loadAll()) {
-            internalNames.add(playlist.name);
-            internalPlaylists.add(new StaticPlaylist(playlist.name));
-        }
-
-        List<StaticPlaylist> importedPlaylists = importDevicePlaylists(App.getStaticContext(), internalNames);
-        internalPlaylists.addAll(importedPlaylists);
-
-        return internalPlaylists;
+        DevicePlaylistSync.start();
+        return PlaylistRegistry.getInstance().getAll();
     }
 
     @Nullable
     public static StaticPlaylist getPlaylist(final long id) {
-        List<StaticPlaylist> all = getAllPlaylists();
-        for (StaticPlaylist item : all) {
-            Playlist playlist = item.asPlaylist();
-            if (playlist.id == id) {return item;}
-        }
-        return null;
+        DevicePlaylistSync.start();
+        return PlaylistRegistry.getInstance().get(id);
     }
 
     @Nullable
     public static StaticPlaylist getPlaylist(@NonNull final String playlistName) {
-        List<StaticPlaylist> all = getAllPlaylists();
-        for (StaticPlaylist item : all) {
-            Playlist playlist = item.asPlaylist();
-            if (TextUtils.equals(playlist.name, playlistName)) {return item;}
-        }
-        return null;
+        DevicePlaylistSync.start();
+        return PlaylistRegistry.getInstance().get(playlistName);
     }
 
     @NonNull
     public static StaticPlaylist getOrCreatePlaylist(@NonNull final String name) {
-        StaticPlaylist result = getPlaylist(name);
-        if (result == null) {
-            result = new StaticPlaylist(name);
-            result.save(null);
-        }
-        return result;
+        return PlaylistRegistry.getInstance().getOrCreate(name);
     }
 
     public static void removePlaylist(@NonNull final String name) {
-        remove(name);
+        PlaylistRegistry.getInstance().remove(name);
     }
 
-    public StaticPlaylist(@NonNull final String name) {
+    StaticPlaylist(@NonNull final String name) {
         super(name);
     }
 
+    public long getId() {
+        // MD5-based algo, supposed to yield more unique ID than String.hash
+        return UUID.nameUUIDFromBytes(name.getBytes()).getMostSignificantBits();
+    }
+
+    @Nullable
+    String getDeviceFingerprint() {
+        final long storeId = getStoreId();
+        return (storeId != PlaylistStore.NO_PLAYLIST) ? getStore().getDeviceFingerprint(storeId) : null;
+    }
+
+    void setDeviceFingerprint(@NonNull final String fingerprint) {
+        final long storeId = getStoreId();
+        if (storeId != PlaylistStore.NO_PLAYLIST) {getStore().setDeviceFingerprint(storeId, fingerprint);}
+    }
+
+    void importFromDevice(@NonNull final List<? extends Song> songs, @NonNull final String fingerprint) {
+        replaceSongs(songs);
+        setDeviceFingerprint(fingerprint);
+    }
+
+    @Override
+    public void rename(@NonNull final String newName) {
+        final String oldName = getName();
+        final long oldId = getId();
+        super.rename(newName);
+
+        // Outside of the playlist lock, see PlaylistRegistry
+        PlaylistRegistry.getInstance().onRenamed(this, oldName, oldId);
+    }
+
     public Playlist asPlaylist() {
-        return new Playlist(
-                // MD5-based algo, supposed to yield more unique ID than String.hash
-                UUID.nameUUIDFromBytes(name.getBytes()).getMostSignificantBits(),
-                name
-        );
+        return new Playlist(getId(), getName());
     }
 }
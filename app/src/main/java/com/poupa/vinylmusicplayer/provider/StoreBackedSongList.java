@@ -0,0 +1,437 @@
+package com.poupa.vinylmusicplayer.provider;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.poupa.vinylmusicplayer.App;
+import com.poupa.vinylmusicplayer.discog.Discography;
+import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.model.Song;
+import com.poupa.vinylmusicplayer.util.LongMultiset;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Ordered list of songs, backed by a persistent storage
+ * Can be used for playlist, play queue
+ *
+ * The content is loaded on first access, and each modification persists only what it changes.
+ * The instances can be shared between threads, the public operations lock the list.
+ */
+abstract class SongList {
+    @NonNull public String name;
+    final List<Long> songIds = new ArrayList<>();
+    // The same ids, for the membership checks - to be kept in sync with songIds
+    final LongMultiset memberIds = new LongMultiset();
+    private boolean loaded = false;
+
+    SongList(@NonNull String name) {
+        this.name = name;
+    }
+
+    abstract void load();
+
+    // Remove the entries at the given valid positions, sorted in decreasing order
+    abstract void removeAt(@NonNull List<Integer> positions);
+
+    final void ensureLoaded() {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+    }
+
+    @NonNull
+    public String getName() {return name;}
+
+    public synchronized boolean contains(long songId) {
+        ensureLoaded();
+        return memberIds.contains(songId);
+    }
+
+    @NonNull
+    public synchronized List<? extends Song> asSongs() {
+        ensureLoaded();
+
+        // Since the song list is decoupled from Discography, we need to check its content
+        // against the valid songs in discog
+        final ArrayList<Long> orphanIds = new ArrayList<>();
+        final ArrayList<Song> result = Discography.getInstance().getSongsFromIds(songIds, orphanIds);
+
+        if (!orphanIds.isEmpty()) {
+            final HashSet<Long> orphans = new HashSet<>(orphanIds);
+            final ArrayList<Integer> orphanPositions = new ArrayList<>(orphanIds.size());
+            for (int i = songIds.size() - 1; i >= 0; --i) {
+                if (orphans.contains(songIds.get(i))) {orphanPositions.add(i);}
+            }
+            removeAt(orphanPositions);
+        }
+        return result;
+    }
+}
+
+abstract class MutableSongList extends SongList {
+    MutableSongList(@NonNull String name) {
+        super(name);
+    }
+
+    abstract void append(@NonNull List<Long> ids);
+
+    // Move the entry between two valid positions, the target being its position after the move
+    abstract void move(int fromPosition, int toPosition);
+
+    abstract void saveName(@NonNull String newName);
+
+    public synchronized void addSongs(@NonNull List<Song> songs) {
+        ensureLoaded();
+
+        final ArrayList<Long> ids = new ArrayList<>(songs.size());
+        for (Song song : songs) {
+            ids.add(song.id);
+        }
+        append(ids);
+    }
+
+    public synchronized void removeSong(long id) {
+        ensureLoaded();
+
+        final int position = songIds.indexOf(id);
+        if (position >= 0) {removeAt(List.of(position));}
+    }
+
+    public synchronized void removeSongsAtPosition(@NonNull final List<Integer> positions) {
+        ensureLoaded();
+
+        final TreeSet<Integer> reversedPositions = new TreeSet<>(Comparator.reverseOrder());
+        for (final int position : positions) {
+            if (position >= 0 && position < songIds.size()) {
+                reversedPositions.add(position);
+            }
+        }
+        if (!reversedPositions.isEmpty()) {removeAt(new ArrayList<>(reversedPositions));}
+    }
+
+    public synchronized boolean moveSong(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {return true;}
+
+        ensureLoaded();
+        final int size = songIds.size();
+        if (fromPosition < 0 || fromPosition >= size) {return false;}
+        if (toPosition < 0 || toPosition >= size) {return false;}
+
+        final int toPositionShift = fromPosition < toPosition ? -1 : 0;
+        move(fromPosition, toPosition + toPositionShift);
+
+        return true;
+    }
+
+    public synchronized void rename(@NonNull final String newName) {
+        ensureLoaded();
+        saveName(newName);
+    }
+}
+
+public class StoreBackedSongList extends MutableSongList {
+    // Delay before persisting an ended edit session, so that the sessions in a row are written together
+    private static final long EDIT_COMMIT_DELAY_MS = 500;
+    private static final Handler editCommitHandler = new Handler(Looper.getMainLooper());
+    private static final Executor editWriteExecutor = Executors.newSingleThreadExecutor();
+
+    // A modification of the stored entries, false if the store differs from the list
+    private interface EntriesWrite {
+        boolean apply(@NonNull PlaylistStore store, long playlistId);
+    }
+
+    // The sort keys of the entries, in the same order as the song ids
+    private final List<Long> sortKeys = new ArrayList<>();
+    private long playlistId = PlaylistStore.NO_PLAYLIST;
+
+    // Edit session, see beginEdit
+    private int editDepth = 0;
+    // The modifications not persisted yet, in order
+    private final ArrayList<EntriesWrite> pendingWrites = new ArrayList<>();
+    private final Runnable editCommitRunnable = () -> editWriteExecutor.execute(this::writePending);
+
+    static PlaylistStore getStore() {
+        return PlaylistStore.getInstance(App.getStaticContext());
+    }
+
+    static void remove(@NonNull String name) {
+        getStore().deletePlaylist(name);
+    }
+
+    StoreBackedSongList(@NonNull String name) {
+        super(name);
+    }
+
+    /**
+     * Start an edit session, e.g. for a drag gesture.
+     * Until the session ends, the modifications are applied in memory only,
+     * their writes being persisted in background shortly after the end.
+     */
+    public synchronized void beginEdit() {
+        ensureLoaded();
+        ++editDepth;
+        editCommitHandler.removeCallbacks(editCommitRunnable);
+    }
+
+    public synchronized void endEdit() {
+        if (editDepth == 0) {return;}
+        --editDepth;
+        scheduleEditCommit();
+    }
+
+    /**
+     * Persist the ended edit sessions now, without waiting for the delay, e.g. when leaving the screen
+     */
+    public synchronized void flushEdit() {
+        if (editDepth > 0 || pendingWrites.isEmpty()) {return;}
+        editCommitHandler.removeCallbacks(editCommitRunnable);
+        editCommitRunnable.run();
+    }
+
+    // If in an edit session or with modifications not persisted yet, keep this one for later too
+    private boolean deferToEditSession(@NonNull final EntriesWrite write) {
+        if (editDepth == 0 && pendingWrites.isEmpty()) {return false;}
+        pendingWrites.add(write);
+        scheduleEditCommit();
+        return true;
+    }
+
+    private void scheduleEditCommit() {
+        if (editDepth > 0 || pendingWrites.isEmpty()) {return;}
+        editCommitHandler.removeCallbacks(editCommitRunnable);
+        editCommitHandler.postDelayed(editCommitRunnable, EDIT_COMMIT_DELAY_MS);
+    }
+
+    /**
+     * Drop the modifications not persisted yet, i.e. when the playlist is deleted
+     */
+    public synchronized void discardEdit() {
+        pendingWrites.clear();
+        editCommitHandler.removeCallbacks(editCommitRunnable);
+    }
+
+    @VisibleForTesting
+    synchronized void writePending() {
+        // Restarted meanwhile, to be written with the next session
+        if (editDepth > 0 || pendingWrites.isEmpty()) {return;}
+
+        final ArrayList<EntriesWrite> writes = new ArrayList<>(pendingWrites);
+        pendingWrites.clear();
+        if (playlistId == PlaylistStore.NO_PLAYLIST) {
+            create();
+            renumber();
+            return;
+        }
+
+        final PlaylistStore store = getStore();
+        final boolean written = store.applyInTransaction(() -> {
+            for (final EntriesWrite write : writes) {
+                if (!write.apply(store, playlistId)) {return false;}
+            }
+            return true;
+        });
+        if (!written) {
+            // The stored playlist differs from this one, write this one as a whole - including the next writes
+            renumber();
+        }
+    }
+
+    // Persist the list even if empty
+    synchronized void create() {
+        ensureLoaded();
+        if (playlistId == PlaylistStore.NO_PLAYLIST) {
+            playlistId = getStore().getOrCreatePlaylist(name);
+        }
+    }
+
+    // The id of the list in the store, NO_PLAYLIST if not persisted yet
+    synchronized long getStoreId() {
+        ensureLoaded();
+        return playlistId;
+    }
+
+    /**
+     * Replace the whole content of the list, persisting it even if empty
+     */
+    synchronized void replaceSongs(@NonNull List<? extends Song> songs) {
+        create();
+
+        // Supersedes any pending write
+        pendingWrites.clear();
+        editCommitHandler.removeCallbacks(editCommitRunnable);
+
+        songIds.clear();
+        sortKeys.clear();
+        memberIds.clear();
+        for (Song song : songs) {
+            sortKeys.add(PlaylistStore.SORT_KEY_GAP * songIds.size());
+            songIds.add(song.id);
+            memberIds.add(song.id);
+        }
+        getStore().replaceEntries(playlistId, songIds, sortKeys);
+    }
+
+    @Override
+    void load() {
+        songIds.clear();
+        sortKeys.clear();
+        memberIds.clear();
+
+        final PlaylistStore store = getStore();
+        playlistId = store.getPlaylistId(name);
+        if (playlistId != PlaylistStore.NO_PLAYLIST) {
+            store.loadEntries(playlistId, songIds, sortKeys);
+            for (long id : songIds) {memberIds.add(id);}
+        }
+    }
+
+    @Override
+    void append(@NonNull List<Long> ids) {
+        songIds.addAll(ids);
+        for (long id : ids) {memberIds.add(id);}
+
+        // Same keys as the store would assign, following the last entry
+        final ArrayList<Long> newSortKeys = new ArrayList<>(ids.size());
+        long sortKey = sortKeys.isEmpty() ? 0 : sortKeys.get(sortKeys.size() - 1) + PlaylistStore.SORT_KEY_GAP;
+        for (int i = 0; i < ids.size(); ++i) {
+            newSortKeys.add(sortKey);
+            sortKey += PlaylistStore.SORT_KEY_GAP;
+        }
+        final ArrayList<Long> newIds = new ArrayList<>(ids);
+        if (deferToEditSession((store, id) -> store.insertEntries(id, newIds, newSortKeys))) {
+            sortKeys.addAll(newSortKeys);
+            return;
+        }
+
+        create();
+        sortKeys.addAll(getStore().appendEntries(playlistId, ids));
+    }
+
+    @Override
+    void removeAt(@NonNull List<Integer> positions) {
+        final ArrayList<Long> removedKeys = new ArrayList<>(positions.size());
+        for (final int position : positions) {
+            memberIds.remove(songIds.remove(position));
+            removedKeys.add(sortKeys.remove(position));
+        }
+        if (deferToEditSession((store, id) -> {
+            store.deleteEntries(id, removedKeys);
+            return true;
+        })) {return;}
+        if (playlistId != PlaylistStore.NO_PLAYLIST) {
+            getStore().deleteEntries(playlistId, removedKeys);
+        }
+    }
+
+    @Override
+    void move(int fromPosition, int toPosition) {
+        final long movedSongId = songIds.remove(fromPosition);
+        final long movedSortKey = sortKeys.remove(fromPosition);
+        songIds.add(toPosition, movedSongId);
+
+        // Take a key between the new neighbours, or renumber the whole list if there is no room left
+        final Long previousKey = (toPosition > 0) ? sortKeys.get(toPosition - 1) : null;
+        final Long nextKey = (toPosition < sortKeys.size()) ? sortKeys.get(toPosition) : null;
+        final long newSortKey;
+        if (previousKey == null && nextKey == null) {
+            newSortKey = movedSortKey;
+        } else if (previousKey == null) {
+            newSortKey = nextKey - PlaylistStore.SORT_KEY_GAP;
+        } else if (nextKey == null) {
+            newSortKey = previousKey + PlaylistStore.SORT_KEY_GAP;
+        } else if (nextKey - previousKey > 1) {
+            newSortKey = previousKey + (nextKey - previousKey) / 2;
+        } else {
+            sortKeys.add(toPosition, movedSortKey);
+            renumber();
+            return;
+        }
+        sortKeys.add(toPosition, newSortKey);
+
+        if (deferToEditSession((store, id) -> store.moveEntry(id, movedSortKey, newSortKey))) {return;}
+        if (playlistId == PlaylistStore.NO_PLAYLIST) {return;}
+        if (!getStore().moveEntry(playlistId, movedSortKey, newSortKey)) {
+            // The stored playlist differs from this one, write this one as a whole
+            renumber();
+        }
+    }
+
+    private void renumber() {
+        for (int i = 0; i < sortKeys.size(); ++i) {
+            sortKeys.set(i, PlaylistStore.SORT_KEY_GAP * i);
+        }
+
+        // Supersedes the pending writes, if any
+        if (!pendingWrites.isEmpty() || editDepth > 0) {
+            final ArrayList<Long> ids = new ArrayList<>(songIds);
+            final ArrayList<Long> keys = new ArrayList<>(sortKeys);
+            pendingWrites.clear();
+            pendingWrites.add((store, id) -> {
+                store.replaceEntries(id, ids, keys);
+                return true;
+            });
+            scheduleEditCommit();
+            return;
+        }
+        if (playlistId != PlaylistStore.NO_PLAYLIST) {
+            getStore().replaceEntries(playlistId, songIds, sortKeys);
+        }
+    }
+
+    @Override
+    void saveName(@NonNull String newName) {
+        create();
+        getStore().renamePlaylist(playlistId, newName);
+        name = newName;
+    }
+}
+
+class StoreBackedReorderableSongList extends StoreBackedSongList {
+    StoreBackedReorderableSongList(@NonNull final String name) {
+        super(name);
+    }
+
+    // Assign a stable and unique ID to each song in the list. That ID can then be used as UI RecycleView's ID
+    // - to be unique: the Song's id cannot be used since the list can contain duplicate of same song
+    // - to be stable: the postition of the song in the list cannot be used as an ID since the song can be moved (hence the position changes)
+
+    private long nextUniqueId = 0L;
+
+    // The songs wrapped by the previous call, and their entries - reused while the same song stays at the same position
+    @NonNull private List<? extends Song> wrappedSongs = new ArrayList<>();
+    @NonNull private List<IndexedSong> indexedSongs = new ArrayList<>();
+
+    @Override
+    @NonNull
+    public synchronized List<? extends Song> asSongs() {
+        final List<? extends Song> songs = super.asSongs();
+        final int count = songs.size();
+
+        final ArrayList<IndexedSong> result = new ArrayList<>(count);
+        for (int i=0; i<count; ++i) {
+            final Song song = songs.get(i);
+            if (i < wrappedSongs.size() && wrappedSongs.get(i) == song) {
+                result.add(indexedSongs.get(i));
+            } else {
+                ++nextUniqueId;
+                result.add(new IndexedSong(song, i, nextUniqueId));
+            }
+        }
+        wrappedSongs = songs;
+        indexedSongs = result;
+
+        // Not to share the list itself, the caller may modify it
+        return new ArrayList<>(result);
+    }
+}
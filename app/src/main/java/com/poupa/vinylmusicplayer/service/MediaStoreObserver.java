@@ -20,11 +20,10 @@ public class MediaStoreObserver extends ContentObserver implements Runnable {
         // if a change is detected, remove any scheduled callback
         // then post a new one. This is intended to prevent closely
         // spaced events from generating multiple refresh calls
-        synchronized (mMusicService) {
-            if (mHandler.getLooper().getThread().isAlive()) {
-                mHandler.removeCallbacks(this);
-                mHandler.postDelayed(this, REFRESH_DELAY);
-            }
+        // No need to hold the service, the handler being thread safe
+        if (mHandler.getLooper().getThread().isAlive()) {
+            mHandler.removeCallbacks(this);
+            mHandler.postDelayed(this, REFRESH_DELAY);
         }
     }
 
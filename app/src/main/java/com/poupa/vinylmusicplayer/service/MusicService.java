@@ -23,6 +23,7 @@ import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.PowerManager;
 import android.os.Process;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.provider.MediaStore;
 import android.support.v4.media.MediaBrowserCompat;
@@ -34,6 +35,7 @@ import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
+import androidx.core.util.Pair;
 import androidx.core.util.Predicate;
 import androidx.media.MediaBrowserServiceCompat;
 
@@ -47,15 +49,16 @@ import com.poupa.vinylmusicplayer.discog.tagging.MultiValuesTagUtil;
 import com.poupa.vinylmusicplayer.glide.audiocover.SongCover;
 import com.poupa.vinylmusicplayer.glide.audiocover.SongCoverFetcher;
 import com.poupa.vinylmusicplayer.helper.PendingIntentCompat;
+import com.poupa.vinylmusicplayer.helper.ShufflePermutation;
 import com.poupa.vinylmusicplayer.helper.WeakMethodReference;
 import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.misc.queue.QueueJournal;
+import com.poupa.vinylmusicplayer.misc.queue.QueueWindow;
 import com.poupa.vinylmusicplayer.misc.queue.StaticPlayingQueue;
 import com.poupa.vinylmusicplayer.model.Album;
 import com.poupa.vinylmusicplayer.model.Playlist;
 import com.poupa.vinylmusicplayer.model.Song;
-import com.poupa.vinylmusicplayer.provider.HistoryStore;
 import com.poupa.vinylmusicplayer.provider.MusicPlaybackQueueStore;
-import com.poupa.vinylmusicplayer.provider.SongPlayCountStore;
 import com.poupa.vinylmusicplayer.service.notification.CrashNotification;
 import com.poupa.vinylmusicplayer.service.notification.IdleNotification;
 import com.poupa.vinylmusicplayer.service.notification.PlayingNotification;
@@ -75,6 +78,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * @author Karim Abou Zeid (kabouzeid), Andrew Neal
@@ -116,11 +121,14 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     static final String TOGGLE_SHUFFLE = VINYL_MUSIC_PLAYER_PACKAGE_NAME + ".toggleshuffle";
     public static final String TOGGLE_FAVORITE = VINYL_MUSIC_PLAYER_PACKAGE_NAME + ".togglefavorite";
 
-    private static final String SAVED_POSITION = PrefKey.nonExportableKey("POSITION");
-    private static final String SAVED_POSITION_IN_TRACK = PrefKey.nonExportableKey("POSITION_IN_TRACK");
+    static final String SAVED_POSITION = PrefKey.nonExportableKey("POSITION");
+    static final String SAVED_POSITION_IN_TRACK = PrefKey.nonExportableKey("POSITION_IN_TRACK");
     private static final String SAVED_SHUFFLE_MODE = PrefKey.exportableKey("SHUFFLE_MODE");
     private static final String SAVED_REPEAT_MODE = PrefKey.exportableKey("REPEAT_MODE");
 
+    // Number of songs restored before and after the saved position, before restoring the rest of the queue
+    private static final int QUEUE_RESTORE_WINDOW_RADIUS = 50;
+
     static final int RELEASE_WAKELOCK = 0;
     static final int TRACK_ENDED = 1;
     static final int TRACK_WENT_TO_NEXT = 2;
@@ -154,8 +162,18 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     final AppWidgetCard appWidgetCard = AppWidgetCard.getInstance();
 
     private StaticPlayingQueue playingQueue = new StaticPlayingQueue();
+    // Published on every change, for the readers not to lock the service
+    private volatile PlaybackState playbackState = PlaybackState.EMPTY;
+    private long queueVersion;
+    // Queue operations not persisted yet, and whether they can be appended to the journal of the saved queues
+    private final ArrayList<QueueJournal.Operation> pendingQueueOperations = new ArrayList<>();
+    private boolean queueSnapshotRequired;
 
     private boolean queuesRestored;
+    // Set while the playing queue only holds a window of the restored queue
+    @Nullable private QueueWindow restoredQueueWindow;
+    // The read of the full restored queues, in background or by the first queue modification, whichever comes first
+    @Nullable private FutureTask<Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>>> restoredQueuesRead;
     private boolean pausedByTransientLossOfFocus;
 
     private PlayingNotification playingNotification;
@@ -186,6 +204,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     private HandlerThread queueSaveHandlerThread;
 
     private final SongPlayCountHelper songPlayCountHelper = new SongPlayCountHelper();
+    private PlaybackStatsRecorder statsRecorder;
     private ThrottledSeekHandler throttledSeekHandler;
     private boolean becomingNoisyReceiverRegistered;
     private final IntentFilter becomingNoisyReceiverIntentFilter = new IntentFilter(AudioManager.ACTION_AUDIO_BECOMING_NOISY);
@@ -244,6 +263,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
         queueSaveHandlerThread = new HandlerThread("QueueSaveHandler", Process.THREAD_PRIORITY_BACKGROUND);
         queueSaveHandlerThread.start();
         queueSaveHandler = new QueueSaveHandler(this, queueSaveHandlerThread.getLooper());
+        statsRecorder = new PlaybackStatsRecorder(this, queueSaveHandler);
 
         uiThreadHandler = new Handler();
 
@@ -263,6 +283,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
                 MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, mediaStoreObserver);
 
         PreferenceUtil.getInstance().registerOnSharedPreferenceChangedListener(this);
+        playingQueue.setSpreadShuffle(PreferenceUtil.getInstance().spreadShuffle());
 
         restoreState();
 
@@ -387,6 +408,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
         }
         mediaSession.setActive(false);
         quit();
+        statsRecorder.close();
         releaseResources();
         getContentResolver().unregisterContentObserver(mediaStoreObserver);
         PreferenceUtil.getInstance().unregisterOnSharedPreferenceChangedListener(this);
@@ -406,25 +428,84 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     }
 
     void saveQueuesImpl() {
-        ArrayList<IndexedSong> queue;
-        ArrayList<IndexedSong> originalQueue;
+        final MusicPlaybackQueueStore queueStore = MusicPlaybackQueueStore.getInstance(this);
+        final ArrayList<QueueJournal.Operation> operations;
+        ArrayList<IndexedSong> queue = null;
+        ArrayList<IndexedSong> originalQueue = null;
+        int shuffleMode = SHUFFLE_MODE_NONE;
+        ShufflePermutation shuffleOrder = null;
         synchronized (this) {
-            // Get a copy of the queues
-            queue = new ArrayList<>(playingQueue.getPlayingQueue());
-            originalQueue = new ArrayList<>(playingQueue.getOriginalPlayingQueue());
+            // The restore is incomplete, nothing to save yet
+            if (restoredQueueWindow != null) {return;}
+
+            operations = new ArrayList<>(pendingQueueOperations);
+            pendingQueueOperations.clear();
+
+            if (queueSnapshotRequired || queueStore.isSnapshotDue(operations.size())) {
+                // Get a copy of the queues
+                queue = new ArrayList<>(playingQueue.getPlayingQueue());
+                originalQueue = new ArrayList<>(playingQueue.getOriginalPlayingQueue());
+                shuffleMode = playingQueue.getShuffleMode();
+                shuffleOrder = playingQueue.getShuffleOrder();
+                queueSnapshotRequired = false;
+            }
+        }
+
+        if (queue != null) {
+            queueStore.saveQueues(queue, originalQueue, shuffleMode, shuffleOrder);
+        } else if (!queueStore.appendToJournal(operations)) {
+            synchronized (this) {
+                queueSnapshotRequired = true;
+            }
+            saveQueues();
+        }
+    }
+
+    private final QueueJournal.Listener queueJournalListener = new QueueJournal.Listener() {
+        @Override
+        public void onOperation(@NonNull final QueueJournal.Operation operation) {
+            synchronized (MusicService.this) {
+                pendingQueueOperations.add(operation);
+            }
+        }
+
+        @Override
+        public void onUnjournaledChange() {
+            synchronized (MusicService.this) {
+                queueSnapshotRequired = true;
+            }
+        }
+    };
+
+    private void setRestoredPlayingQueue(@NonNull final StaticPlayingQueue queue, final boolean snapshotRequired) {
+        synchronized (this) {
+            // Operations done on the replaced queue are void
+            pendingQueueOperations.clear();
+            queueSnapshotRequired = snapshotRequired;
+            // The shuffle mode comes from the preferences, make sure that the journal agrees with it
+            pendingQueueOperations.add(QueueJournal.Operation.shuffleMode(queue.getShuffleMode()));
+
+            playingQueue = queue;
+            playingQueue.setSpreadShuffle(PreferenceUtil.getInstance().spreadShuffle());
+            playingQueue.setJournalListener(queueJournalListener);
+            publishPlaybackState(true);
         }
-        MusicPlaybackQueueStore.getInstance(this).saveQueues(
-                queue,
-                originalQueue
-        );
     }
 
     private void savePosition() {
-        PreferenceManager.getDefaultSharedPreferences(this).edit().putInt(SAVED_POSITION, getPosition()).apply();
+        int position;
+        synchronized (this) {
+            position = playingQueue.getCurrentPosition();
+            if (restoredQueueWindow != null) {
+                // Keep the position in the saved queue, not in its window
+                position = restoredQueueWindow.toFullQueuePosition(position);
+            }
+        }
+        statsRecorder.recordPosition(position);
     }
 
     void savePositionInTrack() {
-        PreferenceManager.getDefaultSharedPreferences(this).edit().putInt(SAVED_POSITION_IN_TRACK, getSongProgressMillis()).apply();
+        statsRecorder.recordPositionInTrack(getSongProgressMillis());
     }
 
     private void saveState() {
@@ -459,30 +540,52 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
         synchronized (this) {
             try {
                 // The current playback state
-                final long savedSongId = getCurrentSong().id;
+                final long savedSongId = getSongAt(playingQueue.getCurrentPosition()).id;
 
                 // The saved state
                 final MusicPlaybackQueueStore queueStore = MusicPlaybackQueueStore.getInstance(this);
-                final ArrayList<IndexedSong> restoredQueue = queueStore.getSavedPlayingQueue();
-                final ArrayList<IndexedSong> restoredOriginalQueue = queueStore.getSavedOriginalPlayingQueue();
                 final int restoredPosition = PreferenceManager.getDefaultSharedPreferences(this)
                         .getInt(SAVED_POSITION, StaticPlayingQueue.INVALID_POSITION);
                 final int restoredPositionInTrack = PreferenceManager.getDefaultSharedPreferences(this)
                         .getInt(SAVED_POSITION_IN_TRACK, -1);
 
-                playingQueue = new StaticPlayingQueue(
-                        restoredQueue,
-                        restoredOriginalQueue,
-                        restoredPosition,
-                        playingQueue.getShuffleMode(),
-                        playingQueue.getRepeatMode()
-                );
+                // Restore the songs around the saved position first, so that the playback can resume asap
+                final QueueWindow window = queueStore.getSavedQueueWindow(restoredPosition, QUEUE_RESTORE_WINDOW_RADIUS);
+                final StaticPlayingQueue windowQueue = (window == null) ? null
+                        : window.createQueue(restoredPosition, playingQueue.getShuffleMode(), playingQueue.getRepeatMode());
+                if (windowQueue != null) {
+                    // Not persisted, the saved queues stay as they are until the full queues replace the window
+                    pendingQueueOperations.clear();
+                    playingQueue = windowQueue;
+                    playingQueue.setSpreadShuffle(PreferenceUtil.getInstance().spreadShuffle());
+                    restoredQueueWindow = window;
+                    restoredQueuesRead = new FutureTask<>(queueStore::getSavedQueues);
+
+                    queueSaveHandler.removeMessages(QueueSaveHandler.COMPLETE_QUEUE_RESTORE);
+                    queueSaveHandler.sendEmptyMessage(QueueSaveHandler.COMPLETE_QUEUE_RESTORE);
+                } else {
+                    final Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>> restoredQueues = queueStore.getSavedQueues();
+                    final ArrayList<IndexedSong> restoredQueue = restoredQueues.first;
+                    final StaticPlayingQueue queue = new StaticPlayingQueue(
+                            restoredQueue,
+                            restoredQueues.second,
+                            restoredPosition,
+                            playingQueue.getShuffleMode(),
+                            playingQueue.getRepeatMode()
+                    );
+                    // Songs removed from the library are dropped from the restored queue,
+                    // the journal positions and the shuffle order of the saved queues no longer apply
+                    final boolean songsDropped = (queue.size() != restoredQueue.size());
+                    if (!songsDropped) {queue.restoreShuffleOrder(queueStore.getSavedShuffleOrder());}
+                    dropQueueWindow();
+                    setRestoredPlayingQueue(queue, songsDropped);
+                }
                 queuesRestored = true;
 
                 // Before altering the player state, check that it is really necessary
                 // ie. we are changing song in between
                 // This prevents changing the player state, as it will stop the playback
-                final long currentSongId = getCurrentSong().id;
+                final long currentSongId = getSongAt(playingQueue.getCurrentPosition()).id;
                 if (currentSongId != savedSongId) {
                     if (openCurrent() && (restoredPositionInTrack > 0)) {
                         seek(restoredPositionInTrack);
@@ -499,9 +602,129 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
                 SafeToast.show(this, R.string.failed_restore_playing_queue);
 
                 final int shuffleMode = playingQueue.getShuffleMode();
-                playingQueue = new StaticPlayingQueue();
-                playingQueue.setShuffle(shuffleMode);
+                final StaticPlayingQueue queue = new StaticPlayingQueue();
+                queue.setShuffle(shuffleMode);
+                dropQueueWindow();
+                setRestoredPlayingQueue(queue, true);
+            }
+        }
+    }
+
+    /**
+     * Replace the restored window by the full restored queues, in the background
+     */
+    void completeQueueRestore() {
+        final FutureTask<Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>>> read;
+        synchronized (this) {
+            if (restoredQueueWindow == null) {return;}
+            read = restoredQueuesRead;
+        }
+
+        // Read the saved queues without holding the service, so that the playback goes on meanwhile
+        read.run();
+        synchronized (this) {
+            if (restoredQueueWindow != null && restoredQueuesRead == read) {
+                mergeRestoredQueues(restoredQueueWindow, awaitRestoredQueues(read));
+            }
+        }
+    }
+
+    /**
+     * Replace the restored window by the full restored queues now, before modifying the queue.
+     * If the queues are being read in the background, waits for that read instead of reading them again.
+     *
+     * @return The offset to add to the positions in the queue as seen by the caller, to get the same songs in the full queue
+     */
+    private int completeQueueRestoreNow() {
+        synchronized (this) {
+            final QueueWindow window = restoredQueueWindow;
+            if (window == null) {return 0;}
+
+            final Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>> restoredQueues = awaitRestoredQueues(restoredQueuesRead);
+            mergeRestoredQueues(window, restoredQueues);
+            return (restoredQueues == null) ? 0 : window.getRestoredQueueOffset(restoredQueues.first);
+        }
+    }
+
+    /**
+     * @return The saved queues, null if they cannot be read
+     */
+    @Nullable
+    private static Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>> awaitRestoredQueues(
+            @NonNull final FutureTask<Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>>> read) {
+        // Read here if not started yet, else wait for the read in progress
+        read.run();
+        try {
+            return read.get();
+        } catch (final ExecutionException e) {
+            OopsHandler.collectStackTrace(e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Moving on from the first or last song of the window needs the full queue
+     */
+    private void completeQueueRestoreIfAtWindowEdge() {
+        synchronized (this) {
+            if (restoredQueueWindow != null && restoredQueueWindow.isAtEdge(playingQueue.getCurrentPosition())) {
+                completeQueueRestoreNow();
+            }
+        }
+    }
+
+    private void dropQueueWindow() {
+        synchronized (this) {
+            restoredQueueWindow = null;
+            if (restoredQueuesRead != null) {
+                restoredQueuesRead.cancel(false);
+                restoredQueuesRead = null;
+            }
+        }
+    }
+
+    /**
+     * Keep the window as the playing queue, for it to be replaced as a whole: no need to read the full queues
+     */
+    private void discardQueueRestore() {
+        synchronized (this) {
+            if (restoredQueueWindow == null) {return;}
+
+            dropQueueWindow();
+            // Not persisted so far, it will be saved as such
+            setRestoredPlayingQueue(playingQueue, true);
+        }
+    }
+
+    private void mergeRestoredQueues(@NonNull final QueueWindow window, @Nullable final Pair<ArrayList<IndexedSong>, ArrayList<IndexedSong>> restoredQueues) {
+        synchronized (this) {
+            dropQueueWindow();
+            try {
+                if (restoredQueues == null) {throw new IllegalArgumentException("Cannot read the saved queues");}
+
+                // Keep on the current song, wherever the playback went to within the window
+                final ArrayList<IndexedSong> restoredQueue = restoredQueues.first;
+                final StaticPlayingQueue queue = new StaticPlayingQueue(
+                        restoredQueue,
+                        restoredQueues.second,
+                        window.toFullQueuePosition(playingQueue.getCurrentPosition()),
+                        playingQueue.getShuffleMode(),
+                        playingQueue.getRepeatMode()
+                );
+                final boolean songsDropped = (queue.size() != restoredQueue.size());
+                if (!songsDropped) {queue.restoreShuffleOrder(MusicPlaybackQueueStore.getInstance(this).getSavedShuffleOrder());}
+                setRestoredPlayingQueue(queue, songsDropped);
+            } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException queueCopiesOutOfSync) {
+                // Keep the window as the playing queue, it will be saved as such
+                OopsHandler.collectStackTrace(queueCopiesOutOfSync);
+                SafeToast.show(this, R.string.failed_restore_playing_queue);
+                setRestoredPlayingQueue(playingQueue, true);
             }
+
+            prepareNext();
+            sendChangeInternal(QUEUE_CHANGED);
         }
     }
 
@@ -533,30 +756,41 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
         mediaSession.release();
     }
 
-    public boolean isPlaying() {
+    /**
+     * Publish the current state, to be called after any change of the queue or of the player
+     */
+    private void publishPlaybackState(boolean queueChanged) {
         synchronized (this) {
-            return (playback != null) && playback.isPlaying();
+            if (queueChanged) {++queueVersion;}
+
+            final boolean isPlaying = (playback != null) && playback.isPlaying();
+            final int progress = (playback != null) ? playback.position() : -1;
+            final int duration = (playback != null) ? playback.duration() : -1;
+            playbackState = PlaybackState.of(playingQueue, isPlaying, progress, duration, SystemClock.elapsedRealtime(), queueVersion);
         }
     }
 
-    public boolean isPlaying(@NonNull Song song) {
-        synchronized (this) {
-            if (!isPlaying()) {
-                return false;
-            }
+    @NonNull
+    public PlaybackState getPlaybackState() {
+        return playbackState;
+    }
 
-            return getCurrentSong().isQuickEqual(song);
-        }
+    public boolean isPlaying() {
+        return playbackState.isPlaying;
+    }
+
+    public boolean isPlaying(@NonNull Song song) {
+        final PlaybackState state = playbackState;
+        return state.isPlaying && state.currentSong.isQuickEqual(song);
     }
 
     public int getPosition() {
-        synchronized (this) {
-            return playingQueue.getCurrentPosition();
-        }
+        return playbackState.position;
     }
 
     public void playNextSong(boolean skippedLast) {
         synchronized (this) {
+            completeQueueRestoreIfAtWindowEdge();
             playSongAt(playingQueue.getNextPosition(skippedLast), skippedLast);
         }
     }
@@ -564,6 +798,8 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     boolean openTrackAndPrepareNextAt(int position) {
         synchronized (this) {
             playingQueue.setCurrentPosition(position);
+            // So that the readers do not see the previous song while the new one is being opened
+            publishPlaybackState(false);
             boolean prepared = openCurrent();
             if (prepared) prepareNextImpl();
             notifyChange(META_CHANGED);
@@ -575,7 +811,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     private boolean openCurrent() {
         synchronized (this) {
             try {
-                return (playback != null) && playback.setDataSource(getTrackUri(getCurrentSong()));
+                return (playback != null) && playback.setDataSource(getTrackUri(PlaybackState.getCurrentSong(playingQueue)));
             } catch (Exception e) {
                 OopsHandler.collectStackTrace(e);
                 return false;
@@ -594,6 +830,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     void prepareNextImpl() {
         synchronized (this) {
+            completeQueueRestoreIfAtWindowEdge();
             try {
                 int nextPosition = playingQueue.getNextPosition(false);
                 if (getRepeatMode() == REPEAT_MODE_NONE && playingQueue.isLastTrack()) {
@@ -763,7 +1000,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     }
 
     public Song getCurrentSong() {
-        return getSongAt(getPosition());
+        return playbackState.currentSong;
     }
 
     private Song getSongAt(int position) {
@@ -782,6 +1019,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     boolean isLastTrack() {
         synchronized (this) {
+            completeQueueRestoreIfAtWindowEdge();
             return playingQueue.isLastTrack();
         }
     }
@@ -793,9 +1031,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     }
 
     public int getRepeatMode() {
-        synchronized (this) {
-            return playingQueue.getRepeatMode();
-        }
+        return playbackState.repeatMode;
     }
 
     public void cycleRepeatMode() {
@@ -830,13 +1066,12 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     }
 
     public int getShuffleMode() {
-        synchronized (this) {
-            return playingQueue.getShuffleMode();
-        }
+        return playbackState.shuffleMode;
     }
 
     public void toggleShuffle() {
         synchronized (this) {
+            completeQueueRestoreNow();
             playingQueue.toggleShuffle();
         }
         propagateShuffleChange();
@@ -844,6 +1079,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     public void setShuffleMode(final int shuffleMode) {
         synchronized (this) {
+            completeQueueRestoreNow();
             playingQueue.setShuffle(shuffleMode);
         }
         propagateShuffleChange();
@@ -858,6 +1094,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
         }
 
         synchronized (this) {
+            discardQueueRestore();
             if (playingQueue.openQueue(queue, position, shuffleMode)) {
                 if (startPlaying) {
                     playSongAt(playingQueue.getCurrentPosition(), false);
@@ -877,27 +1114,28 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     public void addSongAfter(int position, Song song) {
         synchronized (this) {
-            playingQueue.addAfter(position, song);
+            playingQueue.addAfter(position + completeQueueRestoreNow(), song);
         }
         notifyChange(QUEUE_CHANGED);
     }
 
     public void addSongBackTo(int position, IndexedSong song) {
         synchronized (this) {
-            playingQueue.addSongBackTo(position, song);
+            playingQueue.addSongBackTo(position + completeQueueRestoreNow(), song);
         }
         notifyChange(QUEUE_CHANGED);
     }
 
     public void addSongsAfter(int position, Collection<? extends Song> songs) {
         synchronized (this) {
-            playingQueue.addAllAfter(position, songs);
+            playingQueue.addAllAfter(position + completeQueueRestoreNow(), songs);
         }
         notifyChange(QUEUE_CHANGED);
     }
 
     public void addSong(Song song) {
         synchronized (this) {
+            completeQueueRestoreNow();
             playingQueue.add(song);
         }
         notifyChange(QUEUE_CHANGED);
@@ -905,6 +1143,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     public void addSongs(Collection<? extends Song> songs) {
         synchronized (this) {
+            completeQueueRestoreNow();
             playingQueue.addAll(songs);
             notifyChange(QUEUE_CHANGED);
         }
@@ -912,6 +1151,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     public void removeSong(int position) { // better to test is playing here and have only one signal than calling playNextSong and then removeSong (two signal need time in between to work ok)
         synchronized (this) {
+            position += completeQueueRestoreNow();
             boolean isPlaying = isPlaying(playingQueue.getPlayingQueue().get(position));
 
             int newPosition = playingQueue.remove(position);
@@ -925,6 +1165,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     public void removeSongs(@NonNull List<Song> songs) {
         synchronized (this) {
+            completeQueueRestoreNow();
             int newPosition = playingQueue.removeSongs(songs);
             if (newPosition != -1) {
                 setPosition(newPosition);
@@ -935,13 +1176,15 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     public void moveSong(int from, int to) {
         synchronized (this) {
-            playingQueue.move(from, to);
+            final int offset = completeQueueRestoreNow();
+            playingQueue.move(from + offset, to + offset);
         }
         notifyChange(QUEUE_CHANGED);
     }
 
     public void clearQueue() {
         synchronized (this) {
+            discardQueueRestore();
             playingQueue.clear();
             setPosition(-1);
         }
@@ -950,14 +1193,10 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
 
     public void playSongAt(final int position, boolean skippedLast) {
         if (skippedLast && PreferenceUtil.getInstance().maintainSkippedSongsPlaylist()) {
-            final int songProgressMs;
-            final int songDurationMs;
-            final Song song;
-            synchronized (this) {
-                songProgressMs = getSongProgressMillis();
-                songDurationMs = getSongDurationMillis();
-                song = getCurrentSong();
-            }
+            final PlaybackState state = playbackState;
+            final int songProgressMs = state.getProgressMillis(SystemClock.elapsedRealtime());
+            final int songDurationMs = state.durationMillis;
+            final Song song = state.currentSong;
 
             if ((songProgressMs > SKIP_THRESHOLD_MS) // not just started
                     && (songDurationMs - songProgressMs > SKIP_THRESHOLD_MS) // not about to end
@@ -1016,7 +1255,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
             if (requestFocus()) {
                 if (!playback.isPlaying()) {
                     if (!playback.isInitialized()) {
-                        playSongAt(getPosition(), false);
+                        playSongAt(playingQueue.getCurrentPosition(), false);
                     } else {
                         playback.start();
                         if (!becomingNoisyReceiverRegistered) {
@@ -1043,51 +1282,53 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     }
 
     private void applyReplayGain() {
-        synchronized (this) {
-            if (playback == null) {return;}
-
-            final String mode = PreferenceUtil.getInstance().getReplayGainSourceMode();
-            if (!mode.equals(PreferenceUtil.RG_SOURCE_MODE_NONE)) {
-                Song song = getCurrentSong();
-
-                float adjustDB = 0.0f;
-                float peak = 1.0f;
-
-                float rgTrack = song.replayGainTrack;
-                float rgAlbum = song.replayGainAlbum;
-                float rgpTrack = song.replayGainPeakTrack;
-                float rgpAlbum = song.replayGainPeakAlbum;
-
-                if (mode == PreferenceUtil.RG_SOURCE_MODE_ALBUM) {
-                    adjustDB = (rgTrack == 0.0f ? adjustDB : rgTrack);
-                    adjustDB = (rgAlbum == 0.0f ? adjustDB : rgAlbum);
-                    peak = (rgpTrack == 1.0f ? peak : rgpTrack);
-                    peak = (rgpAlbum == 1.0f ? peak : rgpAlbum);
-                } else if (mode == PreferenceUtil.RG_SOURCE_MODE_TRACK) {
-                    adjustDB = (rgAlbum == 0.0f ? adjustDB : rgAlbum);
-                    adjustDB = (rgTrack == 0.0f ? adjustDB : rgTrack);
-                    peak = (rgpAlbum == 1.0f ? peak : rgpAlbum);
-                    peak = (rgpTrack == 1.0f ? peak : rgpTrack);
-                }
-
-                if (adjustDB == 0) {
-                    adjustDB = PreferenceUtil.getInstance().getRgPreampWithoutTag();
-                } else {
-                    adjustDB += PreferenceUtil.getInstance().getRgPreampWithTag();
-
-                    float peakDB = -20.0f * ((float) Math.log10(peak));
-                    adjustDB = Math.min(adjustDB, peakDB);
-                }
+        final float replayGain;
+        final String mode = PreferenceUtil.getInstance().getReplayGainSourceMode();
+        if (!mode.equals(PreferenceUtil.RG_SOURCE_MODE_NONE)) {
+            Song song = getCurrentSong();
+
+            float adjustDB = 0.0f;
+            float peak = 1.0f;
+
+            float rgTrack = song.replayGainTrack;
+            float rgAlbum = song.replayGainAlbum;
+            float rgpTrack = song.replayGainPeakTrack;
+            float rgpAlbum = song.replayGainPeakAlbum;
+
+            if (mode == PreferenceUtil.RG_SOURCE_MODE_ALBUM) {
+                adjustDB = (rgTrack == 0.0f ? adjustDB : rgTrack);
+                adjustDB = (rgAlbum == 0.0f ? adjustDB : rgAlbum);
+                peak = (rgpTrack == 1.0f ? peak : rgpTrack);
+                peak = (rgpAlbum == 1.0f ? peak : rgpAlbum);
+            } else if (mode == PreferenceUtil.RG_SOURCE_MODE_TRACK) {
+                adjustDB = (rgAlbum == 0.0f ? adjustDB : rgAlbum);
+                adjustDB = (rgTrack == 0.0f ? adjustDB : rgTrack);
+                peak = (rgpAlbum == 1.0f ? peak : rgpAlbum);
+                peak = (rgpTrack == 1.0f ? peak : rgpTrack);
+            }
 
-                playback.setReplayGain(adjustDB);
+            if (adjustDB == 0) {
+                adjustDB = PreferenceUtil.getInstance().getRgPreampWithoutTag();
             } else {
-                playback.setReplayGain(Float.NaN);
+                adjustDB += PreferenceUtil.getInstance().getRgPreampWithTag();
+
+                float peakDB = -20.0f * ((float) Math.log10(peak));
+                adjustDB = Math.min(adjustDB, peakDB);
             }
+
+            replayGain = adjustDB;
+        } else {
+            replayGain = Float.NaN;
+        }
+
+        synchronized (this) {
+            if (playback != null) {playback.setReplayGain(replayGain);}
         }
     }
 
     public void playPreviousSong(boolean skippedLast) {
         synchronized (this) {
+            completeQueueRestoreIfAtWindowEdge();
             playSongAt(playingQueue.getPreviousPosition(skippedLast), skippedLast);
         }
     }
@@ -1101,15 +1342,11 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     }
 
     public int getSongProgressMillis() {
-        synchronized (this) {
-            return (playback != null ? playback.position() : -1);
-        }
+        return playbackState.getProgressMillis(SystemClock.elapsedRealtime());
     }
 
     public int getSongDurationMillis() {
-        synchronized (this) {
-            return (playback != null ? playback.duration() : -1);
-        }
+        return playbackState.durationMillis;
     }
 
     private long getQueueDurationMillis(int position) {
@@ -1124,6 +1361,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
                 playback.seek(millis);
             }
         }
+        publishPlaybackState(false);
         throttledSeekHandler.notifySeek();
     }
 
@@ -1160,6 +1398,7 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
     }
 
     private void sendChangeInternal(final String what) {
+        publishPlaybackState(what.equals(QUEUE_CHANGED));
         sendBroadcast(new Intent(what));
         appWidgetBig.notifyChange(this, what);
         appWidgetClassic.notifyChange(this, what);
@@ -1176,13 +1415,18 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
             | PlaybackStateCompat.ACTION_SEEK_TO;
 
     private void handleChangeInternal(@NonNull final String what) {
+        publishPlaybackState(false);
         switch (what) {
             case PLAY_STATE_CHANGED:
                 updateNotification();
                 updateMediaSessionPlaybackState();
                 final boolean isPlaying = isPlaying();
-                if (!isPlaying && getSongProgressMillis() > 0) {
-                    savePositionInTrack();
+                if (!isPlaying) {
+                    if (getSongProgressMillis() > 0) {
+                        savePositionInTrack();
+                    }
+                    // The app may be killed while paused, do not keep the stats in memory for long
+                    statsRecorder.requestFlush();
                 }
                 songPlayCountHelper.notifyPlayStateChanged(isPlaying);
                 break;
@@ -1199,9 +1443,9 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
                 applyReplayGain();
 
                 final Song currentSong = getCurrentSong();
-                HistoryStore.getInstance(this).addSongId(currentSong.id);
+                statsRecorder.recordPlayed(currentSong.id);
                 if (PreferenceUtil.getInstance().maintainTopTrackPlaylist() && songPlayCountHelper.shouldBumpPlayCount()) {
-                    SongPlayCountStore.getInstance(this).bumpPlayCount(songPlayCountHelper.getSong().id);
+                    statsRecorder.recordPlayCountBump(songPlayCountHelper.getSong().id);
                 }
                 songPlayCountHelper.notifySongChanged(currentSong);
                 break;
@@ -1263,6 +1507,10 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
             updateNotification();
         } else if (TextUtils.equals(key, PreferenceUtil.TRANSPARENT_BACKGROUND_WIDGET)) {
             sendChangeInternal(META_CHANGED);
+        } else if (TextUtils.equals(key, PreferenceUtil.SPREAD_SHUFFLE)) {
+            synchronized (this) {
+                playingQueue.setSpreadShuffle(sharedPreferences.getBoolean(key, false));
+            }
         } else if (TextUtils.equals(key, PreferenceUtil.RG_SOURCE_MODE_V2)
                 || TextUtils.equals(key, PreferenceUtil.RG_PREAMP_WITH_TAG)
                 || TextUtils.equals(key, PreferenceUtil.RG_PREAMP_WITHOUT_TAG)
@@ -1379,14 +1627,14 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
         final int position;
         final int size;
         synchronized (this) {
-            duration = getQueueDurationMillis(getPosition());
-            position = getPosition() + 1;
+            position = playingQueue.getCurrentPosition();
+            duration = getQueueDurationMillis(position);
             size = playingQueue.size();
         }
         return MusicUtil.buildInfoString(
                 getResources().getString(R.string.up_next),
                 MusicUtil.getReadableDurationString(duration),
-                position + "/" + size
+                (position + 1) + "/" + size
         );
     }
 
@@ -1396,6 +1644,8 @@ public class MusicService extends MediaBrowserServiceCompat implements SharedPre
             // If a song is removed from the MediaStore, or updated (tags edited)
             // reload the queues so that they reflects the latest change
             saveState();
+            // The restore reads back the saved position, write it before
+            statsRecorder.requestFlush();
             restoreState();
         }
     }
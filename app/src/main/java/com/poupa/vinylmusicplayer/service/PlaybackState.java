@@ -0,0 +1,91 @@
+package com.poupa.vinylmusicplayer.service;
+
+import androidx.annotation.NonNull;
+
+import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.misc.queue.StaticPlayingQueue;
+
+/**
+ * Immutable snapshot of the playback state, as published by the service on every change.
+ * Being immutable, it can be read from any thread without locking the service, e.g. by the UI progress polling.
+ *
+ * The progress in the current song is not published continuously:
+ * it is anchored at publish time, and extrapolated from there while playing.
+ */
+public final class PlaybackState {
+    public static final PlaybackState EMPTY = new PlaybackState(
+            IndexedSong.EMPTY_INDEXED_SONG,
+            StaticPlayingQueue.INVALID_POSITION,
+            0,
+            false,
+            -1,
+            -1,
+            0,
+            StaticPlayingQueue.REPEAT_MODE_NONE,
+            StaticPlayingQueue.SHUFFLE_MODE_NONE,
+            0);
+
+    @NonNull public final IndexedSong currentSong;
+    public final int position;
+    public final int queueSize;
+    public final boolean isPlaying;
+    public final int durationMillis;
+    public final int repeatMode;
+    public final int shuffleMode;
+    /** Incremented on every queue modification */
+    public final long queueVersion;
+
+    private final int anchorProgressMillis;
+    private final long anchorRealtimeMillis;
+
+    private PlaybackState(@NonNull final IndexedSong currentSong, int position, int queueSize, boolean isPlaying,
+                          int anchorProgressMillis, int durationMillis, long anchorRealtimeMillis,
+                          int repeatMode, int shuffleMode, long queueVersion) {
+        this.currentSong = currentSong;
+        this.position = position;
+        this.queueSize = queueSize;
+        this.isPlaying = isPlaying;
+        this.anchorProgressMillis = anchorProgressMillis;
+        this.durationMillis = durationMillis;
+        this.anchorRealtimeMillis = anchorRealtimeMillis;
+        this.repeatMode = repeatMode;
+        this.shuffleMode = shuffleMode;
+        this.queueVersion = queueVersion;
+    }
+
+    /**
+     * To be called with the queue and the player being held, so that they do not change meanwhile
+     *
+     * @param progressMillis The player position, -1 if there is no player
+     * @param realtimeMillis The time of the player position, as per SystemClock.elapsedRealtime
+     */
+    @NonNull
+    public static PlaybackState of(@NonNull final StaticPlayingQueue queue, boolean isPlaying, int progressMillis, int durationMillis,
+                                   long realtimeMillis, long queueVersion) {
+        return new PlaybackState(getCurrentSong(queue), queue.getCurrentPosition(), queue.size(), isPlaying, progressMillis, durationMillis, realtimeMillis,
+                queue.getRepeatMode(), queue.getShuffleMode(), queueVersion);
+    }
+
+    /**
+     * To be called with the queue being held.
+     * Unlike the published state, it reflects a position change not published yet.
+     */
+    @NonNull
+    public static IndexedSong getCurrentSong(@NonNull final StaticPlayingQueue queue) {
+        final int position = queue.getCurrentPosition();
+        return (position >= 0 && position < queue.size())
+                ? queue.getPlayingQueue().get(position)
+                : IndexedSong.EMPTY_INDEXED_SONG;
+    }
+
+    /**
+     * @param realtimeMillis The current time, as per SystemClock.elapsedRealtime
+     * @return The progress in the current song, -1 if there is no player
+     */
+    public int getProgressMillis(long realtimeMillis) {
+        if (!isPlaying || anchorProgressMillis < 0) {return anchorProgressMillis;}
+
+        final long progress = anchorProgressMillis + Math.max(0, realtimeMillis - anchorRealtimeMillis);
+        return (int) ((durationMillis > 0) ? Math.min(progress, durationMillis) : progress);
+    }
+}
@@ -0,0 +1,169 @@
+package com.poupa.vinylmusicplayer.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.preference.PreferenceManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.poupa.vinylmusicplayer.model.Song;
+import com.poupa.vinylmusicplayer.model.smartplaylist.SmartPlaylistCache;
+import com.poupa.vinylmusicplayer.provider.HistoryStore;
+import com.poupa.vinylmusicplayer.provider.SongPlayCountStore;
+import com.poupa.vinylmusicplayer.util.PreferenceUtil;
+
+import java.util.ArrayList;
+
+/**
+ * Write-behind buffer for the playback statistics (history, play counts, saved position).
+ *
+ * The events are recorded in memory from the playback path, and written to the stores in batches,
+ * on the given background handler, so that skipping tracks does not wait for the database.
+ * Once closed, the events are written through.
+ */
+class PlaybackStatsRecorder {
+    private static final long FLUSH_DELAY_MS = 10_000;
+    private static final long HISTORY_PRUNE_INTERVAL_MS = 60 * 60 * 1000;
+
+    private final Context context;
+    private final Handler handler;
+    private final Runnable flushRunnable = this::flush;
+    // Serialize the flushes, so that an older position never overwrites a newer one
+    private final Object flushLock = new Object();
+
+    // The pending events, guarded by this
+    private ArrayList<Long> playedSongIds = new ArrayList<>();
+    private ArrayList<Long> playedTimes = new ArrayList<>();
+    private ArrayList<Long> playCountSongIds = new ArrayList<>();
+    @Nullable private Integer position = null;
+    @Nullable private Integer positionInTrack = null;
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+    // Guarded by flushLock
+    private long lastHistoryPruneTime = 0;
+
+    PlaybackStatsRecorder(@NonNull final Context context, @NonNull final Handler handler) {
+        this.context = context.getApplicationContext();
+        this.handler = handler;
+    }
+
+    void recordPlayed(final long songId) {
+        if (songId == Song.EMPTY_SONG.id) {return;}
+        final long timePlayed = System.currentTimeMillis();
+        synchronized (this) {
+            playedSongIds.add(songId);
+            playedTimes.add(timePlayed);
+        }
+        SmartPlaylistCache.getInstance().onSongPlayed(songId, timePlayed);
+        scheduleFlush(FLUSH_DELAY_MS);
+    }
+
+    void recordPlayCountBump(final long songId) {
+        if (songId == Song.EMPTY_SONG.id) {return;}
+        synchronized (this) {
+            playCountSongIds.add(songId);
+        }
+        scheduleFlush(FLUSH_DELAY_MS);
+    }
+
+    void recordPosition(final int value) {
+        synchronized (this) {
+            position = value;
+        }
+        scheduleFlush(FLUSH_DELAY_MS);
+    }
+
+    void recordPositionInTrack(final int value) {
+        synchronized (this) {
+            positionInTrack = value;
+        }
+        scheduleFlush(FLUSH_DELAY_MS);
+    }
+
+    /**
+     * Write the pending events soon, e.g. when the playback is paused and the app may be killed
+     */
+    void requestFlush() {
+        synchronized (this) {
+            if (flushScheduled) {
+                handler.removeCallbacks(flushRunnable);
+                flushScheduled = false;
+            }
+        }
+        scheduleFlush(0);
+    }
+
+    /**
+     * Write the pending events on the calling thread, and write through from now on
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            handler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+        }
+        flush();
+    }
+
+    private void scheduleFlush(long delayMs) {
+        final boolean writeThrough;
+        synchronized (this) {
+            writeThrough = closed;
+            if (!writeThrough) {
+                if (flushScheduled) {return;}
+                flushScheduled = true;
+                handler.postDelayed(flushRunnable, delayMs);
+            }
+        }
+        if (writeThrough) {flush();}
+    }
+
+    private void flush() {
+        synchronized (flushLock) {
+            final ArrayList<Long> songIds;
+            final ArrayList<Long> times;
+            final ArrayList<Long> bumpedSongIds;
+            final Integer savedPosition;
+            final Integer savedPositionInTrack;
+            synchronized (this) {
+                songIds = playedSongIds;
+                times = playedTimes;
+                bumpedSongIds = playCountSongIds;
+                savedPosition = position;
+                savedPositionInTrack = positionInTrack;
+
+                playedSongIds = new ArrayList<>();
+                playedTimes = new ArrayList<>();
+                playCountSongIds = new ArrayList<>();
+                position = null;
+                positionInTrack = null;
+                flushScheduled = false;
+            }
+
+            if (!songIds.isEmpty()) {
+                final HistoryStore historyStore = HistoryStore.getInstance(context);
+                historyStore.addSongIds(songIds, times);
+
+                // Keep the history bounded, checking once in a while
+                final long now = System.currentTimeMillis();
+                if (now - lastHistoryPruneTime > HISTORY_PRUNE_INTERVAL_MS) {
+                    lastHistoryPruneTime = now;
+                    final ArrayList<Long> prunedIds = historyStore.prune(PreferenceUtil.getInstance().getHistoryMaxEntries());
+                    if (!prunedIds.isEmpty()) {SmartPlaylistCache.getInstance().onHistoryRemoved(prunedIds);}
+                }
+            }
+            if (!bumpedSongIds.isEmpty()) {
+                SongPlayCountStore.getInstance(context).bumpPlayCounts(bumpedSongIds);
+                SmartPlaylistCache.getInstance().onPlayCountsChanged();
+            }
+            if (savedPosition != null || savedPositionInTrack != null) {
+                final SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(context).edit();
+                if (savedPosition != null) {editor.putInt(MusicService.SAVED_POSITION, savedPosition);}
+                if (savedPositionInTrack != null) {editor.putInt(MusicService.SAVED_POSITION_IN_TRACK, savedPositionInTrack);}
+                editor.apply();
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.lang.ref.WeakReference;
 class QueueSaveHandler extends Handler {
     static final int SAVE_QUEUES = 0;
     static final int RESTORE_QUEUES = 1;
+    static final int COMPLETE_QUEUE_RESTORE = 2;
 
     @NonNull
     private final WeakReference<MusicService> mService;
@@ -26,6 +27,7 @@ class QueueSaveHandler extends Handler {
         switch (msg.what) {
             case SAVE_QUEUES -> service.saveQueuesImpl();
             case RESTORE_QUEUES -> service.restoreQueuesAndPosition();
+            case COMPLETE_QUEUE_RESTORE -> service.completeQueueRestore();
         }
     }
 }
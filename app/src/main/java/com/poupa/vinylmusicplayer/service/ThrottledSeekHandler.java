@@ -16,11 +16,10 @@ public class ThrottledSeekHandler implements Runnable {
     }
 
     public void notifySeek() {
-        synchronized (mMusicService) {
-            if (mHandler.getLooper().getThread().isAlive()) {
-                mHandler.removeCallbacks(this);
-                mHandler.postDelayed(this, THROTTLE);
-            }
+        // No need to hold the service, the handler being thread safe
+        if (mHandler.getLooper().getThread().isAlive()) {
+            mHandler.removeCallbacks(this);
+            mHandler.postDelayed(this, THROTTLE);
         }
     }
 
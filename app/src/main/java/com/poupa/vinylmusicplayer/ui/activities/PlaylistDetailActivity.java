@@ -120,13 +120,22 @@ public class PlaylistDetailActivity
                     new ArrayList<>(),
                     false,
                     holder,
-                    (fromPosition, toPosition) -> {
-                        if (PlaylistsUtil.moveItem(playlist.id, fromPosition, toPosition)) {
-                            final List<Song> dataSet = (List<Song>)adapter.getDataSet();
-                            final Song song = dataSet.remove(fromPosition);
-                            dataSet.add(toPosition, song);
-                            adapter.notifyItemMoved(fromPosition, toPosition);
+                    new OrderablePlaylistSongAdapter.OnMoveItemListener() {
+                        @Override
+                        public void onMoveItem(int fromPosition, int toPosition) {
+                            if (PlaylistsUtil.moveItem(playlist.id, fromPosition, toPosition)) {
+                                final List<Song> dataSet = (List<Song>)adapter.getDataSet();
+                                final Song song = dataSet.remove(fromPosition);
+                                dataSet.add(toPosition, song);
+                                adapter.notifyItemMoved(fromPosition, toPosition);
+                            }
                         }
+
+                        @Override
+                        public void onMoveStarted() {PlaylistsUtil.beginPlaylistEdit(playlist.id);}
+
+                        @Override
+                        public void onMoveFinished() {PlaylistsUtil.endPlaylistEdit(playlist.id);}
                     });
             wrappedAdapter = recyclerViewDragDropManager.createWrappedAdapter(adapter);
 
@@ -245,6 +254,7 @@ public class PlaylistDetailActivity
     public void onPause() {
         if (recyclerViewDragDropManager != null) {
             recyclerViewDragDropManager.cancelDrag();
+            PlaylistsUtil.flushPlaylistEdit(playlist.id);
         }
         super.onPause();
     }
@@ -491,6 +491,17 @@ public class SettingsActivity extends AbsBaseActivity implements ColorChooserDia
                     return true;
                 });
             }
+
+            final TwoStatePreference spreadShuffle = findPreference(PreferenceUtil.SPREAD_SHUFFLE);
+            if (spreadShuffle != null) {
+                spreadShuffle.setChecked(PreferenceUtil.getInstance().spreadShuffle());
+                spreadShuffle.setOnPreferenceChangeListener((preference, newValue) -> {
+                    // Save preference
+                    PreferenceUtil.getInstance().setSpreadShuffle((Boolean) newValue);
+
+                    return true;
+                });
+            }
           
             final Preference equalizer = findPreference(PreferenceUtil.EQUALIZER);
             if (equalizer != null) {
@@ -512,6 +523,15 @@ public class SettingsActivity extends AbsBaseActivity implements ColorChooserDia
                 }
             }
 
+            final Preference historyMaxEntries = findPreference(PreferenceUtil.HISTORY_MAX_ENTRIES);
+            if (historyMaxEntries != null) {
+                setSummary(historyMaxEntries);
+                historyMaxEntries.setOnPreferenceChangeListener((preference, o) -> {
+                    setSummary(historyMaxEntries, o);
+                    return true;
+                });
+            }
+
             final TwoStatePreference maintainTopTrackPlaylist = findPreference(PreferenceUtil.MAINTAIN_TOP_TRACKS_PLAYLIST);
             if (maintainTopTrackPlaylist != null) {
                 maintainTopTrackPlaylist.setChecked(PreferenceUtil.getInstance().maintainTopTrackPlaylist());
@@ -9,6 +9,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -16,8 +17,10 @@ import com.google.android.material.appbar.AppBarLayout;
 import com.google.android.material.appbar.AppBarLayout.OnOffsetChangedListener;
 import com.kabouzeid.appthemehelper.ThemeStore;
 import com.poupa.vinylmusicplayer.R;
+import com.poupa.vinylmusicplayer.adapter.base.CoverPreloader;
 import com.poupa.vinylmusicplayer.databinding.FragmentMainActivityRecyclerViewBinding;
 import com.poupa.vinylmusicplayer.discog.Discography;
+import com.poupa.vinylmusicplayer.glide.GlideApp;
 import com.poupa.vinylmusicplayer.helper.WeakMethodReference;
 import com.poupa.vinylmusicplayer.util.ViewUtil;
 import com.simplecityapps.recyclerview_fastscroll.views.FastScrollRecyclerView;
@@ -33,6 +36,11 @@ public abstract class AbsLibraryPagerRecyclerViewFragment<A extends RecyclerView
     private A adapter;
     private LM layoutManager;
 
+    // Items whose cover is loaded ahead of scrolling, at slow and at fast speed
+    private static final int PRELOAD_MIN_LOOKAHEAD = 4;
+    private static final int PRELOAD_MAX_LOOKAHEAD = 24;
+    @Nullable private CoverPreloader preloader;
+
     private final WeakMethodReference<AbsLibraryPagerRecyclerViewFragment> onDiscographyChanged = new WeakMethodReference<>(this, AbsLibraryPagerRecyclerViewFragment::reload);
 
     @Override
@@ -79,14 +87,31 @@ public abstract class AbsLibraryPagerRecyclerViewFragment<A extends RecyclerView
         }
         recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(adapter);
+
+        preloader = new CoverPreloader(GlideApp.with(this), getPreloadMinLookahead(), getPreloadMaxLookahead());
+        recyclerView.addOnScrollListener(preloader);
+    }
+
+    protected int getPreloadMinLookahead() {
+        return PRELOAD_MIN_LOOKAHEAD;
+    }
+
+    protected int getPreloadMaxLookahead() {
+        return PRELOAD_MAX_LOOKAHEAD;
+    }
+
+    private void cancelPreload() {
+        if (preloader != null) {preloader.cancel();}
     }
 
     protected void invalidateLayoutManager() {
+        cancelPreload();
         initLayoutManager();
         recyclerView.setLayoutManager(layoutManager);
     }
 
     protected void invalidateAdapter() {
+        cancelPreload();
         initAdapter();
         checkIsEmpty();
         recyclerView.setAdapter(adapter);
@@ -99,6 +124,8 @@ public abstract class AbsLibraryPagerRecyclerViewFragment<A extends RecyclerView
             public void onChanged() {
                 super.onChanged();
                 checkIsEmpty();
+                // New content or new order, the pending preloads are stale
+                cancelPreload();
             }
         });
     }
@@ -144,6 +171,11 @@ public abstract class AbsLibraryPagerRecyclerViewFragment<A extends RecyclerView
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (preloader != null) {
+            preloader.cancel();
+            recyclerView.removeOnScrollListener(preloader);
+            preloader = null;
+        }
         getLibraryFragment().removeOnAppBarOffsetChangedListener(this);
         Discography.getInstance().removeChangedListener(onDiscographyChanged);
     }
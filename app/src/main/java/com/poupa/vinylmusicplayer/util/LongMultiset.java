@@ -0,0 +1,117 @@
+package com.poupa.vinylmusicplayer.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of primitive longs, counting the occurrences of each value.
+ *
+ * Open addressing with linear probing, no boxing and no allocation except when growing,
+ * so that the membership checks stay cheap on the hot paths (i.e. list binding).
+ */
+public class LongMultiset {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    // The number of occurrences of the key at the same slot, 0 for an empty slot
+    private int[] counts;
+    private int distinctCount = 0;
+
+    public LongMultiset() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new int[capacity];
+        distinctCount = 0;
+    }
+
+    private static int hash(long value) {
+        // Spread the bits, the song ids being mostly consecutive
+        final long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slotOf(long value) {
+        final int mask = keys.length - 1;
+        int slot = hash(value) & mask;
+        while (counts[slot] != 0 && keys[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public boolean contains(long value) {
+        return counts[slotOf(value)] != 0;
+    }
+
+    public int count(long value) {
+        return counts[slotOf(value)];
+    }
+
+    public int distinctSize() {
+        return distinctCount;
+    }
+
+    public void add(long value) {
+        int slot = slotOf(value);
+        if (counts[slot] == 0) {
+            // Keep the load factor under 1/2
+            if (2 * (distinctCount + 1) > keys.length) {
+                grow();
+                slot = slotOf(value);
+            }
+            keys[slot] = value;
+            ++distinctCount;
+        }
+        ++counts[slot];
+    }
+
+    /**
+     * Remove one occurrence of the value
+     * @return False if the value was not there
+     */
+    public boolean remove(long value) {
+        int slot = slotOf(value);
+        if (counts[slot] == 0) {return false;}
+        if (--counts[slot] > 0) {return true;}
+
+        // Shift back the following entries of the probe sequence, so that no lookup stops early
+        --distinctCount;
+        final int mask = keys.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (counts[next] == 0) {break;}
+
+            final int home = hash(keys[next]) & mask;
+            // Move the entry if its home is not cyclically within (slot, next]
+            final boolean movable = (slot <= next) ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                keys[slot] = keys[next];
+                counts[slot] = counts[next];
+                counts[next] = 0;
+                slot = next;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        distinctCount = 0;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldCounts = counts;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldCounts[i] == 0) {continue;}
+            final int slot = slotOf(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+            ++distinctCount;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.poupa.vinylmusicplayer.adapter.song.SongAdapter;
 import com.poupa.vinylmusicplayer.glide.GlideApp;
 import com.poupa.vinylmusicplayer.glide.VinylColoredTarget;
 import com.poupa.vinylmusicplayer.glide.VinylGlideExtension;
+import com.poupa.vinylmusicplayer.glide.audiocover.CoverKey;
 import com.poupa.vinylmusicplayer.helper.MusicPlayerRemote;
 import com.poupa.vinylmusicplayer.model.Song;
 
@@ -49,12 +50,9 @@ public class PlayingSongDecorationUtil {
 
         if ((holder.image != null) && songAdapter.isShowAlbumImage()) {
             if (!MusicPlayerRemote.isPlaying(song)) {
-                GlideApp.with(activity)
-                    .asBitmapPalette()
-                    .load(VinylGlideExtension.getSongModel(song))
+                SongAdapter.createCoverRequest(GlideApp.with(activity), song)
                     .transition(VinylGlideExtension.getDefaultTransition())
-                    .songOptions(song)
-                    .into(new VinylColoredTarget(holder.image) {
+                    .into(new VinylColoredTarget(holder.image, CoverKey.of(song)) {
                         @Override
                         public void onLoadCleared(Drawable placeholder) {
                             super.onLoadCleared(placeholder);
@@ -12,8 +12,11 @@ import android.provider.MediaStore;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
+import androidx.annotation.WorkerThread;
 
 import com.poupa.vinylmusicplayer.R;
+import com.poupa.vinylmusicplayer.discog.Discography;
+import com.poupa.vinylmusicplayer.helper.M3UCodec;
 import com.poupa.vinylmusicplayer.helper.M3UConstants;
 import com.poupa.vinylmusicplayer.helper.M3UWriter;
 import com.poupa.vinylmusicplayer.model.Playlist;
@@ -24,7 +27,9 @@ import com.poupa.vinylmusicplayer.service.MusicService;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -32,6 +37,8 @@ import java.util.List;
  * @author SC (soncaokim)
  */
 public class PlaylistsUtil {
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
     public static void notifyChange(@NonNull final Context context) {
         context.sendBroadcast(new Intent(MusicService.MEDIA_STORE_CHANGED));
     }
@@ -127,6 +134,30 @@ public class PlaylistsUtil {
         return list.moveSong(from, to);
     }
 
+    /**
+     * Group the following modifications of the playlist into a single write, see {@link #endPlaylistEdit}
+     */
+    public static void beginPlaylistEdit(long playlistId) {
+        StaticPlaylist list = StaticPlaylist.getPlaylist(playlistId);
+        if (list == null) {return;}
+
+        list.beginEdit();
+    }
+
+    public static void endPlaylistEdit(long playlistId) {
+        StaticPlaylist list = StaticPlaylist.getPlaylist(playlistId);
+        if (list == null) {return;}
+
+        list.endEdit();
+    }
+
+    public static void flushPlaylistEdit(long playlistId) {
+        StaticPlaylist list = StaticPlaylist.getPlaylist(playlistId);
+        if (list == null) {return;}
+
+        list.flushEdit();
+    }
+
     public static void renamePlaylist(@NonNull final Context context, final long id, final String newName) {
         StaticPlaylist list = StaticPlaylist.getPlaylist(id);
         if (list == null) {return;}
@@ -142,6 +173,30 @@ public class PlaylistsUtil {
         return playlist.getName();
     }
 
+    /**
+     * Import a M3U/M3U8 playlist into the static playlist of the given name, created if needed.
+     * The entries are appended by chunks, each resolved against the library in one go.
+     *
+     * @param baseDirectory The directory of the playlist file, to resolve its relative paths
+     * @return The number of entries not matching any song of the library
+     */
+    @WorkerThread
+    public static int importPlaylist(@NonNull final Context context, @NonNull final InputStream stream,
+                                     @NonNull final String name, @Nullable final String baseDirectory) throws IOException {
+        final StaticPlaylist playlist = StaticPlaylist.getOrCreatePlaylist(name);
+        final Discography discography = Discography.getInstance();
+
+        final int[] unmatchedCount = {0};
+        M3UCodec.read(stream, baseDirectory, IMPORT_CHUNK_SIZE, paths -> {
+            final ArrayList<String> unmatchedPaths = new ArrayList<>();
+            playlist.addSongs(discography.getSongsFromPaths(paths, unmatchedPaths));
+            unmatchedCount[0] += unmatchedPaths.size();
+        });
+
+        notifyChange(context);
+        return unmatchedCount[0];
+    }
+
     @Nullable
     public static String savePlaylist(@NonNull final Context context, @NonNull final Playlist playlist) throws IOException {
         if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.P) {
@@ -98,6 +98,8 @@ public final class PreferenceUtil {
     public static final String RECENTLY_PLAYED_CUTOFF_V2 = PrefKey.exportableKey("recently_played_interval_v2");
     public static final String NOT_RECENTLY_PLAYED_CUTOFF_V2 = PrefKey.exportableKey("not_recently_played_interval_v2");
     public static final String MAINTAIN_TOP_TRACKS_PLAYLIST = PrefKey.exportableKey("maintain_top_tracks_playlist");
+    public static final String HISTORY_MAX_ENTRIES = PrefKey.exportableKey("history_max_entries");
+    private static final String HISTORY_MAX_ENTRIES_DEFAULT = "20000";
     public static final String MAINTAIN_SKIPPED_SONGS_PLAYLIST = PrefKey.exportableKey("maintain_skipped_songs_playlist");
 
     private static final String LAST_SLEEP_TIMER_VALUE = PrefKey.exportableKey("last_sleep_timer_value");
@@ -131,6 +133,7 @@ public final class PreferenceUtil {
     public static final String LIBRARY_CATEGORIES = PrefKey.exportableKey("library_categories");
 
     public static final String REMEMBER_SHUFFLE = PrefKey.exportableKey("remember_shuffle");
+    public static final String SPREAD_SHUFFLE = PrefKey.exportableKey("spread_shuffle");
 
     public static final String RG_SOURCE_MODE_V2 = PrefKey.exportableKey("replaygain_source_mode");
     @NonNls
@@ -692,6 +695,16 @@ public final class PreferenceUtil {
         return mPreferences.getBoolean(REMEMBER_SHUFFLE, true);
     }
 
+    public void setSpreadShuffle(final boolean spreadShuffle) {
+        mPreferences.edit()
+                .putBoolean(SPREAD_SHUFFLE, spreadShuffle)
+                .apply();
+    }
+
+    public boolean spreadShuffle() {
+        return mPreferences.getBoolean(SPREAD_SHUFFLE, false);
+    }
+
     private String autoDownloadImagesPolicy() {
         return mPreferences.getString(AUTO_DOWNLOAD_IMAGES_POLICY, AUTO_DOWNLOAD_WIFI_ONLY);
     }
@@ -728,6 +741,17 @@ public final class PreferenceUtil {
         return mPreferences.getBoolean(MAINTAIN_TOP_TRACKS_PLAYLIST, true);
     }
 
+    /**
+     * @return The number of songs to keep in the history, 0 for no limit
+     */
+    public int getHistoryMaxEntries() {
+        try {
+            return Integer.parseInt(mPreferences.getString(HISTORY_MAX_ENTRIES, HISTORY_MAX_ENTRIES_DEFAULT));
+        } catch (NumberFormatException e) {
+            return Integer.parseInt(HISTORY_MAX_ENTRIES_DEFAULT);
+        }
+    }
+
     public void setMaintainSkippedSongsPlaylist(final boolean value) {
         mPreferences.edit()
                 .putBoolean(MAINTAIN_SKIPPED_SONGS_PLAYLIST, value)
@@ -0,0 +1,58 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.poupa.vinylmusicplayer.glide.audiocover.FolderCoverCache;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+@RunWith(JUnit4.class)
+public class FolderCoverCacheTest {
+    private static File createDirectory(String... names) throws IOException {
+        final File directory = Files.createTempDirectory("album").toFile();
+        directory.deleteOnExit();
+        for (String name : names) {
+            final File file = new File(directory, name);
+            assertTrue(file.createNewFile());
+            file.deleteOnExit();
+        }
+        return directory;
+    }
+
+    @Test
+    public void preferredNameWinsIgnoringCase() throws IOException {
+        final File directory = createDirectory("01 Track.mp3", "Folder.PNG", "ALBUM.jpg", "back.jpg");
+        assertEquals(new File(directory, "ALBUM.jpg"), FolderCoverCache.getCover(directory));
+    }
+
+    @Test
+    public void changesAreSeenOnceTheDirectoryIsModified() throws IOException {
+        final File directory = createDirectory("01 Track.mp3");
+        assertNull(FolderCoverCache.getCover(directory));
+
+        // Kept as an absence of cover, while the directory is unchanged
+        final long lastModified = directory.lastModified();
+        final File cover = new File(directory, "cover.jpg");
+        assertTrue(cover.createNewFile());
+        cover.deleteOnExit();
+        assertTrue(directory.setLastModified(lastModified));
+        assertNull(FolderCoverCache.getCover(directory));
+
+        assertTrue(directory.setLastModified(lastModified + 10_000));
+        assertEquals(cover, FolderCoverCache.getCover(directory));
+    }
+
+    @Test
+    public void missingDirectoryHasNoCover() {
+        assertNull(FolderCoverCache.getCover(new File("/nonexistent/directory")));
+        assertNull(FolderCoverCache.getCover(null));
+    }
+}
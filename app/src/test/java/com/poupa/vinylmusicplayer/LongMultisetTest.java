@@ -0,0 +1,68 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.poupa.vinylmusicplayer.util.LongMultiset;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class LongMultisetTest {
+    @Test
+    public void duplicatesAreCounted() {
+        final LongMultiset set = new LongMultiset();
+        set.add(42);
+        set.add(42);
+        set.add(7);
+        assertEquals(2, set.count(42));
+        assertEquals(2, set.distinctSize());
+
+        assertTrue(set.remove(42));
+        assertTrue(set.contains(42));
+        assertTrue(set.remove(42));
+        assertFalse(set.contains(42));
+        assertFalse(set.remove(42));
+        assertTrue(set.contains(7));
+
+        set.clear();
+        assertFalse(set.contains(7));
+        assertEquals(0, set.distinctSize());
+    }
+
+    @Test
+    public void matchesReferenceUnderRandomOperations() {
+        final LongMultiset set = new LongMultiset();
+        final HashMap<Long, Integer> reference = new HashMap<>();
+        final Random random = new Random(3);
+
+        for (int i = 0; i < 200_000; ++i) {
+            // A small range of values, to exercise the collisions and the removals
+            final long value = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                final boolean removed = set.remove(value);
+                final Integer count = reference.get(value);
+                assertEquals(count != null, removed);
+                if (count != null) {
+                    if (count == 1) {reference.remove(value);}
+                    else {reference.put(value, count - 1);}
+                }
+            } else {
+                set.add(value);
+                reference.merge(value, 1, Integer::sum);
+            }
+        }
+
+        assertEquals(reference.size(), set.distinctSize());
+        for (long value = -100; value < 4_900; ++value) {
+            final Integer count = reference.get(value);
+            assertEquals(count == null ? 0 : count, set.count(value));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.poupa.vinylmusicplayer.helper.M3UCodec;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class M3UCodecTest {
+    private static final String MUSIC = "/storage/emulated/0/Music";
+
+    private static List<String> readAll(InputStream stream, String baseDirectory, int chunkSize) throws IOException {
+        final ArrayList<String> paths = new ArrayList<>();
+        M3UCodec.read(stream, baseDirectory, chunkSize, chunk -> {
+            assertTrue(chunk.size() <= chunkSize);
+            paths.addAll(chunk);
+        });
+        return paths;
+    }
+
+    @Test
+    public void emptyPlaylistHasNoHeader() throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new M3UCodec.Encoder(stream, null).close();
+        assertEquals(0, stream.size());
+    }
+
+    @Test
+    public void largePlaylistRoundTrip() throws IOException {
+        final int count = 100_000;
+        final File file = File.createTempFile("playlist", ".m3u8");
+        file.deleteOnExit();
+
+        // Half of the entries below the playlist directory, written as relative paths
+        try (M3UCodec.Encoder encoder = new M3UCodec.Encoder(new FileOutputStream(file), MUSIC + "/")) {
+            for (int i = 0; i < count; ++i) {
+                final String path = (i % 2 == 0)
+                        ? MUSIC + "/Artist " + i + "/Album/" + i + " - Titl\u00e9.flac"
+                        : "/sdcard/Other/" + i + ".mp3";
+                encoder.writeEntry(i * 1000L, "Artist " + i + " - Titl\u00e9", path);
+            }
+        }
+
+        final ArrayList<Integer> chunkSizes = new ArrayList<>();
+        final int[] index = {0};
+        try (InputStream stream = new FileInputStream(file)) {
+            M3UCodec.read(stream, MUSIC, 1000, chunk -> {
+                chunkSizes.add(chunk.size());
+                for (String path : chunk) {
+                    final int i = index[0]++;
+                    final String expected = (i % 2 == 0)
+                            ? MUSIC + "/Artist " + i + "/Album/" + i + " - Titl\u00e9.flac"
+                            : "/sdcard/Other/" + i + ".mp3";
+                    assertEquals(expected, path);
+                }
+            });
+        }
+        assertEquals(count, index[0]);
+        assertEquals(count / 1000, chunkSizes.size());
+        for (int size : chunkSizes) {assertEquals(1000, size);}
+    }
+
+    @Test
+    public void foreignPlaylistsAreResolved() throws IOException {
+        final String content = "\uFEFF#EXTM3U\r\n"
+                + "#EXTINF:123,Someone - Something\r\n"
+                + "Album/01 Track.mp3\r\n"
+                + "\r\n"
+                + "  ./Album/../Other Album/02 Track.mp3  \r\n"
+                + "..\\Podcasts\\Episode.mp3\r\n"
+                + "file:///storage/emulated/0/Music/With%20Space.ogg\r\n"
+                + "http://radio.example.com/stream\r\n"
+                + "//storage//emulated/0/Music/./Double.mp3\r\n"
+                + "# a comment\n"
+                + "/storage/emulated/0/Download/Last.mp3";
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        final List<String> paths = readAll(new ByteArrayInputStream(bytes), MUSIC, 2);
+        assertEquals(List.of(
+                MUSIC + "/Album/01 Track.mp3",
+                MUSIC + "/Other Album/02 Track.mp3",
+                "/storage/emulated/0/Podcasts/Episode.mp3",
+                MUSIC + "/With Space.ogg",
+                MUSIC + "/Double.mp3",
+                "/storage/emulated/0/Download/Last.mp3"
+        ), paths);
+
+        // Without a base directory, the relative entries cannot be resolved
+        final List<String> absoluteOnly = readAll(new ByteArrayInputStream(bytes), null, 100);
+        assertEquals(List.of(
+                MUSIC + "/With Space.ogg",
+                MUSIC + "/Double.mp3",
+                "/storage/emulated/0/Download/Last.mp3"
+        ), absoluteOnly);
+    }
+}
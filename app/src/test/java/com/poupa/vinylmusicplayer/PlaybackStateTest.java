@@ -0,0 +1,172 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.misc.queue.QueueJournal;
+import com.poupa.vinylmusicplayer.misc.queue.StaticPlayingQueue;
+import com.poupa.vinylmusicplayer.model.Song;
+import com.poupa.vinylmusicplayer.service.PlaybackState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(JUnit4.class)
+public class PlaybackStateTest {
+    private static final int DURATION = 200_000;
+
+    @Test
+    public void progressIsExtrapolatedWhilePlaying() {
+        final StaticPlayingQueue queue = new StaticPlayingQueue();
+        queue.openQueue(Collections.singletonList(QueueJournal.placeholderSong(1)), 0, StaticPlayingQueue.SHUFFLE_MODE_NONE);
+
+        final PlaybackState playing = PlaybackState.of(queue, true, 1_000, DURATION, 50_000, 0);
+        assertEquals(1_000, playing.getProgressMillis(50_000));
+        assertEquals(3_500, playing.getProgressMillis(52_500));
+        assertEquals(DURATION, playing.getProgressMillis(50_000 + 2 * DURATION));
+
+        final PlaybackState paused = PlaybackState.of(queue, false, 1_000, DURATION, 50_000, 0);
+        assertEquals(1_000, paused.getProgressMillis(60_000));
+
+        assertEquals(-1, PlaybackState.EMPTY.getProgressMillis(60_000));
+        assertFalse(PlaybackState.EMPTY.isPlaying);
+    }
+
+    @Test
+    public void openedSongFollowsThePositionChange() {
+        final StaticPlayingQueue queue = new StaticPlayingQueue();
+        final ArrayList<Song> songs = new ArrayList<>();
+        for (int i = 1; i <= 10; ++i) {songs.add(QueueJournal.placeholderSong(i));}
+        queue.openQueue(songs, 0, StaticPlayingQueue.SHUFFLE_MODE_NONE);
+        final PlaybackState before = PlaybackState.of(queue, true, 0, DURATION, 0, 0);
+
+        // As MusicService.openTrackAndPrepareNextAt does, the track is opened before the change notification
+        queue.setCurrentPosition(4);
+        final IndexedSong opened = PlaybackState.getCurrentSong(queue);
+        assertEquals(5, opened.id);
+        // The state published before the change still has the previous song, it cannot be used to open the track
+        assertEquals(1, before.currentSong.id);
+
+        final PlaybackState after = PlaybackState.of(queue, true, 0, DURATION, 0, 0);
+        assertEquals(4, after.position);
+        assertSame(opened, after.currentSong);
+    }
+
+    @Test
+    public void noSongOutsideTheQueue() {
+        final StaticPlayingQueue queue = new StaticPlayingQueue();
+        assertSame(IndexedSong.EMPTY_INDEXED_SONG, PlaybackState.getCurrentSong(queue));
+        assertSame(IndexedSong.EMPTY_INDEXED_SONG, PlaybackState.of(queue, false, -1, -1, 0, 0).currentSong);
+
+        queue.openQueue(Collections.singletonList(QueueJournal.placeholderSong(1)), 0, StaticPlayingQueue.SHUFFLE_MODE_NONE);
+        queue.clear();
+        assertSame(IndexedSong.EMPTY_INDEXED_SONG, PlaybackState.getCurrentSong(queue));
+    }
+
+    private volatile PlaybackState published = PlaybackState.EMPTY;
+
+    @Test
+    public void lockFreeReadsAreConsistentWhileMutating() throws Exception {
+        final StaticPlayingQueue queue = new StaticPlayingQueue();
+        final ArrayList<Song> songs = new ArrayList<>();
+        for (int i = 1; i <= 500; ++i) {songs.add(QueueJournal.placeholderSong(i));}
+        queue.openQueue(songs, 0, StaticPlayingQueue.SHUFFLE_MODE_NONE);
+
+        final AtomicLong clock = new AtomicLong();
+        final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        // What the writer saw under its lock when publishing, to be compared with what the readers see without it
+        final ConcurrentHashMap<Long, Integer> queueSizeByVersion = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<PlaybackState, Long> songIdByState = new ConcurrentHashMap<>();
+        final Object serviceLock = new Object();
+        final long[] version = {0};
+        queueSizeByVersion.put(0L, 0);
+
+        // The only writer, as MusicService.publishPlaybackState is called under the service lock
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final Thread writer = new Thread(() -> {
+            try {
+                final Random random = new Random(5);
+                for (int i = 0; i < 20_000; ++i) {
+                    synchronized (serviceLock) {
+                        boolean queueChanged = true;
+                        switch (random.nextInt(6)) {
+                            case 0:
+                                queue.add(QueueJournal.placeholderSong(1 + random.nextInt(500)));
+                                break;
+                            case 1:
+                                if (queue.size() > 1) {queue.remove(random.nextInt(queue.size()));}
+                                break;
+                            case 2:
+                                queue.move(random.nextInt(queue.size()), random.nextInt(queue.size()));
+                                break;
+                            case 3:
+                                queue.toggleShuffle();
+                                break;
+                            default:
+                                queue.setCurrentPosition(random.nextInt(queue.size()));
+                                queueChanged = false;
+                                break;
+                        }
+                        if (queueChanged) {++version[0];}
+                        final PlaybackState state = PlaybackState.of(queue, random.nextBoolean(), random.nextInt(DURATION), DURATION,
+                                clock.incrementAndGet(), version[0]);
+                        queueSizeByVersion.put(version[0], queue.size());
+                        songIdByState.put(state, PlaybackState.getCurrentSong(queue).id);
+                        published = state;
+                    }
+                }
+            } catch (Throwable failure) {
+                failures.add(failure);
+            } finally {
+                writing.set(false);
+            }
+        });
+
+        final ArrayList<Thread> readers = new ArrayList<>();
+        final AtomicLong reads = new AtomicLong();
+        for (int r = 0; r < 4; ++r) {
+            readers.add(new Thread(() -> {
+                try {
+                    long lastVersion = 0;
+                    while (writing.get()) {
+                        final PlaybackState state = published;
+                        assertTrue(state.queueVersion >= lastVersion);
+                        lastVersion = state.queueVersion;
+                        if (state == PlaybackState.EMPTY) {continue;}
+
+                        assertEquals(queueSizeByVersion.get(state.queueVersion).intValue(), state.queueSize);
+                        final boolean hasSong = (state.position >= 0) && (state.position < state.queueSize);
+                        assertEquals(hasSong, state.currentSong != IndexedSong.EMPTY_INDEXED_SONG);
+                        assertEquals(songIdByState.get(state).longValue(), state.currentSong.id);
+
+                        final int progress = state.getProgressMillis(clock.get() + 1_000);
+                        assertTrue(progress <= state.durationMillis);
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable failure) {
+                    failures.add(failure);
+                }
+            }));
+        }
+
+        for (Thread reader : readers) {reader.start();}
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {reader.join();}
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue(reads.get() > 0);
+    }
+}
@@ -0,0 +1,195 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.misc.queue.QueueJournal;
+import com.poupa.vinylmusicplayer.misc.queue.StaticPlayingQueue;
+import com.poupa.vinylmusicplayer.model.Song;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class QueueJournalTest {
+    private static final long GENERATION = 7;
+    private static final int HEADER_LENGTH = 20;
+
+    private static List<Song> songs(long... ids) {
+        List<Song> result = new ArrayList<>();
+        for (long id : ids) {result.add(QueueJournal.placeholderSong(id));}
+        return result;
+    }
+
+    private static String describe(StaticPlayingQueue queue) {
+        StringBuilder builder = new StringBuilder();
+        for (IndexedSong song : queue.getPlayingQueue()) {builder.append(song.id).append('@').append(song.index).append(' ');}
+        builder.append("| ");
+        for (IndexedSong song : queue.getOriginalPlayingQueue()) {builder.append(song.id).append('@').append(song.index).append(' ');}
+        return builder.toString();
+    }
+
+    private static File newJournalFile() throws IOException {
+        File file = File.createTempFile("queue_journal", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Run a scripted session on a live queue, journaling every operation one record at a time.
+     * @return The state of the live queue after each operation, the first entry being the initial state
+     */
+    private static List<String> recordSession(QueueJournal journal, List<Long> recordEnds, File file) throws IOException {
+        final StaticPlayingQueue live = new StaticPlayingQueue();
+        journal.reset(GENERATION, live.getShuffleMode());
+
+        final List<String> states = new ArrayList<>();
+        states.add(describe(live));
+        live.setJournalListener(operation -> {
+            try {
+                journal.append(List.of(operation));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            states.add(describe(live));
+            recordEnds.add(file.length());
+        });
+
+        live.openQueue(songs(1, 2, 3, 4, 5, 6), 2, StaticPlayingQueue.SHUFFLE_MODE_NONE);
+        live.addAfter(1, QueueJournal.placeholderSong(10));
+        live.move(0, 4);
+        live.setCurrentPosition(3);
+        live.setShuffle(StaticPlayingQueue.SHUFFLE_MODE_SHUFFLE);
+        live.addAll(songs(20, 21, 22, 23));
+        live.addAllAfter(2, songs(30, 31, 32));
+        live.remove(5);
+        live.add(QueueJournal.placeholderSong(40));
+        live.removeSongs(songs(3, 21));
+        live.toggleShuffle();
+        live.addAllAfter(0, songs(50, 51));
+
+        return states;
+    }
+
+    private static String replay(QueueJournal.Content content) {
+        StaticPlayingQueue queue = content.replay(new ArrayList<>(), new ArrayList<>(), QueueJournal::placeholderSong);
+        return describe(queue);
+    }
+
+    @Test
+    public void replayReproducesLiveQueue() throws Exception {
+        File file = newJournalFile();
+        QueueJournal journal = new QueueJournal(file);
+        List<String> states = recordSession(journal, new ArrayList<>(), file);
+
+        QueueJournal.Content content = new QueueJournal(file).read();
+        assertNotNull(content);
+        assertEquals(GENERATION, content.generation);
+        assertEquals(states.size() - 1, content.operations.size());
+        assertEquals(states.get(states.size() - 1), replay(content));
+    }
+
+    @Test
+    public void truncatedJournalReplaysCompleteRecords() throws Exception {
+        File file = newJournalFile();
+        List<Long> recordEnds = new ArrayList<>();
+        List<String> states = recordSession(new QueueJournal(file), recordEnds, file);
+        byte[] full = Files.readAllBytes(file.toPath());
+
+        for (int length = HEADER_LENGTH; length <= full.length; ++length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+                raf.write(full, 0, length);
+            }
+
+            int completeRecords = 0;
+            while (completeRecords < recordEnds.size() && recordEnds.get(completeRecords) <= length) {++completeRecords;}
+
+            QueueJournal journal = new QueueJournal(file);
+            QueueJournal.Content content = journal.read();
+            assertNotNull(content);
+            assertEquals("records at length " + length, completeRecords, content.operations.size());
+            assertEquals("state at length " + length, states.get(completeRecords), replay(content));
+
+            // The torn tail is dropped, so that further appends are readable
+            long expectedLength = completeRecords == 0 ? HEADER_LENGTH : recordEnds.get(completeRecords - 1);
+            assertEquals(expectedLength, file.length());
+        }
+    }
+
+    @Test
+    public void appendAfterRecoveryIsReadable() throws Exception {
+        File file = newJournalFile();
+        List<Long> recordEnds = new ArrayList<>();
+        recordSession(new QueueJournal(file), recordEnds, file);
+
+        // Simulate a crash in the middle of the 3rd record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(recordEnds.get(2) - 3);
+        }
+
+        QueueJournal journal = new QueueJournal(file);
+        QueueJournal.Content recovered = journal.read();
+        assertNotNull(recovered);
+        assertEquals(2, recovered.operations.size());
+
+        StaticPlayingQueue queue = recovered.replay(new ArrayList<>(), new ArrayList<>(), QueueJournal::placeholderSong);
+        queue.setJournalListener(operation -> {
+            try {
+                journal.append(List.of(operation));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        queue.add(QueueJournal.placeholderSong(99));
+
+        QueueJournal.Content content = new QueueJournal(file).read();
+        assertNotNull(content);
+        assertEquals(3, content.operations.size());
+        assertEquals(describe(queue), replay(content));
+    }
+
+    @Test
+    public void corruptedRecordEndsJournal() throws Exception {
+        File file = newJournalFile();
+        List<Long> recordEnds = new ArrayList<>();
+        List<String> states = recordSession(new QueueJournal(file), recordEnds, file);
+
+        // Flip a byte inside the payload of the 4th record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long position = recordEnds.get(2) + 6;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xff);
+        }
+
+        QueueJournal.Content content = new QueueJournal(file).read();
+        assertNotNull(content);
+        assertEquals(3, content.operations.size());
+        assertEquals(states.get(3), replay(content));
+    }
+
+    @Test
+    public void missingOrForeignJournalIsIgnored() throws Exception {
+        File file = newJournalFile();
+        assertNull(new QueueJournal(new File(file.getPath() + ".missing")).read());
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(0x12345678);
+        }
+        QueueJournal journal = new QueueJournal(file);
+        assertNull(journal.read());
+        assertEquals(-1, journal.getGeneration());
+    }
+}
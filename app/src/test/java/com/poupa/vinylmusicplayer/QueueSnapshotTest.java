@@ -0,0 +1,204 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.poupa.vinylmusicplayer.helper.ShuffleHelper;
+import com.poupa.vinylmusicplayer.helper.ShufflePermutation;
+import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.misc.queue.QueueJournal;
+import com.poupa.vinylmusicplayer.misc.queue.QueueSnapshot;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class QueueSnapshotTest {
+    private static final int QUEUE_SIZE = 50_000;
+
+    private static File newSnapshotFile() throws IOException {
+        File file = File.createTempFile("queue_snapshot", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static ArrayList<IndexedSong> originalQueue(int size, Random random) {
+        ArrayList<IndexedSong> queue = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            queue.add(new IndexedSong(QueueJournal.placeholderSong(random.nextLong()), i, IndexedSong.INVALID_INDEX));
+        }
+        return queue;
+    }
+
+    /**
+     * @return The songs of the original queue, in a random order
+     */
+    private static ArrayList<IndexedSong> queue(ArrayList<IndexedSong> originalQueue, Random random) {
+        ArrayList<IndexedSong> queue = new ArrayList<>(originalQueue);
+        Collections.shuffle(queue, random);
+        return queue;
+    }
+
+    private static void assertSameQueue(ArrayList<IndexedSong> expected, ArrayList<IndexedSong> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).id, actual.get(i).id);
+            assertEquals(expected.get(i).index, actual.get(i).index);
+        }
+    }
+
+    @Test
+    public void roundTripLargeQueue() throws Exception {
+        final Random random = new Random(42);
+        final ArrayList<IndexedSong> originalQueue = originalQueue(QUEUE_SIZE, random);
+        final ArrayList<IndexedSong> queue = queue(originalQueue, random);
+        final File file = newSnapshotFile();
+
+        QueueSnapshot.write(file, 12, queue, originalQueue, null);
+        assertEquals(48 + 12L * QUEUE_SIZE, file.length());
+
+        final long start = System.nanoTime();
+        final QueueSnapshot snapshot = QueueSnapshot.read(file);
+        assertNotNull(snapshot);
+        final ArrayList<IndexedSong> restoredQueue = snapshot.getPlayingQueue(QueueJournal::placeholderSong);
+        final ArrayList<IndexedSong> restoredOriginalQueue = snapshot.getOriginalPlayingQueue(QueueJournal::placeholderSong);
+        System.out.printf("Restored %d entries in %d ms%n", 2 * QUEUE_SIZE, (System.nanoTime() - start) / 1_000_000);
+
+        assertEquals(12, snapshot.generation);
+        assertSameQueue(queue, restoredQueue);
+        assertSameQueue(originalQueue, restoredOriginalQueue);
+
+        final HashSet<Long> songIds = new HashSet<>();
+        snapshot.collectSongIds(songIds);
+        for (IndexedSong song : queue) {assertTrue(songIds.contains(song.id));}
+        for (IndexedSong song : originalQueue) {assertTrue(songIds.contains(song.id));}
+    }
+
+    @Test
+    public void rewriteReplacesSnapshot() throws Exception {
+        final Random random = new Random(7);
+        final File file = newSnapshotFile();
+        final ArrayList<IndexedSong> firstQueue = originalQueue(100, random);
+        QueueSnapshot.write(file, 1, queue(firstQueue, random), firstQueue, null);
+
+        final ArrayList<IndexedSong> originalQueue = originalQueue(3, random);
+        final ArrayList<IndexedSong> queue = queue(originalQueue, random);
+        QueueSnapshot.write(file, 2, queue, originalQueue, null);
+
+        final QueueSnapshot snapshot = QueueSnapshot.read(file);
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.generation);
+        assertSameQueue(queue, snapshot.getPlayingQueue(QueueJournal::placeholderSong));
+        assertSameQueue(originalQueue, snapshot.getOriginalPlayingQueue(QueueJournal::placeholderSong));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void shuffledQueueIsSavedAsSeedAndExceptions() throws Exception {
+        final Random random = new Random(11);
+        final ArrayList<IndexedSong> originalQueue = originalQueue(QUEUE_SIZE, random);
+        final ArrayList<IndexedSong> queue = new ArrayList<>(originalQueue);
+        final ShufflePermutation shuffleOrder = ShuffleHelper.makeShuffleList(queue, 1234, 99L);
+        assertNotNull(shuffleOrder);
+
+        // A few user moves on top of the shuffle
+        queue.add(10, queue.remove(20));
+        queue.add(100, queue.remove(95));
+
+        final File file = newSnapshotFile();
+        QueueSnapshot.write(file, 3, queue, originalQueue, shuffleOrder);
+        assertTrue(file.length() < 48 + 8L * QUEUE_SIZE + 8L * 20);
+
+        final QueueSnapshot snapshot = QueueSnapshot.read(file);
+        assertNotNull(snapshot);
+        assertSameQueue(queue, snapshot.getPlayingQueue(QueueJournal::placeholderSong));
+        assertSameQueue(originalQueue, snapshot.getOriginalPlayingQueue(QueueJournal::placeholderSong));
+        assertEquals(queue.get(0).id, snapshot.getSongIdAt(0));
+        assertEquals(queue.get(QUEUE_SIZE - 1).id, snapshot.getSongIdAt(QUEUE_SIZE - 1));
+
+        // Unmodified, only the seed is needed
+        final ArrayList<IndexedSong> shuffled = new ArrayList<>(originalQueue);
+        ShuffleHelper.makeShuffleList(shuffled, 1234, 99L);
+        QueueSnapshot.write(file, 4, shuffled, originalQueue, shuffleOrder);
+        assertEquals(48 + 8L * QUEUE_SIZE, file.length());
+        final QueueSnapshot shuffledSnapshot = QueueSnapshot.read(file);
+        assertNotNull(shuffledSnapshot);
+        assertSameQueue(shuffled, shuffledSnapshot.getPlayingQueue(QueueJournal::placeholderSong));
+    }
+
+    @Test
+    public void truncatedOrForeignSnapshotIsRejected() throws Exception {
+        final File file = newSnapshotFile();
+        assertNull(QueueSnapshot.read(new File(file.getPath() + ".missing")));
+
+        final Random random = new Random(3);
+        final ArrayList<IndexedSong> originalQueue = originalQueue(10, random);
+        QueueSnapshot.write(file, 1, queue(originalQueue, random), originalQueue, null);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        try {
+            QueueSnapshot.read(file);
+            fail("Truncated snapshot accepted");
+        } catch (IOException expected) {
+            // expected
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(0);
+            raf.writeInt(0x12345678);
+        }
+        try {
+            QueueSnapshot.read(file);
+            fail("Foreign file accepted");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void badIndexIsRejectedWhenUsed() throws Exception {
+        final File file = newSnapshotFile();
+        final Random random = new Random(5);
+        final ArrayList<IndexedSong> originalQueue = originalQueue(10, random);
+        final ArrayList<IndexedSong> queue = queue(originalQueue, random);
+        QueueSnapshot.write(file, 1, queue, originalQueue, null);
+        assertEquals(48 + 12L * 10, file.length());
+
+        // Last explicit index out of the queue, little endian
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(file.length() - 4);
+            raf.write(new byte[]{99, 0, 0, 0});
+        }
+
+        // Not validated until needed, the other positions being still readable
+        final QueueSnapshot snapshot = QueueSnapshot.read(file);
+        assertNotNull(snapshot);
+        assertEquals(queue.get(0).id, snapshot.getSongIdAt(0));
+        try {
+            snapshot.getSongIdAt(9);
+            fail("Bad index accepted");
+        } catch (IOException expected) {
+            // expected
+        }
+        try {
+            snapshot.getPlayingQueue(QueueJournal::placeholderSong);
+            fail("Bad index accepted");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
+import com.poupa.vinylmusicplayer.misc.queue.QueueJournal;
+import com.poupa.vinylmusicplayer.misc.queue.QueueWindow;
+import com.poupa.vinylmusicplayer.misc.queue.StaticPlayingQueue;
+import com.poupa.vinylmusicplayer.model.Song;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+
+@RunWith(JUnit4.class)
+public class QueueWindowTest {
+    private static final int QUEUE_SIZE = 20;
+    // Positions of the songs removed from the library
+    private static final int[] ORPHANS = {2, 9, 11};
+
+    private static boolean isOrphan(int position) {
+        for (int orphan : ORPHANS) {
+            if (orphan == position) {return true;}
+        }
+        return false;
+    }
+
+    /**
+     * @return The saved queue as restored, song IDs being their position plus 100
+     */
+    private static ArrayList<IndexedSong> restoredQueue() {
+        ArrayList<IndexedSong> queue = new ArrayList<>();
+        for (int i = 0; i < QUEUE_SIZE; ++i) {
+            Song song = isOrphan(i) ? Song.EMPTY_SONG : QueueJournal.placeholderSong(100 + i);
+            queue.add(new IndexedSong(song, i, IndexedSong.INVALID_INDEX));
+        }
+        return queue;
+    }
+
+    private static QueueWindow window(int start, int end) {
+        ArrayList<IndexedSong> queue = restoredQueue();
+        return new QueueWindow(start, new ArrayList<>(queue.subList(start, end)), QUEUE_SIZE);
+    }
+
+    @Test
+    public void windowPositionsMatchFullQueue() {
+        final int savedPosition = 10;
+        final QueueWindow window = window(7, 14);
+        final StaticPlayingQueue windowQueue = window.createQueue(savedPosition, StaticPlayingQueue.SHUFFLE_MODE_NONE, StaticPlayingQueue.REPEAT_MODE_NONE);
+        assertNotNull(windowQueue);
+        assertEquals(5, windowQueue.size());
+        assertEquals(110, windowQueue.getPlayingQueue().get(windowQueue.getCurrentPosition()).id);
+
+        final ArrayList<IndexedSong> restoredQueue = restoredQueue();
+        final StaticPlayingQueue fullQueue = new StaticPlayingQueue(restoredQueue, restoredQueue(), savedPosition,
+                StaticPlayingQueue.SHUFFLE_MODE_NONE, StaticPlayingQueue.REPEAT_MODE_NONE);
+        final int offset = window.getRestoredQueueOffset(restoredQueue);
+        for (int i = 0; i < windowQueue.size(); ++i) {
+            assertEquals(windowQueue.getPlayingQueue().get(i).id, fullQueue.getPlayingQueue().get(i + offset).id);
+
+            // The full queue, restored at the saved position of a window song, is positioned on that song
+            final StaticPlayingQueue merged = new StaticPlayingQueue(restoredQueue, restoredQueue(), window.toFullQueuePosition(i),
+                    StaticPlayingQueue.SHUFFLE_MODE_NONE, StaticPlayingQueue.REPEAT_MODE_NONE);
+            assertEquals(i + offset, merged.getCurrentPosition());
+        }
+    }
+
+    @Test
+    public void orphanAtSavedPositionMovesToNextSong() {
+        final QueueWindow window = window(5, 15);
+        final StaticPlayingQueue windowQueue = window.createQueue(9, StaticPlayingQueue.SHUFFLE_MODE_NONE, StaticPlayingQueue.REPEAT_MODE_NONE);
+        assertNotNull(windowQueue);
+        assertEquals(110, windowQueue.getPlayingQueue().get(windowQueue.getCurrentPosition()).id);
+    }
+
+    @Test
+    public void edgesNeedFullQueue() {
+        final QueueWindow window = window(7, 14);
+        assertTrue(window.isAtEdge(0));
+        assertFalse(window.isAtEdge(2));
+        assertTrue(window.isAtEdge(4));
+
+        final QueueWindow whole = window(0, QUEUE_SIZE);
+        assertFalse(whole.isAtEdge(0));
+        assertFalse(whole.isAtEdge(QUEUE_SIZE - ORPHANS.length - 1));
+    }
+}
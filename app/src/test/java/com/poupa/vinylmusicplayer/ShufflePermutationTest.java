@@ -0,0 +1,61 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.poupa.vinylmusicplayer.helper.ShufflePermutation;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ShufflePermutationTest {
+    private static void assertBijection(ShufflePermutation permutation) {
+        final boolean[] seen = new boolean[permutation.size];
+        for (int position = 0; position < permutation.size; ++position) {
+            final int element = permutation.get(position);
+            assertFalse("duplicate " + element, seen[element]);
+            seen[element] = true;
+            assertEquals(position, permutation.indexOf(element));
+        }
+    }
+
+    @Test
+    public void isBijectionForAnySize() {
+        for (int size = 0; size < 300; ++size) {
+            assertBijection(new ShufflePermutation(size * 31L, size, ShufflePermutation.NO_HEAD));
+            if (size > 0) {
+                assertBijection(new ShufflePermutation(size * 17L, size, size / 2));
+            }
+        }
+        assertBijection(new ShufflePermutation(42, 50_000, 1234));
+    }
+
+    @Test
+    public void headIsFirst() {
+        final ShufflePermutation permutation = new ShufflePermutation(7, 1000, 123);
+        assertEquals(123, permutation.get(0));
+        assertEquals(0, permutation.indexOf(123));
+    }
+
+    @Test
+    public void orderDependsOnSeedOnly() {
+        final int size = 1000;
+        final ShufflePermutation permutation = new ShufflePermutation(5, size, ShufflePermutation.NO_HEAD);
+        final ShufflePermutation same = new ShufflePermutation(5, size, ShufflePermutation.NO_HEAD);
+        final ShufflePermutation other = new ShufflePermutation(6, size, ShufflePermutation.NO_HEAD);
+
+        int unchanged = 0;
+        int differences = 0;
+        for (int position = 0; position < size; ++position) {
+            assertEquals(permutation.get(position), same.get(position));
+            if (permutation.get(position) == position) {++unchanged;}
+            if (permutation.get(position) != other.get(position)) {++differences;}
+        }
+        // A fair shuffle leaves about one element in place
+        assertTrue("unchanged=" + unchanged, unchanged < 10);
+        assertTrue("differences=" + differences, differences > size * 9 / 10);
+    }
+}
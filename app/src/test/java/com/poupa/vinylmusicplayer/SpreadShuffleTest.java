@@ -0,0 +1,107 @@
+package com.poupa.vinylmusicplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.poupa.vinylmusicplayer.helper.ShuffleHelper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+@RunWith(JUnit4.class)
+public class SpreadShuffleTest {
+    // Skewed library: a few prolific artists, and a long tail
+    private static final int[] SONGS_PER_ARTIST = {300, 150, 80, 40, 40, 20, 20, 10, 10, 5, 5, 5, 5, 2, 2, 1, 1, 1, 1, 1};
+    private static final int SONGS_PER_ALBUM = 10;
+
+    private static final class Track {
+        final int artist;
+        final int album;
+
+        Track(int artist, int album) {
+            this.artist = artist;
+            this.album = album;
+        }
+    }
+
+    private static ArrayList<Track> library() {
+        ArrayList<Track> library = new ArrayList<>();
+        int album = 0;
+        for (int artist = 0; artist < SONGS_PER_ARTIST.length; ++artist) {
+            for (int i = 0; i < SONGS_PER_ARTIST[artist]; ++i) {
+                if (i % SONGS_PER_ALBUM == 0) {++album;}
+                library.add(new Track(artist, album));
+            }
+        }
+        return library;
+    }
+
+    /**
+     * @return For each artist, the minimum distance between two of its songs
+     */
+    private static HashMap<Integer, Integer> minArtistDistances(ArrayList<Track> queue) {
+        HashMap<Integer, Integer> lastPositions = new HashMap<>();
+        HashMap<Integer, Integer> minDistances = new HashMap<>();
+        for (int i = 0; i < queue.size(); ++i) {
+            final int artist = queue.get(i).artist;
+            final Integer last = lastPositions.put(artist, i);
+            if (last != null) {
+                final Integer min = minDistances.get(artist);
+                minDistances.put(artist, (min == null) ? (i - last) : Math.min(min, i - last));
+            }
+        }
+        return minDistances;
+    }
+
+    @Test
+    public void artistsAreSpreadApart() {
+        final ArrayList<Track> library = library();
+        final int size = library.size();
+
+        for (long seed = 0; seed < 20; ++seed) {
+            final ArrayList<Track> queue = new ArrayList<>(library);
+            ShuffleHelper.makeSpreadShuffleList(queue, -1, seed, track -> track.artist, track -> track.album);
+            assertEquals(new HashSet<>(library), new HashSet<>(queue));
+
+            final ArrayList<Track> plainQueue = new ArrayList<>(library);
+            ShuffleHelper.makeShuffleList(plainQueue, -1, seed);
+
+            final HashMap<Integer, Integer> minDistances = minArtistDistances(queue);
+            final HashMap<Integer, Integer> plainMinDistances = minArtistDistances(plainQueue);
+            for (int artist = 0; artist < SONGS_PER_ARTIST.length; ++artist) {
+                if (SONGS_PER_ARTIST[artist] < 2) {continue;}
+
+                // Each artist gets its fair share of the queue, give or take the jitter of the other artists
+                final int fairDistance = size / SONGS_PER_ARTIST[artist];
+                final int minDistance = minDistances.get(artist);
+                assertTrue("Artist " + artist + " min distance " + minDistance + " for fair " + fairDistance,
+                        minDistance >= fairDistance / 2);
+                if (SONGS_PER_ARTIST[artist] >= 10 && fairDistance > 2) {
+                    // Better than what the plain shuffle gets by chance, unless the artist fills most of the queue
+                    assertTrue(minDistance > plainMinDistances.get(artist));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void currentSongStaysFirst() {
+        final ArrayList<Track> library = library();
+        final Track current = library.get(123);
+
+        final ArrayList<Track> queue = new ArrayList<>(library);
+        ShuffleHelper.makeSpreadShuffleList(queue, 123, 42L, track -> track.artist, track -> track.album);
+        assertEquals(current, queue.get(0));
+        assertEquals(library.size(), new HashSet<>(queue).size());
+
+        final ArrayList<Track> single = new ArrayList<>(Collections.singletonList(current));
+        ShuffleHelper.makeSpreadShuffleList(single, 0, 42L, track -> track.artist, track -> track.album);
+        assertEquals(current, single.get(0));
+    }
+}
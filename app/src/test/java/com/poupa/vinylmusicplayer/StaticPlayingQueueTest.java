@@ -2,6 +2,8 @@ package com.poupa.vinylmusicplayer;
 
 
 import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.poupa.vinylmusicplayer.misc.queue.IndexedSong;
 import com.poupa.vinylmusicplayer.misc.queue.StaticPlayingQueue;
@@ -13,6 +15,7 @@ import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 
@@ -336,4 +339,56 @@ public class StaticPlayingQueueTest {
         assertEquals(false, hasPositionChanged);
         checkQueuePosition(test);
     }
+
+    private static long retainedHeap() {
+        // The live objects only, once the garbage is collected
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {System.gc();}
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void entriesAreSharedBetweenQueues() {
+        final int size = 50_000;
+        final List<String> artistName = new ArrayList<>();
+        final ArrayList<Song> songs = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            songs.add(new Song(i, "title", 0, 2012, 50, "", 0, 0, 0, "", artistName));
+        }
+
+        long heapBefore = retainedHeap();
+        ArrayList<IndexedSong> copies = new ArrayList<>(size);
+        ArrayList<IndexedSong> originalCopies = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            // One copy per list, as the queue used to hold
+            copies.add(new IndexedSong(songs.get(i), i, i));
+            originalCopies.add(new IndexedSong(songs.get(i), i, i));
+        }
+        final long copiesHeap = retainedHeap() - heapBefore;
+        // Still referenced until measured
+        assertEquals(size, copies.size());
+        assertEquals(size, originalCopies.size());
+        copies = null;
+        originalCopies = null;
+
+        heapBefore = retainedHeap();
+        final StaticPlayingQueue test = new StaticPlayingQueue();
+        test.openQueue(songs, 0, StaticPlayingQueue.SHUFFLE_MODE_NONE);
+        test.setShuffle(StaticPlayingQueue.SHUFFLE_MODE_SHUFFLE);
+        final long queueHeap = retainedHeap() - heapBefore;
+        assertTrue(queueHeap + " bytes retained by the queue, " + copiesHeap + " by two copies",
+                queueHeap < copiesHeap * 3 / 4);
+
+        test.move(10, 20);
+        test.remove(30);
+        test.addAllAfter(40, songs.subList(0, 100));
+
+        final IdentityHashMap<IndexedSong, Boolean> entries = new IdentityHashMap<>();
+        for (IndexedSong song : test.getOriginalPlayingQueue()) {entries.put(song, true);}
+        for (IndexedSong song : test.getPlayingQueue()) {
+            assertTrue(entries.containsKey(song));
+            assertSame(song, test.getOriginalPlayingQueue().get(song.index));
+        }
+        assertEquals(test.size(), entries.size());
+    }
 }
@@ -0,0 +1,174 @@
+package com.poupa.vinylmusicplayer.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+@RunWith(JUnit4.class)
+public class StoreBackedSongListTest {
+    private static final long PLAYLIST_ID = 1;
+
+    /**
+     * A single playlist, kept in memory
+     */
+    private static class MemoryPlaylistStore extends PlaylistStore {
+        // Sort key -> song id
+        final TreeMap<Long, Long> entries = new TreeMap<>();
+
+        MemoryPlaylistStore(@NonNull final List<Long> songIds, final long sortKeyGap) {
+            super(null);
+            for (int i = 0; i < songIds.size(); ++i) {entries.put(sortKeyGap * i, songIds.get(i));}
+        }
+
+        @NonNull
+        List<Long> getSongIds() {
+            return new ArrayList<>(entries.values());
+        }
+
+        @Override
+        public synchronized long getPlaylistId(@NonNull final String name) {return PLAYLIST_ID;}
+
+        @Override
+        public synchronized long getOrCreatePlaylist(@NonNull final String name) {return PLAYLIST_ID;}
+
+        @Override
+        public synchronized void loadEntries(final long playlistId, @NonNull final List<Long> songIds, @NonNull final List<Long> sortKeys) {
+            for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+                sortKeys.add(entry.getKey());
+                songIds.add(entry.getValue());
+            }
+        }
+
+        @NonNull
+        @Override
+        public synchronized ArrayList<Long> appendEntries(final long playlistId, @NonNull final List<Long> songIds) {
+            final ArrayList<Long> sortKeys = new ArrayList<>(songIds.size());
+            long sortKey = entries.isEmpty() ? 0 : entries.lastKey() + SORT_KEY_GAP;
+            for (long songId : songIds) {
+                entries.put(sortKey, songId);
+                sortKeys.add(sortKey);
+                sortKey += SORT_KEY_GAP;
+            }
+            return sortKeys;
+        }
+
+        @Override
+        public synchronized boolean insertEntries(final long playlistId, @NonNull final List<Long> songIds, @NonNull final List<Long> sortKeys) {
+            for (long sortKey : sortKeys) {
+                if (entries.containsKey(sortKey)) {return false;}
+            }
+            for (int i = 0; i < songIds.size(); ++i) {entries.put(sortKeys.get(i), songIds.get(i));}
+            return true;
+        }
+
+        @Override
+        public synchronized void deleteEntries(final long playlistId, @NonNull final List<Long> sortKeys) {
+            for (long sortKey : sortKeys) {entries.remove(sortKey);}
+        }
+
+        @Override
+        public synchronized boolean moveEntry(final long playlistId, final long sortKey, final long newSortKey) {
+            if (!entries.containsKey(sortKey) || entries.containsKey(newSortKey)) {return false;}
+            entries.put(newSortKey, entries.remove(sortKey));
+            return true;
+        }
+
+        @Override
+        public synchronized void replaceEntries(final long playlistId, @NonNull final List<Long> songIds, @NonNull final List<Long> sortKeys) {
+            entries.clear();
+            for (int i = 0; i < songIds.size(); ++i) {entries.put(sortKeys.get(i), songIds.get(i));}
+        }
+
+        @Override
+        public synchronized boolean applyInTransaction(@NonNull final BooleanSupplier writes) {
+            final TreeMap<Long, Long> rollback = new TreeMap<>(entries);
+            if (writes.getAsBoolean()) {return true;}
+
+            entries.clear();
+            entries.putAll(rollback);
+            return false;
+        }
+    }
+
+    @NonNull
+    private static StoreBackedSongList newList(@NonNull final MemoryPlaylistStore store) {
+        PlaylistStore.setInstance(store);
+        return new StoreBackedSongList("test");
+    }
+
+    @Test
+    public void renumberWhileCommitPendingIsWritten() {
+        // Adjacent keys, no room left between the entries
+        final MemoryPlaylistStore store = new MemoryPlaylistStore(List.of(10L, 11L, 12L, 13L), 1);
+        final StoreBackedSongList list = newList(store);
+
+        list.beginEdit();
+        assertTrue(list.moveSong(3, 0));
+        list.endEdit();
+
+        // Before the commit, between the keys 0 and 1
+        assertTrue(list.moveSong(3, 2));
+        list.writePending();
+
+        assertEquals(List.of(13L, 10L, 12L, 11L), list.songIds);
+        assertEquals(list.songIds, store.getSongIds());
+    }
+
+    @Test
+    public void sessionIsWrittenAsDeltas() {
+        final MemoryPlaylistStore store = new MemoryPlaylistStore(List.of(10L, 11L, 12L), PlaylistStore.SORT_KEY_GAP);
+        final StoreBackedSongList list = newList(store);
+
+        list.beginEdit();
+        assertTrue(list.moveSong(0, 2));
+        list.removeSongsAtPosition(List.of(0));
+        list.endEdit();
+        assertEquals(List.of(10L, 11L, 12L), store.getSongIds());
+
+        list.writePending();
+        assertEquals(List.of(10L, 12L), list.songIds);
+        assertEquals(list.songIds, store.getSongIds());
+        // Not renumbered, the moved entry stays between its neighbours
+        assertTrue(store.entries.containsKey(PlaylistStore.SORT_KEY_GAP * 3 / 2));
+    }
+
+    @Test
+    public void sessionOutOfSyncIsWrittenAsWhole() {
+        final MemoryPlaylistStore store = new MemoryPlaylistStore(List.of(10L, 11L, 12L), PlaylistStore.SORT_KEY_GAP);
+        final StoreBackedSongList list = newList(store);
+
+        list.beginEdit();
+        assertTrue(list.moveSong(2, 0));
+        list.endEdit();
+        // Modified behind the list
+        store.entries.remove(2 * PlaylistStore.SORT_KEY_GAP);
+
+        list.writePending();
+        assertEquals(List.of(12L, 10L, 11L), store.getSongIds());
+    }
+
+    @Test
+    public void discardedSessionIsNotWritten() {
+        final MemoryPlaylistStore store = new MemoryPlaylistStore(List.of(10L, 11L, 12L), PlaylistStore.SORT_KEY_GAP);
+        final StoreBackedSongList list = newList(store);
+
+        list.beginEdit();
+        assertTrue(list.moveSong(2, 0));
+        list.endEdit();
+        list.discardEdit();
+
+        list.writePending();
+        assertEquals(List.of(10L, 11L, 12L), store.getSongIds());
+    }
+}